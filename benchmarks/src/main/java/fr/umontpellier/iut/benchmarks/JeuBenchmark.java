@@ -0,0 +1,164 @@
+package fr.umontpellier.iut.benchmarks;
+
+import fr.umontpellier.iut.gui.Audience;
+import fr.umontpellier.iut.rails.CouleurWagon;
+import fr.umontpellier.iut.rails.Jeu;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesures sur les opérations de {@code Jeu} : création d'une partie, pioche,
+ * remise des cartes visibles, envoi de l'état aux clients et calcul des vues
+ * JSON.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JeuBenchmark {
+    @Param({"2", "5"})
+    private int nbJoueurs;
+
+    private String[] noms;
+    private Jeu jeu;
+    private PrintStream sortieStandard;
+
+    @Setup(Level.Trial)
+    public void preparerNoms() {
+        noms = new String[nbJoueurs];
+        for (int i = 0; i < nbJoueurs; i++) {
+            noms[i] = "Joueur" + i;
+        }
+        // Jeu.prompt affiche l'état sur la sortie standard
+        sortieStandard = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restaurerSortie() {
+        System.setOut(sortieStandard);
+    }
+
+    /**
+     * Une nouvelle partie à chaque itération : le log et la défausse grandissent
+     * au fil des appels
+     */
+    @Setup(Level.Iteration)
+    public void creerPartie() {
+        jeu = new Jeu(noms);
+    }
+
+    @Benchmark
+    public Jeu construction() {
+        return new Jeu(noms);
+    }
+
+    /**
+     * Partie dont la carte piochée est remise sous la pile avant chaque appel,
+     * hors de la mesure, pour garder une pile de taille constante
+     */
+    @State(Scope.Thread)
+    public static class Pioche {
+        private Jeu jeu;
+        private CouleurWagon piochee;
+
+        @Setup(Level.Iteration)
+        public void creerPartie(JeuBenchmark mesures) {
+            jeu = new Jeu(mesures.noms);
+            piochee = null;
+        }
+
+        @Setup(Level.Invocation)
+        public void remettreCarte() {
+            if (piochee != null) {
+                jeu.getPileCartesWagon().add(piochee);
+                piochee = null;
+            }
+        }
+    }
+
+    /**
+     * Partie dont une carte visible change avant chaque appel, hors de la
+     * mesure : l'état n'est jamais celui du prompt précédent
+     */
+    @State(Scope.Thread)
+    public static class EtatModifie {
+        private Jeu jeu;
+
+        @Setup(Level.Iteration)
+        public void creerPartie(JeuBenchmark mesures) {
+            jeu = new Jeu(mesures.noms);
+        }
+
+        @Setup(Level.Invocation)
+        public void changerCarteVisible() {
+            List<CouleurWagon> visibles = jeu.getCartesWagonVisibles();
+            visibles.set(0, visibles.get(0) == CouleurWagon.ROUGE ? CouleurWagon.VERT : CouleurWagon.ROUGE);
+        }
+    }
+
+    /**
+     * Pioche une carte (elle est remise sous la pile avant l'appel suivant). La
+     * mesure d'une opération aussi courte comprend le coût de l'horodatage de
+     * chaque appel ({@code Level.Invocation}) : elle sert à comparer des versions
+     * entre elles, pas comme durée absolue.
+     */
+    @Benchmark
+    public CouleurWagon piocherCarteWagon(Pioche pioche) {
+        pioche.piochee = pioche.jeu.piocherCarteWagon();
+        return pioche.piochee;
+    }
+
+    /**
+     * Remet les 5 cartes visibles sous la pile puis complète les cartes visibles
+     */
+    @Benchmark
+    public List<CouleurWagon> resetCarteWagonVisible() {
+        List<CouleurWagon> visibles = jeu.getCartesWagonVisibles();
+        jeu.getPileCartesWagon().addAll(visibles);
+        visibles.clear();
+        jeu.resetCarteWagonVisible();
+        return visibles;
+    }
+
+    /**
+     * L'état change avant chaque appel : le prompt ne peut pas réutiliser le
+     * précédent et prépare de nouvelles vues (elles sont calculées à la
+     * diffusion, voir {@link #vueTable()} et {@link #vueSpectateur()})
+     */
+    @Benchmark
+    public void prompt(EtatModifie etat) {
+        etat.jeu.prompt("Choisissez une action.", new ArrayList<>(), false);
+    }
+
+    /**
+     * L'état ne change pas entre deux appels : mesure le calcul de la version et
+     * la réutilisation du prompt précédent
+     */
+    @Benchmark
+    public void promptInchange() {
+        jeu.prompt("Choisissez une action.", new ArrayList<>(), false);
+    }
+
+    @Benchmark
+    public long version() {
+        return jeu.getVersion();
+    }
+
+    @Benchmark
+    public String vueTable() {
+        return jeu.etatAsJson(Audience.TABLE, "Choisissez une action.", new ArrayList<>(), false);
+    }
+
+    @Benchmark
+    public String vueSpectateur() {
+        return jeu.etatAsJson(Audience.SPECTATEUR, "Choisissez une action.", new ArrayList<>(), false);
+    }
+}
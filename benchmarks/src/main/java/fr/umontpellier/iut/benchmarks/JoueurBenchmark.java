@@ -0,0 +1,85 @@
+package fr.umontpellier.iut.benchmarks;
+
+import fr.umontpellier.iut.rails.CouleurWagon;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.PlanificateurPaiement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesures sur les opérations de {@code Joueur} : recherche de la couleur la plus
+ * présente dans la main et capture d'une route.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JoueurBenchmark {
+    private Joueur joueurMainPleine;
+    private Jeu jeuCapture;
+    private Joueur joueurCapture;
+    private Jeu jeuCapturePlanifiee;
+    private Joueur joueurCapturePlanifiee;
+
+    @Setup(Level.Trial)
+    public void preparerMain() {
+        Jeu jeu = new Jeu(new String[]{"Guybrush", "Largo"});
+        joueurMainPleine = jeu.getJoueurs().get(0);
+        List<CouleurWagon> main = joueurMainPleine.getCartesWagon();
+        main.clear();
+        for (CouleurWagon c : CouleurWagon.getCouleursSimples()) {
+            main.addAll(Collections.nCopies(3, c));
+        }
+        main.addAll(Collections.nCopies(2, CouleurWagon.LOCOMOTIVE));
+    }
+
+    /**
+     * Une partie neuve par capture : la route doit être libre et le joueur doit
+     * avoir les cartes pour la payer
+     */
+    @Setup(Level.Invocation)
+    public void preparerCapture() {
+        jeuCapture = new Jeu(new String[]{"Guybrush", "Largo"});
+        joueurCapture = jeuCapture.getJoueurs().get(0);
+        joueurCapture.getCartesWagon().clear();
+        joueurCapture.getCartesWagon().add(CouleurWagon.BLEU);
+        joueurCapture.getCartesWagon().add(CouleurWagon.LOCOMOTIVE);
+        Iterator<String> entrees = List.of("Bruxelles - Frankfurt", "BLEU", "LOCOMOTIVE").iterator();
+        joueurCapture.setDecideur((joueur, instruction, choix, boutons, peutPasser) -> entrees.next());
+
+        jeuCapturePlanifiee = new Jeu(new String[]{"Guybrush", "Largo"});
+        joueurCapturePlanifiee = jeuCapturePlanifiee.getJoueurs().get(0);
+        joueurCapturePlanifiee.getCartesWagon().clear();
+        joueurCapturePlanifiee.getCartesWagon().add(CouleurWagon.BLEU);
+        joueurCapturePlanifiee.getCartesWagon().add(CouleurWagon.LOCOMOTIVE);
+        Iterator<String> entreesPlanifiees = List.of("Bruxelles - Frankfurt", PlanificateurPaiement.PAIEMENT_AUTO).iterator();
+        joueurCapturePlanifiee.setDecideur((joueur, instruction, choix, boutons, peutPasser) -> entreesPlanifiees.next());
+    }
+
+    @Benchmark
+    public int nbWagonMemeCouleurMax() {
+        return joueurMainPleine.nbWagonMemeCouleurMax();
+    }
+
+    @Benchmark
+    public Joueur captureRoute() {
+        joueurCapture.jouerTour();
+        return joueurCapture;
+    }
+
+    /**
+     * Même capture, en acceptant le paiement proposé en un seul choix
+     */
+    @Benchmark
+    public Joueur captureRoutePlanifiee() {
+        joueurCapturePlanifiee.jouerTour();
+        return joueurCapturePlanifiee;
+    }
+}
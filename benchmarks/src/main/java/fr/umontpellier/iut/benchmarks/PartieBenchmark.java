@@ -0,0 +1,57 @@
+package fr.umontpellier.iut.benchmarks;
+
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partie complète entre bots gloutons (création, distribution, tous les tours et
+ * décompte final).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PartieBenchmark {
+    @Param({"2", "5"})
+    private int nbJoueurs;
+
+    private String[] noms;
+    private PrintStream sortieStandard;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        noms = new String[nbJoueurs];
+        for (int i = 0; i < nbJoueurs; i++) {
+            noms[i] = "Bot" + i;
+        }
+        // la fin de partie est affichée sur la sortie standard
+        sortieStandard = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restaurerSortie() {
+        System.setOut(sortieStandard);
+    }
+
+    @Benchmark
+    public Jeu partieEntreBots() {
+        Jeu jeu = new Jeu(noms);
+        jeu.setNbToursMax(1000);
+        for (Joueur j : jeu.getJoueurs()) {
+            j.setDecideur(new DecideurGlouton());
+        }
+        // une rare partie annulée (tour impossible, voir Joueur.jouerTour) ne lance
+        // pas d'exception : la mesure reste valable
+        jeu.run();
+        return jeu;
+    }
+}
@@ -0,0 +1,27 @@
+package fr.umontpellier.iut.bots;
+
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.Route;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bot qui capture une route au hasard parmi celles qu'il peut payer.
+ */
+public class DecideurAleatoire extends DecideurSimple {
+    private final Random random;
+
+    public DecideurAleatoire() {
+        this(new Random());
+    }
+
+    public DecideurAleatoire(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    protected Route choisirRoute(Joueur joueur, List<Route> routesPossibles) {
+        return routesPossibles.get(random.nextInt(routesPossibles.size()));
+    }
+}
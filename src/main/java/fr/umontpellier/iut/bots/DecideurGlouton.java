@@ -0,0 +1,27 @@
+package fr.umontpellier.iut.bots;
+
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.Route;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bot qui capture la route la plus utile pour ses destinations (voir
+ * {@code Jeu.getValeursRoutes}), et à défaut la plus longue.
+ */
+public class DecideurGlouton extends DecideurSimple {
+    @Override
+    protected Route choisirRoute(Joueur joueur, List<Route> routesPossibles) {
+        Map<Route, Integer> valeurs = joueur.getJeu().getValeursRoutes(joueur);
+        Route meilleure = routesPossibles.get(0);
+        for (Route r : routesPossibles) {
+            int v = valeurs.getOrDefault(r, 0);
+            int vMeilleure = valeurs.getOrDefault(meilleure, 0);
+            if (v > vMeilleure || (v == vMeilleure && r.getLongueur() > meilleure.getLongueur())) {
+                meilleure = r;
+            }
+        }
+        return meilleure;
+    }
+}
@@ -0,0 +1,86 @@
+package fr.umontpellier.iut.bots;
+
+import fr.umontpellier.iut.rails.*;
+
+import java.util.*;
+
+/**
+ * Base des bots : capture une route quand c'est possible, sinon pioche des cartes
+ * wagon. Le choix de la route à capturer est laissé aux sous-classes.
+ * <p>
+ * Le bot annonce la route et son paiement (calculé par le
+ * {@link PlanificateurPaiement}) en une seule action composée et accepte toujours
+ * le supplément des tunnels. Il ne construit pas de gare et garde toutes les
+ * destinations qui lui sont proposées.
+ */
+public abstract class DecideurSimple implements Decideur {
+    /**
+     * Choisit la route à capturer parmi les routes que le joueur peut payer.
+     *
+     * @param routesPossibles routes libres que le joueur peut capturer (non vide)
+     */
+    protected abstract Route choisirRoute(Joueur joueur, List<Route> routesPossibles);
+
+    @Override
+    public String choisir(Joueur joueur, String instruction, Collection<String> choix, Collection<String> boutons,
+                          boolean peutPasser) {
+        if (boutons.contains(PlanificateurPaiement.PAIEMENT_AUTO)) {
+            return PlanificateurPaiement.PAIEMENT_AUTO;
+        }
+        if (choix.contains("destinations")) {
+            return choisirAction(joueur);
+        }
+        if (choix.contains(CouleurWagon.GRIS.name())) {
+            return choisirDeuxiemeCarte(joueur, choix);
+        }
+        // choix des destinations : le bot les garde toutes
+        return peutPasser ? "" : boutons.iterator().next();
+    }
+
+    private String choisirAction(Joueur joueur) {
+        Jeu jeu = joueur.getJeu();
+        int[] main = CouleurWagon.compter(joueur.getCartesWagon(), new int[CouleurWagon.values().length]);
+        List<Route> routesPossibles = new ArrayList<>();
+        for (Route r : jeu.getRoutes()) {
+            if (r.getProprietaire() == null && joueur.getNbWagons() >= r.getLongueur() && r.peutEtrePayeePar(main)) {
+                routesPossibles.add(r);
+            }
+        }
+        if (!routesPossibles.isEmpty()) {
+            Route route = choisirRoute(joueur, routesPossibles);
+            // la route et son paiement en un seul choix
+            List<CouleurWagon> plan = PlanificateurPaiement.planifier(route, joueur.getCartesWagon(),
+                    PlanificateurPaiement.couleursUtiles(joueur, route));
+            return new ActionComposee(route.getNom(), plan).toString();
+        }
+        if (!jeu.getPileCartesWagon().isEmpty()) {
+            return CouleurWagon.GRIS.name();
+        }
+        for (CouleurWagon c : jeu.getCartesWagonVisibles()) {
+            if (c != null && c != CouleurWagon.LOCOMOTIVE) {
+                return c.name();
+            }
+        }
+        if (jeu.getCartesWagonVisibles().contains(CouleurWagon.LOCOMOTIVE)) {
+            return CouleurWagon.LOCOMOTIVE.name();
+        }
+        return "destinations";
+    }
+
+    /**
+     * La deuxième carte est prise parmi les cartes visibles si possible : une
+     * locomotive piochée face cachée en deuxième carte est remise dans la pile, ce
+     * qui échoue quand la pile est presque vide.
+     */
+    private String choisirDeuxiemeCarte(Joueur joueur, Collection<String> choix) {
+        for (String c : choix) {
+            if (!c.equals(CouleurWagon.GRIS.name()) && !c.equals(CouleurWagon.LOCOMOTIVE.name())) {
+                return c;
+            }
+        }
+        if (joueur.getJeu().getPileCartesWagon().size() > 1) {
+            return CouleurWagon.GRIS.name();
+        }
+        return "";
+    }
+}
@@ -0,0 +1,100 @@
+package fr.umontpellier.iut.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Anneau de hachage cohérent : associe une clé (identifiant de partie) à un
+ * nœud (adresse {@code hôte:port} d'un serveur de jeu).
+ * <p>
+ * Chaque nœud est placé en {@link #NB_POINTS_PAR_NOEUD} points de l'anneau ; une
+ * clé appartient au premier point rencontré après son empreinte. Ajouter ou
+ * retirer un nœud ne déplace que les clés de ses points (environ 1/n des clés).
+ * Le routeur et les serveurs de jeu construisent le même anneau à partir de la
+ * même liste de nœuds, ce qui leur permet de s'accorder sans communiquer.
+ * <p>
+ * L'anneau est copié à chaque modification : les lectures ne prennent pas de
+ * verrou.
+ */
+public class AnneauCoherent {
+    public static final int NB_POINTS_PAR_NOEUD = 128;
+
+    private volatile TreeMap<Long, String> points = new TreeMap<>();
+
+    public AnneauCoherent(Collection<String> noeuds) {
+        for (String noeud : noeuds) {
+            ajouter(noeud);
+        }
+    }
+
+    public synchronized void ajouter(String noeud) {
+        TreeMap<Long, String> copie = new TreeMap<>(points);
+        for (int i = 0; i < NB_POINTS_PAR_NOEUD; i++) {
+            copie.put(hacher(noeud + "#" + i), noeud);
+        }
+        points = copie;
+    }
+
+    public synchronized void retirer(String noeud) {
+        TreeMap<Long, String> copie = new TreeMap<>(points);
+        copie.values().removeIf(noeud::equals);
+        points = copie;
+    }
+
+    public Set<String> getNoeuds() {
+        return new TreeSet<>(points.values());
+    }
+
+    /**
+     * @return le nœud de la clé, ou `null` si l'anneau est vide
+     */
+    public String noeud(String cle) {
+        TreeMap<Long, String> p = points;
+        if (p.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = p.ceilingEntry(hacher(cle));
+        return (point == null ? p.firstEntry() : point).getValue();
+    }
+
+    /**
+     * @return les {@code nombre} premiers nœuds distincts rencontrés après la clé
+     * (le premier est {@link #noeud(String)}), moins s'il n'y a pas assez de
+     * nœuds
+     */
+    public List<String> candidats(String cle, int nombre) {
+        TreeMap<Long, String> p = points;
+        LinkedHashSet<String> candidats = new LinkedHashSet<>();
+        for (String n : p.tailMap(hacher(cle), true).values()) {
+            if (candidats.size() == nombre) {
+                break;
+            }
+            candidats.add(n);
+        }
+        for (String n : p.values()) {
+            if (candidats.size() == nombre) {
+                break;
+            }
+            candidats.add(n);
+        }
+        return new ArrayList<>(candidats);
+    }
+
+    /**
+     * Empreinte FNV-1a sur 64 bits, mélangée pour répartir les points des
+     * identifiants proches
+     */
+    static long hacher(String cle) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : cle.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
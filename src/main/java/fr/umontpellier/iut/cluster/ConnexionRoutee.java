@@ -0,0 +1,139 @@
+package fr.umontpellier.iut.cluster;
+
+import fr.umontpellier.iut.gui.GameServer;
+
+import javax.websocket.*;
+import javax.websocket.server.ServerEndpoint;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+/**
+ * Connexion d'un client au routeur, relayée dans les deux sens vers une
+ * connexion au nœud choisi par le {@link Routeur} (les messages ne sont pas
+ * décodés). La fermeture d'un côté ferme l'autre, avec la même raison (voir
+ * {@link #transmissible}).
+ */
+@ServerEndpoint(value = "/")
+public class ConnexionRoutee {
+    /**
+     * Taille maximale d'un message reçu d'un client (comme sur un nœud)
+     */
+    private static final long TAILLE_MAX_MESSAGE = 4096;
+    private static final String AMONT = "amont";
+    private static final String NOEUD = "noeud";
+
+    /**
+     * @return la raison d'une fermeture reçue, à transmettre à l'autre côté : les
+     * codes réservés, qui ne doivent pas être envoyés (1005 sans code, 1006
+     * fermeture anormale, 1015 échec TLS, etc.) et que Tyrus refuse à la
+     * réception, sont remplacés par {@code NORMAL_CLOSURE} (pas de code) ou
+     * {@code GOING_AWAY}
+     */
+    static CloseReason transmissible(CloseReason raison) {
+        int code = raison.getCloseCode().getCode();
+        if (code >= 1000 && code <= 1003 || code >= 1007 && code <= 1011 || code >= 3000 && code <= 4999) {
+            return raison;
+        }
+        CloseReason.CloseCodes remplacant = code == CloseReason.CloseCodes.NO_STATUS_CODE.getCode()
+                ? CloseReason.CloseCodes.NORMAL_CLOSURE : CloseReason.CloseCodes.GOING_AWAY;
+        return new CloseReason(remplacant, raison.getReasonPhrase());
+    }
+
+    @OnOpen
+    public void onOpen(Session session) throws IOException {
+        Routeur routeur = Routeur.get();
+        String noeud = routeur.choisir(GameServer.parametres(session));
+        String requete = session.getQueryString();
+        try {
+            URI adresse = new URI("ws://" + noeud + "/" + (requete == null || requete.isEmpty() ? "" : "?" + requete));
+            Session amont = routeur.getClientNoeuds().connectToServer(new Relais(session),
+                    ClientEndpointConfig.Builder.create().build(), adresse);
+            session.getUserProperties().put(AMONT, amont);
+            session.getUserProperties().put(NOEUD, noeud);
+            routeur.connecte(noeud);
+        } catch (Exception e) {
+            System.err.println("Nœud " + noeud + " injoignable : " + e);
+            // Tyrus refuse le code 1013 (TRY_AGAIN_LATER)
+            session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Serveur indisponible"));
+        }
+    }
+
+    @OnMessage(maxMessageSize = TAILLE_MAX_MESSAGE)
+    public void onMessage(String message, Session session) throws IOException {
+        Session amont = (Session) session.getUserProperties().get(AMONT);
+        if (amont != null) {
+            amont.getBasicRemote().sendText(message);
+        }
+    }
+
+    @OnMessage(maxMessageSize = TAILLE_MAX_MESSAGE)
+    public void onMessage(ByteBuffer message, Session session) throws IOException {
+        Session amont = (Session) session.getUserProperties().get(AMONT);
+        if (amont != null) {
+            amont.getBasicRemote().sendBinary(message);
+        }
+    }
+
+    @OnClose
+    public void onClose(Session session, CloseReason raison) throws IOException {
+        Session amont = (Session) session.getUserProperties().remove(AMONT);
+        if (amont != null) {
+            Routeur.get().deconnecte((String) session.getUserProperties().get(NOEUD));
+            if (amont.isOpen()) {
+                amont.close(transmissible(raison));
+            }
+        }
+    }
+
+    @OnError
+    public void onError(Session session, Throwable exception) {
+        System.err.println("Erreur de la connexion routée " + session.getId() + " : " + exception);
+    }
+
+    /**
+     * Côté nœud : renvoie au client les messages du nœud
+     */
+    private static class Relais extends Endpoint {
+        private final Session client;
+
+        private Relais(Session client) {
+            this.client = client;
+        }
+
+        @Override
+        public void onOpen(Session amont, EndpointConfig config) {
+            amont.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    try {
+                        client.getBasicRemote().sendText(message);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+            amont.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    try {
+                        client.getBasicRemote().sendBinary(message);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onClose(Session amont, CloseReason raison) {
+            if (client.isOpen()) {
+                try {
+                    client.close(transmissible(raison));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
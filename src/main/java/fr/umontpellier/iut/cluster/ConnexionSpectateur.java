@@ -0,0 +1,70 @@
+package fr.umontpellier.iut.cluster;
+
+import fr.umontpellier.iut.gui.ClientConnecte;
+import fr.umontpellier.iut.gui.GameServer;
+
+import javax.websocket.*;
+import javax.websocket.server.ServerEndpoint;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connexion d'un spectateur à un {@link RelaisSpectateurs}
+ */
+@ServerEndpoint(value = "/")
+public class ConnexionSpectateur {
+    /**
+     * Taille maximale d'un message reçu (seuls les changements de protocole sont lus)
+     */
+    private static final long TAILLE_MAX_MESSAGE = 64;
+    private static final String CLIENT = "client";
+    private static final String PARTIE = "partie";
+
+    @OnOpen
+    public void onOpen(Session session) throws IOException {
+        ClientConnecte client = new ClientConnecte(session);
+        Map<String, List<String>> parametres = GameServer.parametres(session);
+        List<String> protocole = parametres.get("protocole");
+        if (protocole != null && protocole.contains("gzip")) {
+            client.setProtocole(ClientConnecte.Protocole.GZIP);
+        }
+        List<String> parties = parametres.get(GameServer.PARTIE);
+        String partie = parties == null || parties.isEmpty() ? "" : parties.get(0);
+        session.getUserProperties().put(CLIENT, client);
+        session.getUserProperties().put(PARTIE, partie);
+        // Tyrus refuse le code 1013 (TRY_AGAIN_LATER) : le refus est signalé par le
+        // code 1011
+        try {
+            if (!RelaisSpectateurs.get(session).abonner(client, partie)) {
+                session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Relais complet"));
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Source indisponible"));
+        }
+    }
+
+    @OnMessage(maxMessageSize = TAILLE_MAX_MESSAGE)
+    public void onMessage(String message, Session session) {
+        ClientConnecte client = (ClientConnecte) session.getUserProperties().get(CLIENT);
+        if (message.equals(GameServer.PROTOCOLE_GZIP)) {
+            client.setProtocole(ClientConnecte.Protocole.GZIP);
+        } else if (message.equals(GameServer.PROTOCOLE_TEXTE)) {
+            client.setProtocole(ClientConnecte.Protocole.TEXTE);
+        }
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        ClientConnecte client = (ClientConnecte) session.getUserProperties().get(CLIENT);
+        if (client != null) {
+            RelaisSpectateurs.get(session).desabonner(client, (String) session.getUserProperties().get(PARTIE));
+        }
+    }
+
+    @OnError
+    public void onError(Session session, Throwable exception) {
+        System.err.println("Erreur du spectateur " + session.getId() + " : " + exception);
+    }
+}
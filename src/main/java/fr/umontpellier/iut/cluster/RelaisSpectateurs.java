@@ -0,0 +1,339 @@
+package fr.umontpellier.iut.cluster;
+
+import fr.umontpellier.iut.gui.Audience;
+import fr.umontpellier.iut.gui.ClientConnecte;
+import fr.umontpellier.iut.gui.GameServer;
+import fr.umontpellier.iut.gui.Trame;
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.server.Server;
+
+import javax.websocket.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Relais de spectateurs : rediffuse la vue spectateur des parties d'une source
+ * (un serveur de jeu, le routeur ou un autre relais) à ses propres clients.
+ * <p>
+ * Pour chaque partie suivie, le relais ouvre une seule connexion vers la source
+ * (en JSON compressé, audience spectateur) dès le premier spectateur et la ferme
+ * après le départ du dernier. Chaque état reçu est décompressé une fois puis
+ * envoyé à tous les spectateurs de la partie, en texte ou compressé selon leur
+ * protocole (la version compressée reçue est réutilisée). Les envois ne bloquent
+ * pas la réception : un spectateur lent ne reçoit que le dernier état arrivé
+ * pendant son envoi en cours, les états intermédiaires sont sautés. Les spectateurs se
+ * connectent au relais comme à un serveur de jeu
+ * ({@code ?partie=<identifiant>&protocole=gzip}) ; un relais peut donc être la
+ * source d'un autre relais, ce qui forme un arbre de diffusion où le serveur de
+ * jeu n'a qu'une connexion par relais de premier niveau.
+ * <p>
+ * Les spectateurs ne peuvent pas jouer : leurs messages sont ignorés, sauf les
+ * changements de protocole texte/gzip (le protocole binaire n'est pas relayé).
+ * <p>
+ * Le nombre de parties suivies est limité : au-delà, les spectateurs d'une
+ * nouvelle partie sont refusés. Une partie inconnue de la source n'occupe pas de
+ * place, la source ferme aussitôt sa connexion.
+ */
+public class RelaisSpectateurs {
+    /**
+     * Nombre maximum de parties suivies par défaut (une connexion à la source par
+     * partie)
+     */
+    public static final int NB_FLUX_MAX = 1024;
+
+    /**
+     * Relais démarrés dans le processus, par contexte (les chemins des serveurs
+     * d'un même processus sont partagés, chaque relais a donc son contexte)
+     */
+    private static final Map<String, RelaisSpectateurs> demarres = new ConcurrentHashMap<>();
+
+    /**
+     * Partie suivie par le relais
+     */
+    private class Flux {
+        private final String partie;
+        private final Map<ClientConnecte, Spectateur> spectateurs = new ConcurrentHashMap<>();
+        private volatile Session amont;
+        private volatile Trame derniere;
+
+        private Flux(String partie) {
+            this.partie = partie;
+        }
+
+        private void recevoir(Trame trame) {
+            derniere = trame;
+            for (Spectateur spectateur : spectateurs.values()) {
+                spectateur.proposer(trame);
+            }
+        }
+    }
+
+    /**
+     * Spectateur d'un flux : au plus un envoi en cours, et seulement le dernier
+     * état reçu en attente (les états plus anciens ne sont plus utiles)
+     */
+    private static class Spectateur {
+        private final ClientConnecte client;
+        private final AtomicReference<Trame> enAttente = new AtomicReference<>();
+        private final AtomicBoolean envoiEnCours = new AtomicBoolean();
+        /**
+         * Vrai dès que le flux a proposé un état au spectateur
+         */
+        private volatile boolean servi;
+
+        private Spectateur(ClientConnecte client) {
+            this.client = client;
+        }
+
+        private void proposer(Trame trame) {
+            servi = true;
+            enAttente.set(trame);
+            envoyerSuivante();
+        }
+
+        /**
+         * Propose le dernier état connu à l'abonnement, sauf si le flux a déjà
+         * proposé un état plus récent
+         */
+        private void commencer(Trame trame) {
+            if (!servi && enAttente.compareAndSet(null, trame)) {
+                envoyerSuivante();
+            }
+        }
+
+        private void envoyerSuivante() {
+            while (enAttente.get() != null && envoiEnCours.compareAndSet(false, true)) {
+                Trame trame = enAttente.getAndSet(null);
+                if (trame == null) {
+                    envoiEnCours.set(false);
+                    continue;
+                }
+                try {
+                    client.envoyerSansAttendre(trame, resultat -> {
+                        envoiEnCours.set(false);
+                        if (resultat.isOK()) {
+                            envoyerSuivante();
+                        }
+                    });
+                    return;
+                } catch (RuntimeException e) {
+                    // session fermée : le spectateur sera désabonné par sa connexion
+                    envoiEnCours.set(false);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adresse de la source ({@code hôte:port})
+     */
+    private final String source;
+    private final Map<String, Flux> flux = new ConcurrentHashMap<>();
+    private final int nbFluxMax;
+    /**
+     * Client websocket partagé par toutes les connexions à la source
+     */
+    private final ClientManager clientSource = ClientManager.createClient();
+    private final Server serveur;
+    private final String contexte;
+
+    public RelaisSpectateurs(String hote, int port, String contexte, String source) {
+        this(hote, port, contexte, source, NB_FLUX_MAX);
+    }
+
+    /**
+     * @param nbFluxMax nombre maximum de parties suivies
+     */
+    public RelaisSpectateurs(String hote, int port, String contexte, String source, int nbFluxMax) {
+        this.source = source;
+        this.contexte = normaliser(contexte);
+        this.nbFluxMax = nbFluxMax;
+        serveur = new Server(hote, port, contexte, ConnexionSpectateur.class);
+    }
+
+    public static void main(String[] args) throws DeploymentException {
+        RelaisSpectateurs relais = new RelaisSpectateurs("localhost", Integer.getInteger("port", 3300), "/",
+                System.getProperty("source", "localhost:3232"));
+        relais.demarrer();
+        try (Scanner scanner = new Scanner(System.in)) {
+            while (scanner.hasNextLine()) {
+                scanner.nextLine();
+            }
+        } finally {
+            relais.arreter();
+        }
+    }
+
+    /**
+     * Lance le serveur websocket du relais
+     */
+    public void demarrer() throws DeploymentException {
+        demarres.put(contexte, this);
+        serveur.start();
+    }
+
+    public void arreter() {
+        for (Flux f : flux.values()) {
+            fermerAmont(f);
+        }
+        serveur.stop();
+        demarres.remove(contexte, this);
+    }
+
+    /**
+     * @return le relais qui a accepté la connexion d'un spectateur
+     */
+    static RelaisSpectateurs get(Session session) {
+        return demarres.get(normaliser(session.getRequestURI().getPath()));
+    }
+
+    private static String normaliser(String chemin) {
+        return chemin.endsWith("/") ? chemin.substring(0, chemin.length() - 1) : chemin;
+    }
+
+    /**
+     * @return le nombre de parties suivies (une connexion à la source par partie)
+     */
+    public int getNbFlux() {
+        return flux.size();
+    }
+
+    public int getNbSpectateurs(String partie) {
+        Flux f = flux.get(partie);
+        return f == null ? 0 : f.spectateurs.size();
+    }
+
+    /**
+     * Ajoute un spectateur à une partie (la partie par défaut de la source si
+     * {@code partie} est vide), et lui envoie le dernier état reçu
+     *
+     * @return faux (sans abonner le spectateur) si la partie n'est pas suivie et
+     * que le relais suit déjà le nombre maximum de parties
+     * @throws IOException si la source est injoignable
+     */
+    boolean abonner(ClientConnecte spectateur, String partie) throws IOException {
+        Flux f;
+        boolean nouveau = false;
+        Spectateur abonne = new Spectateur(spectateur);
+        spectateur.setAudience(Audience.SPECTATEUR);
+        synchronized (this) {
+            f = flux.get(partie);
+            if (f == null) {
+                if (flux.size() >= nbFluxMax) {
+                    return false;
+                }
+                f = new Flux(partie);
+                flux.put(partie, f);
+                nouveau = true;
+            }
+            f.spectateurs.put(spectateur, abonne);
+        }
+        if (nouveau) {
+            // la connexion à la source est ouverte hors du verrou : une source lente
+            // ne retarde que les spectateurs de sa partie
+            try {
+                ouvrirAmont(f);
+            } catch (IOException e) {
+                f.spectateurs.remove(spectateur);
+                amontFerme(f, new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Source indisponible"));
+                throw e;
+            }
+            boolean abandonne;
+            synchronized (this) {
+                abandonne = flux.get(partie) != f;
+            }
+            if (abandonne) {
+                // tous les spectateurs sont partis pendant l'ouverture
+                fermerAmont(f);
+            }
+        }
+        Trame derniere = f.derniere;
+        if (derniere != null) {
+            abonne.commencer(derniere);
+        }
+        return true;
+    }
+
+    void desabonner(ClientConnecte spectateur, String partie) {
+        Flux f;
+        synchronized (this) {
+            f = flux.get(partie);
+            if (f == null || f.spectateurs.remove(spectateur) == null || !f.spectateurs.isEmpty()) {
+                return;
+            }
+            flux.remove(partie);
+        }
+        fermerAmont(f);
+    }
+
+    private void ouvrirAmont(Flux f) throws IOException {
+        String requete = "audience=spectateur&protocole=gzip";
+        if (!f.partie.isEmpty()) {
+            requete += "&" + GameServer.PARTIE + "=" + URLEncoder.encode(f.partie, StandardCharsets.UTF_8);
+        }
+        try {
+            f.amont = clientSource.connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(Session amont, EndpointConfig config) {
+                    amont.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                        @Override
+                        public void onMessage(ByteBuffer message) {
+                            try {
+                                f.recevoir(Trame.depuisGzip(message));
+                            } catch (IOException e) {
+                                System.err.println("État illisible pour la partie " + f.partie + " : " + e);
+                            }
+                        }
+                    });
+                }
+
+                @Override
+                public void onClose(Session amont, CloseReason raison) {
+                    amontFerme(f, raison);
+                }
+            }, ClientEndpointConfig.Builder.create().build(), new URI("ws://" + source + "/?" + requete));
+        } catch (Exception e) {
+            throw new IOException("Source " + source + " injoignable", e);
+        }
+    }
+
+    private void fermerAmont(Flux f) {
+        Session amont = f.amont;
+        if (amont != null && amont.isOpen()) {
+            try {
+                amont.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * La source a fermé la connexion (partie terminée, source arrêtée) : les
+     * spectateurs sont déconnectés avec la même raison (un code réservé est
+     * remplacé, voir {@link ConnexionRoutee#transmissible})
+     */
+    private void amontFerme(Flux f, CloseReason raison) {
+        synchronized (this) {
+            flux.remove(f.partie, f);
+        }
+        for (ClientConnecte spectateur : f.spectateurs.keySet()) {
+            if (spectateur.getSession().isOpen()) {
+                try {
+                    spectateur.getSession().close(ConnexionRoutee.transmissible(raison));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
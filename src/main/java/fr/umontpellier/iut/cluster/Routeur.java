@@ -0,0 +1,131 @@
+package fr.umontpellier.iut.cluster;
+
+import fr.umontpellier.iut.gui.GameServer;
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.server.Server;
+
+import javax.websocket.DeploymentException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routeur d'un cluster de serveurs de jeu ({@link GameServer} lancés avec
+ * {@code -Dcluster=<nœuds>}).
+ * <p>
+ * Les clients se connectent au routeur comme à un serveur de jeu ; chaque
+ * connexion est relayée vers un nœud (voir {@link ConnexionRoutee}) :
+ * <ul>
+ * <li>une connexion à une partie existante ({@code ?partie=<identifiant>}) va au
+ * nœud de l'identifiant sur l'{@link AnneauCoherent} ;</li>
+ * <li>une inscription au salon ({@code ?joueurs=<n>}) va au moins chargé des
+ * deux nœuds de la clé {@code salon:<n>}, pour que les joueurs d'un même salon
+ * se retrouvent sur peu de nœuds tout en répartissant les nouvelles
+ * parties ;</li>
+ * <li>les autres connexions vont au nœud de la clé vide (partie par défaut).</li>
+ * </ul>
+ * La charge d'un nœud est le nombre de connexions que le routeur lui relaie.
+ * <p>
+ * Exemple (deux nœuds et le routeur sur la même machine) :
+ * <pre>
+ * java -Dport=3240 -DportHttp=3241 -Dcluster=localhost:3240,localhost:3250 -Dnoeud=localhost:3240 ... GameServer
+ * java -Dport=3250 -DportHttp=3251 -Dcluster=localhost:3240,localhost:3250 -Dnoeud=localhost:3250 ... GameServer
+ * java -Dport=3232 -Dcluster=localhost:3240,localhost:3250 ... Routeur
+ * </pre>
+ */
+public class Routeur {
+    private static volatile Routeur courant;
+
+    private final AnneauCoherent anneau;
+    private final Map<String, AtomicInteger> charges = new ConcurrentHashMap<>();
+    private final Server serveur;
+    /**
+     * Client websocket partagé par toutes les connexions vers les nœuds (créer un
+     * client par connexion crée aussi son transport et ses threads)
+     */
+    private final ClientManager clientNoeuds = ClientManager.createClient();
+
+    public Routeur(String hote, int port, Collection<String> noeuds) {
+        anneau = new AnneauCoherent(noeuds);
+        for (String noeud : noeuds) {
+            charges.put(noeud, new AtomicInteger());
+        }
+        serveur = new Server(hote, port, "/", ConnexionRoutee.class);
+    }
+
+    public static void main(String[] args) throws DeploymentException {
+        Routeur routeur = new Routeur("localhost", Integer.getInteger("port", 3232),
+                Arrays.asList(System.getProperty("cluster", "localhost:3240").split(",")));
+        routeur.demarrer();
+        try (Scanner scanner = new Scanner(System.in)) {
+            while (scanner.hasNextLine()) {
+                scanner.nextLine();
+            }
+        } finally {
+            routeur.arreter();
+        }
+    }
+
+    /**
+     * Lance le serveur websocket du routeur (un seul routeur par processus)
+     */
+    public void demarrer() throws DeploymentException {
+        courant = this;
+        serveur.start();
+    }
+
+    public void arreter() {
+        serveur.stop();
+    }
+
+    static Routeur get() {
+        return courant;
+    }
+
+    ClientManager getClientNoeuds() {
+        return clientNoeuds;
+    }
+
+    public AnneauCoherent getAnneau() {
+        return anneau;
+    }
+
+    public int getCharge(String noeud) {
+        AtomicInteger charge = charges.get(noeud);
+        return charge == null ? 0 : charge.get();
+    }
+
+    /**
+     * @return le nœud vers lequel relayer une nouvelle connexion
+     */
+    public String choisir(Map<String, List<String>> parametres) {
+        String partie = parametre(parametres, GameServer.PARTIE);
+        if (partie != null) {
+            return anneau.noeud(partie);
+        }
+        String joueurs = parametre(parametres, "joueurs");
+        if (joueurs != null) {
+            String moinsCharge = null;
+            for (String noeud : anneau.candidats(GameServer.SALON + ":" + joueurs, 2)) {
+                if (moinsCharge == null || getCharge(noeud) < getCharge(moinsCharge)) {
+                    moinsCharge = noeud;
+                }
+            }
+            return moinsCharge;
+        }
+        return anneau.noeud("");
+    }
+
+    void connecte(String noeud) {
+        charges.computeIfAbsent(noeud, n -> new AtomicInteger()).incrementAndGet();
+    }
+
+    void deconnecte(String noeud) {
+        charges.get(noeud).decrementAndGet();
+    }
+
+    private static String parametre(Map<String, List<String>> parametres, String nom) {
+        List<String> valeurs = parametres == null ? null : parametres.get(nom);
+        return valeurs == null || valeurs.isEmpty() ? null : valeurs.get(0);
+    }
+}
@@ -0,0 +1,96 @@
+package fr.umontpellier.iut.gui;
+
+import java.util.Objects;
+
+/**
+ * Ensemble des clients qui reçoivent la même vue de la partie :
+ * - la table (tout est visible, comme sur un écran partagé par les joueurs) ;
+ * - le siège d'un joueur (les cartes et destinations des adversaires sont
+ * réduites à leur nombre) ;
+ * - les spectateurs (aucune main n'est visible).
+ * <p>
+ * Un client est spectateur tant que le serveur ne lui attribue pas la table ou
+ * un siège. Il peut demander son audience en envoyant {@code "table"},
+ * {@code "spectateur"} ou {@code "siege:<nom du joueur>"}, mais seule l'audience
+ * spectateur, ou celle qui lui a été attribuée, est acceptée (voir
+ * {@link ClientConnecte#demanderAudience}).
+ */
+public final class Audience {
+    public enum Type {
+        TABLE, SIEGE, SPECTATEUR
+    }
+
+    public static final Audience TABLE = new Audience(Type.TABLE, null);
+    public static final Audience SPECTATEUR = new Audience(Type.SPECTATEUR, null);
+
+    private static final String PREFIXE_SIEGE = "siege:";
+
+    private final Type type;
+    /**
+     * Nom du joueur assis au siège (`null` pour la table et les spectateurs)
+     */
+    private final String nomJoueur;
+
+    private Audience(Type type, String nomJoueur) {
+        this.type = type;
+        this.nomJoueur = nomJoueur;
+    }
+
+    public static Audience siege(String nomJoueur) {
+        return new Audience(Type.SIEGE, nomJoueur);
+    }
+
+    /**
+     * @return l'audience demandée par un message, ou `null` si le message n'est
+     * pas une demande d'audience
+     */
+    public static Audience lire(String message) {
+        if (message.equals("table")) {
+            return TABLE;
+        }
+        if (message.equals("spectateur")) {
+            return SPECTATEUR;
+        }
+        if (message.startsWith(PREFIXE_SIEGE) && message.length() > PREFIXE_SIEGE.length()) {
+            return siege(message.substring(PREFIXE_SIEGE.length()));
+        }
+        return null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getNomJoueur() {
+        return nomJoueur;
+    }
+
+    /**
+     * @return vrai si l'audience peut voir la main et les destinations du joueur
+     */
+    public boolean voit(String nomJoueur) {
+        return type == Type.TABLE || type == Type.SIEGE && this.nomJoueur.equals(nomJoueur);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Audience)) {
+            return false;
+        }
+        Audience autre = (Audience) o;
+        return type == autre.type && Objects.equals(nomJoueur, autre.nomJoueur);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, nomJoueur);
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.SIEGE ? PREFIXE_SIEGE + nomJoueur : type.name().toLowerCase();
+    }
+}
@@ -0,0 +1,218 @@
+package fr.umontpellier.iut.gui;
+
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Client connecté au serveur websocket, avec le protocole et l'audience qu'il a
+ * choisis
+ */
+public class ClientConnecte {
+    public enum Protocole {
+        /**
+         * État en JSON, dans des messages texte
+         */
+        TEXTE,
+        /**
+         * État en JSON compressé (gzip), dans des messages binaires
+         */
+        GZIP,
+        /**
+         * Protocole binaire compact (voir {@link ProtocoleBinaire})
+         */
+        BINAIRE
+    }
+
+    /**
+     * Nombre de messages qu'un client peut envoyer d'un coup
+     */
+    public static final int CAPACITE_RAFALE = 20;
+    /**
+     * Débit soutenu autorisé
+     */
+    public static final double MESSAGES_PAR_SECONDE = 5;
+    /**
+     * Nombre de messages refusés à la suite au-delà duquel la connexion est fermée
+     */
+    public static final int REFUS_AVANT_FERMETURE = 100;
+
+    private final Session session;
+    private volatile Protocole protocole;
+    /**
+     * Audience du client : par défaut spectateur (aucune main visible)
+     */
+    private volatile Audience audience = Audience.SPECTATEUR;
+    /**
+     * Audience attribuée par le serveur (siège d'un joueur, ou table d'un écran
+     * partagé), `null` si le client n'en a pas
+     */
+    private volatile Audience audienceAttribuee;
+    /**
+     * Table suivie par le client (`null` tant qu'il attend dans le salon)
+     */
+    private volatile Table table;
+    /**
+     * Limite le nombre de messages que le client peut envoyer
+     */
+    private final LimiteurDebit limiteur = new LimiteurDebit(CAPACITE_RAFALE, MESSAGES_PAR_SECONDE);
+    /**
+     * Nombre de messages de log déjà envoyés au client (protocole binaire : seuls
+     * les nouveaux messages sont envoyés)
+     */
+    private int nbLogsRecus;
+    /**
+     * Dernière trame JSON et dernier état binaire envoyés au client
+     */
+    private volatile Trame derniereTrame;
+    private volatile ProtocoleBinaire.Etat dernierEtatBinaire;
+
+    public ClientConnecte(Session session) {
+        this.session = session;
+        protocole = Protocole.TEXTE;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public Protocole getProtocole() {
+        return protocole;
+    }
+
+    /**
+     * Change le protocole du client. Le prochain état binaire envoyé contiendra
+     * tout le log.
+     */
+    public synchronized void setProtocole(Protocole protocole) {
+        this.protocole = protocole;
+        nbLogsRecus = 0;
+        derniereTrame = null;
+        dernierEtatBinaire = null;
+    }
+
+    public Audience getAudience() {
+        return audience;
+    }
+
+    public Audience getAudienceAttribuee() {
+        return audienceAttribuee;
+    }
+
+    /**
+     * Attribue une audience au client (décision du serveur) et la lui donne
+     */
+    public void attribuer(Audience audience) {
+        audienceAttribuee = audience;
+        setAudience(audience);
+    }
+
+    /**
+     * Changement d'audience demandé par le client : il peut toujours passer en
+     * spectateur, et revenir ensuite à l'audience que le serveur lui a attribuée
+     *
+     * @return faux si l'audience demandée n'est pas autorisée
+     */
+    public boolean demanderAudience(Audience demandee) {
+        if (demandee.getType() != Audience.Type.SPECTATEUR && !demandee.equals(audienceAttribuee)) {
+            return false;
+        }
+        setAudience(demandee);
+        return true;
+    }
+
+    public void setAudience(Audience audience) {
+        this.audience = audience;
+        derniereTrame = null;
+        dernierEtatBinaire = null;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    /**
+     * Place le client à une table : le prochain état envoyé sera complet
+     */
+    public synchronized void setTable(Table table) {
+        this.table = table;
+        nbLogsRecus = 0;
+        derniereTrame = null;
+        dernierEtatBinaire = null;
+    }
+
+    /**
+     * @return vrai si la trame est la dernière envoyée au client
+     */
+    public boolean aRecu(Trame trame) {
+        return trame == derniereTrame;
+    }
+
+    /**
+     * @return vrai si l'état binaire est le dernier envoyé au client
+     */
+    public boolean aRecu(ProtocoleBinaire.Etat etat) {
+        return etat == dernierEtatBinaire;
+    }
+
+    public void setDerniereTrame(Trame trame) {
+        derniereTrame = trame;
+    }
+
+    public void setDernierEtatBinaire(ProtocoleBinaire.Etat etat) {
+        dernierEtatBinaire = etat;
+    }
+
+    public LimiteurDebit getLimiteur() {
+        return limiteur;
+    }
+
+    public synchronized int getNbLogsRecus() {
+        return nbLogsRecus;
+    }
+
+    public synchronized void setNbLogsRecus(int nbLogsRecus) {
+        this.nbLogsRecus = nbLogsRecus;
+    }
+
+    /**
+     * Envoie une trame JSON partagée, selon le protocole du client (la trame
+     * n'est pas modifiée)
+     */
+    public void envoyer(Trame trame) throws IOException {
+        if (protocole == Protocole.GZIP) {
+            session.getBasicRemote().sendBinary(trame.getGzip().duplicate());
+        } else {
+            session.getBasicRemote().sendText(trame.getTexte());
+        }
+        derniereTrame = trame;
+    }
+
+    /**
+     * Envoie une trame JSON partagée sans attendre la fin de l'envoi (voir
+     * {@link #envoyer(Trame)}) : {@code fin} est appelé quand la trame est partie
+     * ou que l'envoi a échoué. Un seul envoi peut être en cours à la fois.
+     */
+    public void envoyerSansAttendre(Trame trame, SendHandler fin) {
+        if (protocole == Protocole.GZIP) {
+            session.getAsyncRemote().sendBinary(trame.getGzip().duplicate(), fin);
+        } else {
+            session.getAsyncRemote().sendText(trame.getTexte(), fin);
+        }
+        derniereTrame = trame;
+    }
+
+    /**
+     * Envoie un message binaire (le buffer n'est pas modifié). Tyrus envoie tout
+     * le tableau du buffer, sans tenir compte de sa position : le buffer doit
+     * avoir exactement la taille du message, et ne pas être en lecture seule.
+     */
+    public void envoyer(ByteBuffer message) throws IOException {
+        session.getBasicRemote().sendBinary(message.duplicate());
+    }
+}
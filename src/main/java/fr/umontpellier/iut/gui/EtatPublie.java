@@ -0,0 +1,105 @@
+package fr.umontpellier.iut.gui;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Dernier état de la partie publié pour les services qui l'interrogent en HTTP
+ * (classements, incrustations vidéo...), à l'adresse {@code /etat} de
+ * {@link ServeurHttp}.
+ * <p>
+ * Le thread du jeu publie après chaque modification un instantané immuable (la
+ * vue spectateur, déjà codée et compressée) dans une référence volatile. Les
+ * requêtes lisent cette référence sans verrou et sans jamais accéder aux
+ * collections de la partie ; un client qui renvoie l'ETag du dernier instantané
+ * reçoit une réponse 304 (voir {@link ReponseHttp}).
+ * <p>
+ * Rien n'est calculé tant que la publication n'a pas été activée.
+ */
+public class EtatPublie {
+    /**
+     * État publié : numéro de diffusion, vue spectateur et sa version (qui sert
+     * d'ETag)
+     */
+    public static class Instantane {
+        private final int numero;
+        private final Trame trame;
+        private final String version;
+
+        private Instantane(int numero, Trame trame, String version) {
+            this.numero = numero;
+            this.trame = trame;
+            this.version = version;
+        }
+
+        public int getNumero() {
+            return numero;
+        }
+
+        public Trame getTrame() {
+            return trame;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Distingue les ETags de deux exécutions du serveur (les numéros de
+     * diffusion recommencent à 1)
+     */
+    private final String idDemarrage = Long.toString(System.currentTimeMillis(), 36);
+    private volatile boolean actif;
+    private volatile Instantane courant;
+
+    public boolean isActif() {
+        return actif;
+    }
+
+    public void activer() {
+        actif = true;
+    }
+
+    public Instantane get() {
+        return courant;
+    }
+
+    /**
+     * Publie un nouvel état (appelée par le thread du jeu). La version
+     * compressée est calculée ici pour que les lectures n'aient rien à calculer.
+     */
+    public void publier(int numero, Trame trame) {
+        if (!actif) {
+            return;
+        }
+        Instantane precedent = courant;
+        if (precedent != null && precedent.trame == trame) {
+            return;
+        }
+        trame.getGzip();
+        courant = new Instantane(numero, trame, idDemarrage + "-" + numero);
+    }
+
+    /**
+     * Répond à une requête GET ou HEAD sur l'état publié
+     */
+    public void traiter(HttpExchange echange) throws IOException {
+        try {
+            if (!ReponseHttp.estLecture(echange)) {
+                return;
+            }
+            Instantane instantane = courant;
+            if (instantane == null) {
+                echange.getResponseHeaders().set("Retry-After", "1");
+                echange.sendResponseHeaders(503, -1);
+                return;
+            }
+            ReponseHttp.envoyer(echange, "application/json; charset=utf-8", instantane.version, "no-cache",
+                    instantane.trame.getUtf8(), instantane.trame.getGzip(), null);
+        } finally {
+            echange.close();
+        }
+    }
+}
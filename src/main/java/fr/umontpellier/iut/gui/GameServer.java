@@ -1,71 +1,409 @@
 package fr.umontpellier.iut.gui;
 
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import fr.umontpellier.iut.cluster.AnneauCoherent;
+import fr.umontpellier.iut.metriques.Metriques;
+import fr.umontpellier.iut.rails.EtatPartie;
+import fr.umontpellier.iut.rails.Hibernation;
 import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.RegistreParties;
+import fr.umontpellier.iut.rails.ReserveParties;
 import org.glassfish.tyrus.server.Server;
 
+import javax.websocket.CloseReason;
 import javax.websocket.DeploymentException;
 import javax.websocket.Session;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class GameServer {
     /**
-     * Liste des clients connectés au serveur
+     * Message par lequel un client demande le protocole binaire
      */
-    private static ArrayList<Session> clients = new ArrayList<>();
+    public static final String PROTOCOLE_BINAIRE = "protocole:binaire";
     /**
-     * Description de l'état du jeu, envoyé aux clients pour la mise à jour de l'interface graphique
+     * Message par lequel un client demande le JSON compressé
      */
-    private static String etatJeu = "";
+    public static final String PROTOCOLE_GZIP = "protocole:gzip";
     /**
-     * Instance de jeu exécutée par le serveur
+     * Message par lequel un client revient au protocole texte (JSON)
      */
-    private static Jeu jeu;
+    public static final String PROTOCOLE_TEXTE = "protocole:texte";
+    /**
+     * Préfixe du message par lequel un client indique le dernier état reçu avant
+     * une reconnexion ({@code "reprendre:<flux>:<numéro>"}, avec le flux et le
+     * numéro de diffusion de cet état). La reprise peut aussi être donnée dans
+     * l'adresse de connexion ({@code ?reprendre=<flux>:<numéro>},
+     * avec éventuellement {@code protocole} et {@code audience}), ce qui évite
+     * l'envoi de l'état complet à la connexion.
+     */
+    public static final String REPRENDRE = "reprendre";
+    /**
+     * Préfixe du message par lequel un client s'inscrit au salon
+     * ({@code "salon:<nombre de joueurs>:<nom>"}). L'inscription peut aussi être
+     * faite dans l'adresse de connexion ({@code ?joueurs=<nombre>&nom=<nom>}). Le
+     * client reçoit l'état de sa table quand elle est formée.
+     */
+    public static final String SALON = "salon";
+    /**
+     * Paramètre de connexion qui désigne une partie en cours
+     * ({@code ?partie=<identifiant>}). Un client placé à une table par le salon
+     * reçoit {@code "partie:<identifiant>:<jeton>"} avant le premier état, pour
+     * pouvoir revenir à son siège après une reconnexion
+     * ({@code ?partie=<identifiant>&jeton=<jeton>}) ; sans jeton, le client est
+     * spectateur.
+     */
+    public static final String PARTIE = "partie";
+    public static final String JETON = "jeton";
+    /**
+     * Nombre de diffusions gardées pour les reprises
+     */
+    public static final int CAPACITE_HISTORIQUE = 256;
+    /**
+     * Nombre de parties terminées dont le résumé est gardé
+     */
+    public static final int CAPACITE_ARCHIVES = 100;
+
+    /**
+     * Clients connectés au serveur, indexés par identifiant de session
+     */
+    private static final Map<String, ClientConnecte> clients = new ConcurrentHashMap<>();
+    /**
+     * Tables en cours, indexées par identifiant de partie
+     */
+    private static final Map<String, Table> tables = new ConcurrentHashMap<>();
+    /**
+     * Table rejointe par les clients qui ne passent pas par le salon (`null` s'il
+     * n'y en a pas), seule publiée en HTTP et alimentée par l'entrée standard
+     */
+    private static volatile Table tableParDefaut;
+    /**
+     * État publié pour les lectures HTTP (vue spectateur de la table par défaut)
+     */
+    private static final EtatPublie etatPublie = new EtatPublie();
+    private static Hibernation hibernation;
+    /**
+     * Threads des parties et archives des parties terminées
+     */
+    private static final RegistreParties registre = new RegistreParties(CAPACITE_ARCHIVES, GameServer::surFinPartie);
+    private static ReserveParties reserve;
+    private static Salon salon;
+    /**
+     * Délai de décision et délai d'inactivité avant l'hibernation, en secondes
+     * (0 : désactivé)
+     */
+    private static int delaiDecision;
+    private static int delaiHibernation;
+    /**
+     * Nœuds du cluster et adresse de ce serveur parmi eux (`null` hors cluster) :
+     * les identifiants des parties créées ici sont choisis pour que l'anneau les
+     * associe à ce serveur (voir {@link fr.umontpellier.iut.cluster.Routeur})
+     */
+    private static AnneauCoherent anneau;
+    /**
+     * Vrai si les clients de la table par défaut partagent un écran et jouent
+     * pour tous les joueurs (option -DecranPartage, vrai par défaut) ; sinon ils
+     * sont spectateurs
+     */
+    private static boolean ecranPartage = true;
+    private static String noeud;
 
     public static void main(String[] args) {
-        // Lancement de la partie
-        //jeu = new Jeu(new String[]{"Guybrush", "Largo", "LeChuck", "Elaine"});
-        jeu = new Jeu(new String[]{"Guybrush", "Largo"});
+        // ports websocket et HTTP (options -Dport et -DportHttp)
+        int port = Integer.getInteger("port", 3232);
+        int portHttp = Integer.getInteger("portHttp", 3233);
+        // cluster : -Dcluster=hôte:port,hôte:port,... et -Dnoeud=<hôte:port de ce serveur>
+        String cluster = System.getProperty("cluster");
+        if (cluster != null) {
+            anneau = new AnneauCoherent(Arrays.asList(cluster.split(",")));
+            noeud = System.getProperty("noeud", "localhost:" + port);
+            if (!anneau.getNoeuds().contains(noeud)) {
+                throw new IllegalArgumentException("Le nœud " + noeud + " n'est pas dans le cluster " + cluster);
+            }
+        }
+        // délai de décision en secondes (option -DdelaiDecision=60, pas de délai par défaut)
+        delaiDecision = Integer.getInteger("delaiDecision", 0);
+        // hibernation des parties quand personne ne joue (option -DdelaiHibernation=300)
+        delaiHibernation = Integer.getInteger("delaiHibernation", 0);
+        if (delaiHibernation > 0) {
+            try {
+                hibernation = new Hibernation(Path.of("parties"), GameServer::surHibernation);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        // salon : sièges donnés à des bots après -DdelaiSalon secondes d'attente
+        reserve = new ReserveParties();
+        salon = new Salon(reserve, Integer.getInteger("delaiSalon", 30), TimeUnit.SECONDS,
+                (jeu, sieges) -> installer(jeu, sieges, null));
+        // partie lancée au démarrage pour les clients qui ne passent pas par le
+        // salon (option -Djoueurs=Guybrush,Largo,LeChuck ; vide : pas de partie)
+        String joueurs = System.getProperty("joueurs", "Guybrush,Largo");
+        ecranPartage = Boolean.parseBoolean(System.getProperty("ecranPartage", "true"));
+        if (!joueurs.isBlank()) {
+            tableParDefaut = installer(new Jeu(joueurs.split(",")), Map.of(), etatPublie);
+        }
+        Metriques.get().jauge(Metriques.FILE_ENTREES, () -> {
+            Table table = tableParDefaut;
+            Jeu jeu = table == null ? null : table.getJeu();
+            return jeu == null ? 0 : jeu.getTailleFileEntrees();
+        });
 
         // Prépare le serveur websocket
-        Server server = new Server("localhost", 3232, "/", WebSocketClient.class);
+        Server server = new Server("localhost", port, "/", WebSocketClient.class);
+        // Serveur HTTP de consultation des métriques
+        // et de l'interface graphique, si elle a été compilée
+        ServeurHttp serveurHttp;
+        try {
+            serveurHttp = new ServeurHttp("localhost", portHttp);
+            serveurHttp.servirEtat(etatPublie);
+            Path interfaceGraphique = Path.of("svelte", "public");
+            if (Files.isDirectory(interfaceGraphique)) {
+                serveurHttp.servirFichiers(interfaceGraphique);
+                System.out.println("Interface graphique : http://localhost:" + portHttp + "/");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // bots externes en TCP (option -DportBots=3234, désactivé par défaut)
+        ServeurBots serveurBots = null;
+        Integer portBots = Integer.getInteger("portBots");
+        if (portBots != null) {
+            try {
+                serveurBots = new ServeurBots("localhost", portBots, GameServer::table);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // un bot ne prend un siège qu'avec son jeton : ceux de la partie par
+            // défaut sont donnés sur la console du serveur
+            Table table = tableParDefaut;
+            if (table != null) {
+                for (Joueur j : table.getJeu().getJoueurs()) {
+                    System.out.println("Jeton de bot pour " + j.getNom() + " : " + table.creerJeton(j.getNom()));
+                }
+            }
+        }
+
+        // à l'arrêt du serveur, les parties en cours sont annulées
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            salon.arreter();
+            reserve.arreter();
+            try {
+                registre.arreter(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
 
         try (Scanner scanner = new Scanner(System.in)) {
             server.start();             // lance le serveur
-            new Thread(jeu).start();    // démarre le jeu (exécute la méthode Jeu.run() dans un nouveau thread)
+            serveurHttp.start();
+            if (serveurBots != null) {
+                serveurBots.start();
+            }
+            salon.demarrer();
 
-            while (true) {
-                jeu.addInput(scanner.nextLine());
+            while (scanner.hasNextLine()) {
+                addInput(scanner.nextLine());
             }
         } catch (DeploymentException e) {
             throw new RuntimeException(e);
         } finally {
+            if (serveurBots != null) {
+                serveurBots.stop();
+            }
+            serveurHttp.stop();
             server.stop();
         }
     }
 
     /**
-     * Ajoute une nouvelle instruction à la file d'instructions
-     * (cette méthode est appelée lorsqu'un message est reçue sur la websocket)
-     * 
+     * Ajoute une nouvelle instruction à la file d'instructions de la table par
+     * défaut, sans vérification (les messages reçus sur la websocket passent par
+     * {@link #recevoir})
+     *
      * @param message l'instruction à ajouter
      */
     public static void addInput(String message) {
-        jeu.addInput(message);
+        Table table = tableParDefaut;
+        Jeu partie = table == null ? null : table.partie();
+        if (partie != null) {
+            partie.addInput(message);
+        }
     }
 
     /**
-     * Met à jour l'état de la partie, et envoie le nouvel état à tous les clients connectés
-     * 
-     * @param etatJeu l'état de la partie
+     * @return une table d'après son identifiant (la table par défaut si
+     * l'identifiant est vide), ou `null`
      */
-    public static void setEtatJeu(String etatJeu) {
-        GameServer.etatJeu = etatJeu;
-        // Envoie l'état de la partie à tous les clients
+    private static Table table(String identifiant) {
+        return identifiant.isEmpty() ? tableParDefaut : tables.get(identifiant);
+    }
+
+    private static void configurer(Jeu jeu) {
+        jeu.setDelaiDecision(delaiDecision, TimeUnit.SECONDS);
+        if (hibernation != null) {
+            jeu.setHibernation(hibernation, delaiHibernation, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Installe une table pour une nouvelle partie, lance la partie et y place les
+     * clients (appelée par le salon quand une table est formée)
+     *
+     * @param sieges     nom du siège de chaque client, indexé par identifiant de session
+     * @param etatPublie état publié en HTTP pour la table (`null` si la table
+     *                   n'est pas publiée)
+     */
+    private static Table installer(Jeu jeu, Map<String, String> sieges, EtatPublie etatPublie) {
+        configurer(jeu);
+        if (anneau != null) {
+            jeu.attribuerIdentifiant(nouvelIdentifiant());
+        }
+        // un candidat déconnecté entre-temps ne répondrait jamais : son siège est
+        // donné à un bot avant le lancement de la partie
+        HashMap<String, ClientConnecte> places = new HashMap<>();
+        for (Map.Entry<String, String> siege : sieges.entrySet()) {
+            ClientConnecte client = clients.get(siege.getKey());
+            if (client != null) {
+                places.put(siege.getKey(), client);
+                continue;
+            }
+            for (Joueur j : jeu.getJoueurs()) {
+                if (j.getNom().equals(siege.getValue())) {
+                    j.setDecideur(new DecideurGlouton());
+                }
+            }
+            Metriques.get().compteur(Metriques.SALON_SIEGES_BOTS).incrementer();
+        }
+        Table table = new Table(jeu, etatPublie);
+        tables.put(table.getIdentifiant(), table);
+        registre.lancer(jeu);
+        for (Map.Entry<String, ClientConnecte> place : places.entrySet()) {
+            ClientConnecte client = place.getValue();
+            String siege = sieges.get(place.getKey());
+            client.attribuer(Audience.siege(siege));
+            try {
+                client.getSession().getBasicRemote().sendText(PARTIE + ":" + table.getIdentifiant() + ":"
+                        + table.creerJeton(siege));
+                table.rejoindre(client, null);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return un identifiant de partie que l'anneau du cluster associe à ce
+     * serveur (en moyenne autant de tirages que de nœuds)
+     */
+    private static String nouvelIdentifiant() {
+        String identifiant;
+        do {
+            identifiant = UUID.randomUUID().toString();
+        } while (!noeud.equals(anneau.noeud(identifiant)));
+        return identifiant;
+    }
+
+    /**
+     * Restaure et relance une partie hibernée
+     *
+     * @return la partie prête à recevoir une entrée, ou `null` si elle n'a pas pu
+     * être restaurée
+     */
+    static Jeu restaurer(String identifiant) {
         try {
-            for (Session session : clients) {
-                session.getBasicRemote().sendText(etatJeu);
+            Jeu restauree = hibernation.restaurer(identifiant);
+            configurer(restauree);
+            registre.lancer(restauree);
+            restauree.attendreChoix(5, TimeUnit.SECONDS);
+            return restauree;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static void surHibernation(Jeu hibernee) {
+        Table table = tables.get(hibernee.getIdentifiant());
+        if (table != null) {
+            table.surHibernation(hibernee);
+            System.out.println("Partie hibernée : " + hibernee.getIdentifiant());
+        }
+    }
+
+    /**
+     * Appelée par le thread d'une partie qui se termine : la table d'une partie
+     * terminée ou annulée est retirée du serveur
+     */
+    private static void surFinPartie(Jeu partie) {
+        if (partie.getEtat() == EtatPartie.HIBERNEE) {
+            return;
+        }
+        Table table = tables.remove(partie.getIdentifiant());
+        if (table != null) {
+            table.surFin(partie);
+        }
+    }
+
+    /**
+     * Traite un message texte reçu d'un client : changement de protocole,
+     * changement d'audience, inscription au salon ou instruction pour le jeu
+     */
+    public static void recevoir(Session session, String message) {
+        ClientConnecte client = clients.get(session.getId());
+        if (client == null || !limiter(client)) {
+            return;
+        }
+        Table table = client.getTable();
+        Audience audience = Audience.lire(message);
+        try {
+            if (audience != null) {
+                if (!client.demanderAudience(audience)) {
+                    Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+                } else if (table != null) {
+                    table.envoyerEtatCourant(client);
+                }
+            } else if (message.startsWith(SALON + ":")) {
+                String[] morceaux = message.split(":", 3);
+                if (table != null || morceaux.length < 3 || !inscrire(client, morceaux[1], morceaux[2])) {
+                    Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+                }
+            } else if (message.startsWith(REPRENDRE + ":") && table != null) {
+                if (!table.reprendre(client, message.substring(REPRENDRE.length() + 1))) {
+                    Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+                }
+            } else if (message.equals(PROTOCOLE_BINAIRE)) {
+                client.setProtocole(ClientConnecte.Protocole.BINAIRE);
+                if (table != null) {
+                    table.passerEnBinaire(client);
+                }
+            } else if (message.equals(PROTOCOLE_TEXTE) || message.equals(PROTOCOLE_GZIP)) {
+                client.setProtocole(message.equals(PROTOCOLE_GZIP) ? ClientConnecte.Protocole.GZIP
+                        : ClientConnecte.Protocole.TEXTE);
+                if (table != null) {
+                    table.envoyerEtat(client);
+                }
+            } else {
+                transmettre(client, message);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -73,27 +411,208 @@ public class GameServer {
     }
 
     /**
-     * Ajoute un nouveau client à la liste, et lui transmet l'état actuel de la partie
-     * (cette méthode est appelée lorsqu'une nouvelle connexion est établie)
-     * 
+     * Inscrit au salon un client qui n'est pas encore à une table
+     *
+     * @return faux si l'inscription n'est pas valide
+     */
+    private static boolean inscrire(ClientConnecte client, String nbJoueurs, String nom) {
+        if (salon == null || !nbJoueurs.matches("\\d")) {
+            return false;
+        }
+        return salon.inscrire(client.getId(), nom, Integer.parseInt(nbJoueurs));
+    }
+
+    /**
+     * Applique la limite de débit du client : un message en excès est ignoré, et
+     * la connexion est fermée si le client continue d'envoyer sans attendre.
+     *
+     * @return vrai si le message peut être traité
+     */
+    private static boolean limiter(ClientConnecte client) {
+        LimiteurDebit limiteur = client.getLimiteur();
+        if (limiteur.autoriser()) {
+            return true;
+        }
+        Metriques.get().compteur(Metriques.ENTREES_LIMITEES).incrementer();
+        if (limiteur.getNbRefusConsecutifs() == ClientConnecte.REFUS_AVANT_FERMETURE) {
+            Metriques.get().compteur(Metriques.SESSIONS_FERMEES).incrementer();
+            try {
+                client.getSession().close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY,
+                        "Trop de messages"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transmet au jeu l'instruction d'un client, si elle vient du siège du joueur
+     * dont c'est le tour (ou de la table) et qu'elle répond au choix en cours. Les
+     * autres instructions (et celles des clients qui attendent dans le salon) sont
+     * ignorées sans atteindre la file du jeu ni provoquer de nouveau prompt.
+     */
+    private static void transmettre(ClientConnecte client, String entree) {
+        Audience audience = client.getAudience();
+        Table table = client.getTable();
+        if (audience.getType() == Audience.Type.SPECTATEUR || table == null) {
+            Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+            return;
+        }
+        Jeu partie = table.partie();
+        if (partie != null) {
+            partie.proposerEntree(audience.getType() == Audience.Type.SIEGE ? audience.getNomJoueur() : null, entree);
+        }
+    }
+
+    /**
+     * Traite un message binaire reçu d'un client (voir {@link ProtocoleBinaire})
+     */
+    public static void recevoir(Session session, ByteBuffer message) {
+        try {
+            ClientConnecte client = clients.get(session.getId());
+            Table table = client == null ? null : client.getTable();
+            Jeu partie = table == null ? null : table.partie();
+            if (partie != null && limiter(client)) {
+                transmettre(client, ProtocoleBinaire.decoderEntree(partie, message));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Message binaire ignoré (client " + session.getId() + ") : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Met à jour l'état de la table par défaut, et envoie le nouvel état à ses
+     * clients
+     *
+     * @param etatJeu l'état de la partie
+     */
+    public static void setEtatJeu(String etatJeu) {
+        Table table = tableParDefaut;
+        if (table != null) {
+            table.diffuser(Vues.identiques(etatJeu), null);
+        }
+    }
+
+    /**
+     * Met à jour l'état d'une partie, et envoie le nouvel état aux clients de sa
+     * table (voir {@link Table#diffuser}). Une partie qui n'a pas de table sur ce
+     * serveur (tournoi, tests) n'est pas diffusée.
+     *
+     * @param jeu         la partie
+     * @param etatJeu     les vues de l'état de la partie en JSON
+     * @param etatBinaire l'état de la partie pour le protocole binaire (`null` s'il
+     *                    n'est pas disponible)
+     */
+    public static void setEtatJeu(Jeu jeu, Vues etatJeu, ProtocoleBinaire.Etat etatBinaire) {
+        Table table = tables.get(jeu.getIdentifiant());
+        if (table != null) {
+            table.diffuser(etatJeu, etatBinaire);
+        }
+    }
+
+    /**
+     * Ajoute un nouveau client à la liste. Un client qui donne un nombre de
+     * joueurs et un nom est inscrit au salon ; les autres rejoignent la partie
+     * demandée (ou la table par défaut) et reçoivent son état actuel (cette méthode est appelée lorsqu'une
+     * nouvelle connexion est établie). Ils y sont spectateurs, sauf à la table
+     * par défaut en écran partagé. La connexion d'un client qui demande une
+     * partie inconnue est fermée.
+     *
      * @param session la session du nouveau client
      */
     public static void addClient(Session session) {
-        GameServer.clients.add(session);
+        ClientConnecte client = new ClientConnecte(session);
+        Map<String, List<String>> parametres = parametres(session);
+        String protocole = parametre(parametres, "protocole");
+        if ("binaire".equals(protocole)) {
+            client.setProtocole(ClientConnecte.Protocole.BINAIRE);
+        } else if ("gzip".equals(protocole)) {
+            client.setProtocole(ClientConnecte.Protocole.GZIP);
+        }
+        GameServer.clients.put(session.getId(), client);
+        String nbJoueurs = parametre(parametres, "joueurs");
+        if (nbJoueurs != null) {
+            if (!inscrire(client, nbJoueurs, parametre(parametres, "nom"))) {
+                Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+            }
+            return;
+        }
+        String partie = parametre(parametres, PARTIE);
+        Table table = partie == null ? tableParDefaut : tables.get(partie);
+        if (table == null) {
+            if (partie != null) {
+                // rien à suivre : la connexion est fermée (un relais libère
+                // aussitôt son abonnement)
+                Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+                try {
+                    session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Partie inconnue"));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            return;
+        }
+        if (table == tableParDefaut && ecranPartage) {
+            client.attribuer(Audience.TABLE);
+        }
+        String jeton = parametre(parametres, JETON);
+        if (jeton != null) {
+            String siege = table.siegeDuJeton(jeton);
+            if (siege != null) {
+                client.attribuer(Audience.siege(siege));
+            } else {
+                Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+            }
+        }
+        String audience = parametre(parametres, "audience");
+        if (audience != null && Audience.lire(audience) != null && !client.demanderAudience(Audience.lire(audience))) {
+            Metriques.get().compteur(Metriques.ENTREES_REJETEES).incrementer();
+        }
         try {
-            session.getBasicRemote().sendText(etatJeu);
+            table.rejoindre(client, parametre(parametres, REPRENDRE));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * @return les paramètres de l'adresse de connexion d'une session (Tyrus ne
+     * donne dans {@link Session#getRequestParameterMap()} que ceux du chemin)
+     */
+    public static Map<String, List<String>> parametres(Session session) {
+        Map<String, List<String>> parametres = new HashMap<>(session.getRequestParameterMap());
+        String requete = session.getQueryString();
+        if (requete != null && !requete.isEmpty()) {
+            for (String paire : requete.split("&")) {
+                int egal = paire.indexOf('=');
+                String nom = URLDecoder.decode(egal < 0 ? paire : paire.substring(0, egal), StandardCharsets.UTF_8);
+                String valeur = egal < 0 ? "" : URLDecoder.decode(paire.substring(egal + 1), StandardCharsets.UTF_8);
+                parametres.computeIfAbsent(nom, k -> new ArrayList<>()).add(valeur);
+            }
+        }
+        return parametres;
+    }
+
+    private static String parametre(Map<String, List<String>> parametres, String nom) {
+        List<String> valeurs = parametres == null ? null : parametres.get(nom);
+        return valeurs == null || valeurs.isEmpty() ? null : valeurs.get(0);
+    }
+
     /**
      * Retire un client de la liste
      * (cette méthode est appelée lorsqu'une connexion est fermée)
-     * 
+     *
      * @param session la session du client à retirer
      */
     public static void removeClient(Session session) {
-        GameServer.clients.remove(session);
+        ClientConnecte client = GameServer.clients.remove(session.getId());
+        if (client != null && client.getTable() != null) {
+            client.getTable().quitter(client);
+        }
+        if (salon != null) {
+            salon.desinscrire(session.getId());
+        }
+        Metriques.get().supprimer(Metriques.DIFFUSION_LATENCE + "." + session.getId());
     }
 }
@@ -0,0 +1,64 @@
+package fr.umontpellier.iut.gui;
+
+import java.util.ArrayDeque;
+
+/**
+ * Dernières diffusions de l'état de la partie, avec leur numéro et le nombre de
+ * messages de log qu'elles contenaient. Un client qui se reconnecte en donnant
+ * le numéro du dernier état reçu peut ainsi ne recevoir que ce qu'il a manqué ;
+ * au-delà de la capacité de l'historique, il reçoit l'état complet.
+ */
+public class HistoriqueDiffusions {
+    private static class Diffusion {
+        private final int numero;
+        private final int nbLogs;
+
+        private Diffusion(int numero, int nbLogs) {
+            this.numero = numero;
+            this.nbLogs = nbLogs;
+        }
+    }
+
+    private final int capacite;
+    private final ArrayDeque<Diffusion> diffusions;
+
+    public HistoriqueDiffusions(int capacite) {
+        this.capacite = capacite;
+        diffusions = new ArrayDeque<>(capacite);
+    }
+
+    /**
+     * Ajoute une diffusion (les numéros sont croissants) et oublie la plus
+     * ancienne si l'historique est plein
+     */
+    public synchronized void ajouter(int numero, int nbLogs) {
+        if (diffusions.size() == capacite) {
+            diffusions.removeFirst();
+        }
+        diffusions.addLast(new Diffusion(numero, nbLogs));
+    }
+
+    /**
+     * @return le numéro de la dernière diffusion (0 s'il n'y en a pas eu)
+     */
+    public synchronized int getDernierNumero() {
+        return diffusions.isEmpty() ? 0 : diffusions.getLast().numero;
+    }
+
+    /**
+     * @return le nombre de messages de log de la diffusion, ou -1 si elle n'est
+     * plus (ou pas) dans l'historique
+     */
+    public synchronized int getNbLogs(int numero) {
+        if (diffusions.isEmpty() || numero < diffusions.getFirst().numero || numero > diffusions.getLast().numero) {
+            return -1;
+        }
+        // les numéros sont croissants mais pas forcément consécutifs
+        for (Diffusion d : diffusions) {
+            if (d.numero == numero) {
+                return d.nbLogs;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,49 @@
+package fr.umontpellier.iut.gui;
+
+/**
+ * Limiteur de débit à seau de jetons : chaque message consomme un jeton, le
+ * seau contient au plus {@code capacite} jetons et se remplit de
+ * {@code jetonsParSeconde} jetons par seconde. Une rafale courte est donc
+ * acceptée, mais pas un flot continu plus rapide que le remplissage.
+ */
+public class LimiteurDebit {
+    private final double capacite;
+    private final double jetonsParNano;
+    private double jetons;
+    private long dateRemplissage;
+    /**
+     * Nombre de messages refusés depuis le dernier message accepté
+     */
+    private int nbRefusConsecutifs;
+
+    public LimiteurDebit(int capacite, double jetonsParSeconde) {
+        this.capacite = capacite;
+        jetonsParNano = jetonsParSeconde / 1e9;
+        jetons = capacite;
+        dateRemplissage = System.nanoTime();
+    }
+
+    public boolean autoriser() {
+        return autoriser(System.nanoTime());
+    }
+
+    /**
+     * @param maintenant date en nanosecondes (comme {@link System#nanoTime()})
+     * @return vrai si un jeton était disponible (il est consommé)
+     */
+    public synchronized boolean autoriser(long maintenant) {
+        jetons = Math.min(capacite, jetons + (maintenant - dateRemplissage) * jetonsParNano);
+        dateRemplissage = maintenant;
+        if (jetons < 1) {
+            nbRefusConsecutifs++;
+            return false;
+        }
+        jetons--;
+        nbRefusConsecutifs = 0;
+        return true;
+    }
+
+    public synchronized int getNbRefusConsecutifs() {
+        return nbRefusConsecutifs;
+    }
+}
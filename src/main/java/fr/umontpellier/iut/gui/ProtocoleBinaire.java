@@ -0,0 +1,412 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.rails.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Protocole binaire compact, proposé en plus des messages JSON.
+ * <p>
+ * Un client le demande en envoyant le message texte {@code "protocole:binaire"}
+ * (et revient au JSON avec {@code "protocole:texte"}). Il reçoit alors un
+ * dictionnaire qui associe un numéro à chaque couleur, ville et route, puis des
+ * messages binaires d'état à la place des messages JSON.
+ * <p>
+ * Les entiers positifs sont codés en varint (7 bits par octet, le bit de poids
+ * fort indique qu'un octet suit), les chaînes de caractères par leur longueur en
+ * octets (varint) suivie de leur contenu en UTF-8. Le premier octet de chaque
+ * message indique son type.
+ * <p>
+ * Messages du serveur :
+ * <ul>
+ * <li>{@code DICTIONNAIRE} : flux des diffusions de la table (à donner avec le
+ * numéro de diffusion pour une reprise, voir {@link GameServer#REPRENDRE}),
+ * couleurs de wagon (noms), villes (noms), routes
+ * (nom, numéros des deux villes, longueur, couleur, type, locomotives imposées)
+ * <li>{@code ETAT} : numéro de diffusion (voir {@link HistoriqueDiffusions}),
+ * instruction, peutPasser (octet), boutons ; numéro du joueur
+ * courant ; pour chaque joueur : nom, couleur, score, gares, wagons, un octet
+ * qui indique si sa main est visible par l'audience du client (voir
+ * {@link Audience}), puis si elle l'est le nombre de cartes wagon de chaque
+ * couleur en main, et sinon le nombre total de cartes en main et de
+ * destinations ; nombre de cartes wagon de chaque couleur posées ; si la main
+ * est visible, destinations (ville1, ville2, valeur) ; pour chaque route puis
+ * chaque ville : numéro du propriétaire + 1 (0 si libre) ; taille de la pile de
+ * cartes wagon et de la pile de destinations, nombre de cartes de chaque couleur
+ * dans la défausse, cartes visibles (numéro de couleur, 255 si vide) ; valeurs
+ * des routes (numéro, valeur) et évaluation des tunnels (numéro, coût moyen et
+ * probabilité en float) pour le joueur courant, vides si l'audience ne voit pas
+ * sa main ; nombre total de messages de log, numéro du premier message envoyé et
+ * messages à partir de ce numéro.
+ * </ul>
+ * Messages du client, traduits en instructions texte habituelles :
+ * <ul>
+ * <li>{@code TEXTE} : une instruction texte quelconque
+ * <li>{@code ROUTE} / {@code VILLE} : numéro de la route ou de la ville
+ * <li>{@code CARTE} : numéro de la couleur
+ * <li>{@code PASSER} : aucune donnée
+ * <li>{@code ACTION} : 0 (route) ou 1 (ville), numéro de la cible, nombre de
+ * cartes de chaque couleur pour le paiement (voir {@link ActionComposee})
+ * </ul>
+ */
+public class ProtocoleBinaire {
+    public static final byte DICTIONNAIRE = 1;
+    public static final byte ETAT = 2;
+
+    public static final byte TEXTE = 1;
+    public static final byte ROUTE = 2;
+    public static final byte VILLE = 3;
+    public static final byte CARTE = 4;
+    public static final byte PASSER = 5;
+    public static final byte ACTION = 6;
+
+    private static final int CARTE_ABSENTE = 255;
+
+    /**
+     * État de la partie au moment d'un prompt. Le codage dépend du premier
+     * message de log à envoyer et de l'audience du client, il est mémorisé pour
+     * chaque couple de valeurs.
+     * <p>
+     * Le codage lit la partie en cours : l'état d'une partie diffusée est donc
+     * figé par le thread de la partie (voir {@link #figer}) avant d'être codé
+     * pour les clients par les threads des connexions.
+     */
+    public static class Etat {
+        /**
+         * Partie en cours (`null` une fois l'état figé)
+         */
+        private Jeu jeu;
+        private final String instruction;
+        private final Collection<String> boutons;
+        private final boolean peutPasser;
+        /**
+         * Partie de l'état qui précède le log, codée pour chaque audience
+         */
+        private final HashMap<Audience, byte[]> corps = new HashMap<>();
+        /**
+         * Copie du log (`null` tant que l'état n'est pas figé)
+         */
+        private List<String> log;
+        private final HashMap<Audience, HashMap<Integer, ByteBuffer>> codages = new HashMap<>();
+        /**
+         * Numéro de diffusion (0 tant qu'il n'est pas fixé)
+         */
+        private int numero;
+
+        public Etat(Jeu jeu, String instruction, Collection<String> boutons, boolean peutPasser) {
+            this.jeu = jeu;
+            this.instruction = instruction;
+            this.boutons = new ArrayList<>(boutons);
+            this.peutPasser = peutPasser;
+        }
+
+        public synchronized int getNbLogs() {
+            return log().size();
+        }
+
+        public synchronized int getNumero() {
+            return numero;
+        }
+
+        /**
+         * Fixe le numéro de diffusion (avant le premier codage)
+         */
+        synchronized void numeroter(int numero) {
+            this.numero = numero;
+        }
+
+        /**
+         * Code l'état pour les audiences données et le détache de la partie (à
+         * appeler par le thread de la partie) : les autres audiences reçoivent
+         * ensuite l'état des spectateurs.
+         */
+        public synchronized void figer(Collection<Audience> audiences) {
+            if (jeu == null) {
+                return;
+            }
+            corps(Audience.SPECTATEUR);
+            for (Audience a : audiences) {
+                corps(a);
+            }
+            log = Collections.unmodifiableList(new ArrayList<>(jeu.getLog()));
+            jeu = null;
+        }
+
+        private byte[] corps(Audience audience) {
+            if (jeu == null) {
+                return corps.getOrDefault(audience, corps.get(Audience.SPECTATEUR));
+            }
+            return corps.computeIfAbsent(audience, a -> coderCorps(jeu, a, instruction, boutons, peutPasser));
+        }
+
+        private List<String> log() {
+            return jeu == null ? log : jeu.getLog();
+        }
+
+        /**
+         * @param audience  audience du client
+         * @param depuisLog numéro du premier message de log à inclure
+         * @return le message (à dupliquer avant de le lire ou de l'envoyer)
+         */
+        public synchronized ByteBuffer coder(Audience audience, int depuisLog) {
+            Audience codee = jeu == null && !corps.containsKey(audience) ? Audience.SPECTATEUR : audience;
+            return codages.computeIfAbsent(codee, a -> new HashMap<>())
+                    .computeIfAbsent(depuisLog, d -> coderEtat(numero, corps(codee), log(), d));
+        }
+    }
+
+    /**
+     * @param flux flux des diffusions de la table (voir {@link Table#getFlux()})
+     * @return le message DICTIONNAIRE de la partie
+     */
+    public static ByteBuffer coderDictionnaire(Jeu jeu, String flux) {
+        Sortie sortie = new Sortie();
+        sortie.write(DICTIONNAIRE);
+        sortie.texte(flux);
+        sortie.varint(CouleurWagon.values().length);
+        for (CouleurWagon c : CouleurWagon.values()) {
+            sortie.texte(c.name());
+        }
+        List<Ville> villes = jeu.getVilles();
+        Map<Ville, Integer> numerosVilles = numeros(villes);
+        sortie.varint(villes.size());
+        for (Ville v : villes) {
+            sortie.texte(v.getNom());
+        }
+        sortie.varint(jeu.getRoutes().size());
+        for (Route r : jeu.getRoutes()) {
+            sortie.texte(r.getNom());
+            sortie.varint(numerosVilles.get(r.getVille1()));
+            sortie.varint(numerosVilles.get(r.getVille2()));
+            sortie.varint(r.getLongueur());
+            sortie.write(r.getCouleur().ordinal());
+            sortie.write(r.getType().ordinal());
+            sortie.varint(r.getNbLocomotivesImposees());
+        }
+        return sortie.buffer();
+    }
+
+    /**
+     * @return le message ETAT : numéro de diffusion, corps (voir
+     * {@link #coderCorps}) et messages de log à partir de {@code depuisLog}
+     */
+    static ByteBuffer coderEtat(int numero, byte[] corps, List<String> log, int depuisLog) {
+        Sortie sortie = new Sortie();
+        sortie.write(ETAT);
+        sortie.varint(numero);
+        sortie.write(corps, 0, corps.length);
+        int debut = Math.min(Math.max(depuisLog, 0), log.size());
+        sortie.varint(log.size());
+        sortie.varint(debut);
+        for (int i = debut; i < log.size(); i++) {
+            sortie.texte(log.get(i));
+        }
+        return sortie.buffer();
+    }
+
+    /**
+     * @return la partie du message ETAT comprise entre le numéro de diffusion et
+     * le log, telle que la voit l'audience
+     */
+    static byte[] coderCorps(Jeu jeu, Audience audience, String instruction, Collection<String> boutons,
+                             boolean peutPasser) {
+        Sortie sortie = new Sortie();
+        sortie.texte(instruction);
+        sortie.write(peutPasser ? 1 : 0);
+        sortie.varint(boutons.size());
+        for (String b : boutons) {
+            sortie.texte(b);
+        }
+
+        List<Joueur> joueurs = jeu.getJoueurs();
+        Map<Joueur, Integer> numerosJoueurs = numeros(joueurs);
+        sortie.varint(numerosJoueurs.getOrDefault(jeu.getJoueurCourant(), 0));
+        sortie.varint(joueurs.size());
+        for (Joueur j : joueurs) {
+            sortie.texte(j.getNom());
+            sortie.write(j.getCouleur().ordinal());
+            sortie.varint(j.getScore());
+            sortie.varint(j.getNbGares());
+            sortie.varint(j.getNbWagons());
+            boolean visible = audience.voit(j.getNom());
+            sortie.write(visible ? 1 : 0);
+            if (!visible) {
+                sortie.varint(j.getCartesWagon().size());
+                sortie.varint(j.getDestinations().size());
+                sortie.comptes(j.getCartesWagonPosees());
+                continue;
+            }
+            sortie.comptes(j.getCartesWagon());
+            sortie.comptes(j.getCartesWagonPosees());
+            sortie.varint(j.getDestinations().size());
+            for (Destination d : j.getDestinations()) {
+                sortie.texte(d.getVille1());
+                sortie.texte(d.getVille2());
+                sortie.varint(d.getValeur());
+            }
+        }
+
+        sortie.varint(jeu.getRoutes().size());
+        for (Route r : jeu.getRoutes()) {
+            sortie.varint(r.getProprietaire() == null ? 0 : numerosJoueurs.get(r.getProprietaire()) + 1);
+        }
+        sortie.varint(jeu.getVilles().size());
+        for (Ville v : jeu.getVilles()) {
+            sortie.varint(v.getProprietaire() == null ? 0 : numerosJoueurs.get(v.getProprietaire()) + 1);
+        }
+
+        sortie.varint(jeu.getPileCartesWagon().size());
+        sortie.varint(jeu.getPileDestinations().size());
+        sortie.comptes(jeu.getDefausseCartesWagon());
+        sortie.varint(jeu.getCartesWagonVisibles().size());
+        for (CouleurWagon c : jeu.getCartesWagonVisibles()) {
+            sortie.write(c == null ? CARTE_ABSENTE : c.ordinal());
+        }
+
+        Map<Route, Integer> numerosRoutes = numeros(jeu.getRoutes());
+        Joueur courant = jeu.getJoueurCourant();
+        if (courant != null && !audience.voit(courant.getNom())) {
+            courant = null;
+        }
+        Map<Route, Integer> valeurs = courant == null ? Collections.emptyMap() : jeu.getValeursRoutes(courant);
+        sortie.varint(valeurs.size());
+        for (Map.Entry<Route, Integer> e : valeurs.entrySet()) {
+            sortie.varint(numerosRoutes.get(e.getKey()));
+            sortie.varint(e.getValue());
+        }
+        ArrayList<Tunnel> tunnels = new ArrayList<>();
+        if (courant != null) {
+            for (Route r : jeu.getRoutes()) {
+                if (r.getProprietaire() == null && r.getType() == Route.Type.TUNNEL) {
+                    tunnels.add((Tunnel) r);
+                }
+            }
+        }
+        sortie.varint(tunnels.size());
+        for (Tunnel t : tunnels) {
+            EvaluateurTunnel.Evaluation e = jeu.evaluerTunnel(t, courant);
+            sortie.varint(numerosRoutes.get(t));
+            sortie.flottant((float) e.getCoutSupplementaireMoyen());
+            sortie.flottant((float) e.getProbabiliteSucces());
+        }
+        return sortie.toByteArray();
+    }
+
+    /**
+     * Traduit un message binaire d'un client en instruction texte pour le jeu.
+     *
+     * @throws IllegalArgumentException si le message est mal formé
+     */
+    public static String decoderEntree(Jeu jeu, ByteBuffer message) {
+        try {
+            byte type = message.get();
+            switch (type) {
+                case TEXTE:
+                    return lireTexte(message);
+                case ROUTE:
+                    return jeu.getRoutes().get(lireVarint(message)).getNom();
+                case VILLE:
+                    return jeu.getVilles().get(lireVarint(message)).getNom();
+                case CARTE:
+                    return CouleurWagon.values()[message.get() & 0xFF].name();
+                case PASSER:
+                    return "";
+                case ACTION:
+                    boolean ville = message.get() != 0;
+                    int numero = lireVarint(message);
+                    String cible = ville ? jeu.getVilles().get(numero).getNom() : jeu.getRoutes().get(numero).getNom();
+                    ArrayList<CouleurWagon> cartes = new ArrayList<>();
+                    for (CouleurWagon c : CouleurWagon.values()) {
+                        int nombre = lireVarint(message);
+                        if (nombre < 0 || nombre > ActionComposee.NB_EXEMPLAIRES_MAX) {
+                            throw new IllegalArgumentException("Nombre de cartes invalide : " + nombre);
+                        }
+                        cartes.addAll(Collections.nCopies(nombre, c));
+                    }
+                    return new ActionComposee(cible, cartes).toString();
+                default:
+                    throw new IllegalArgumentException("Type de message inconnu : " + type);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Message binaire mal formé", e);
+        }
+    }
+
+    public static int lireVarint(ByteBuffer buffer) {
+        int valeur = 0;
+        for (int decalage = 0; decalage < 35; decalage += 7) {
+            byte b = buffer.get();
+            valeur |= (b & 0x7F) << decalage;
+            if ((b & 0x80) == 0) {
+                return valeur;
+            }
+        }
+        throw new IllegalArgumentException("Varint trop long");
+    }
+
+    public static String lireTexte(ByteBuffer buffer) {
+        int longueur = lireVarint(buffer);
+        if (longueur > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] octets = new byte[longueur];
+        buffer.get(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    private static <T> Map<T, Integer> numeros(List<T> elements) {
+        IdentityHashMap<T, Integer> numeros = new IdentityHashMap<>();
+        for (int i = 0; i < elements.size(); i++) {
+            numeros.put(elements.get(i), i);
+        }
+        return numeros;
+    }
+
+    /**
+     * Flux d'écriture avec les codages du protocole
+     */
+    static class Sortie extends ByteArrayOutputStream {
+        Sortie() {
+            super(1024);
+        }
+
+        void varint(int valeur) {
+            while ((valeur & ~0x7F) != 0) {
+                write((valeur & 0x7F) | 0x80);
+                valeur >>>= 7;
+            }
+            write(valeur);
+        }
+
+        void texte(String s) {
+            byte[] octets = s.getBytes(StandardCharsets.UTF_8);
+            varint(octets.length);
+            write(octets, 0, octets.length);
+        }
+
+        void flottant(float f) {
+            int bits = Float.floatToIntBits(f);
+            for (int i = 24; i >= 0; i -= 8) {
+                write(bits >>> i);
+            }
+        }
+
+        void comptes(List<CouleurWagon> cartes) {
+            for (int n : CouleurWagon.compter(cartes, new int[CouleurWagon.values().length])) {
+                varint(n);
+            }
+        }
+
+        /**
+         * @return le message, dans un buffer qui a exactement sa taille (voir
+         * {@link ClientConnecte#envoyer(ByteBuffer)})
+         */
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(toByteArray());
+        }
+    }
+}
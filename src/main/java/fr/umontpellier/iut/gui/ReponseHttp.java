@@ -0,0 +1,103 @@
+package fr.umontpellier.iut.gui;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Réponses de {@link ServeurHttp} pour un contenu déjà préparé
+ * ({@link RessourcesStatiques}, {@link EtatPublie}) : la représentation
+ * (brute ou compressée) est choisie selon l'en-tête {@code Accept-Encoding},
+ * chaque représentation a son ETag fort, et une requête qui renvoie l'ETag reçoit
+ * une réponse 304.
+ */
+final class ReponseHttp {
+    private ReponseHttp() {
+    }
+
+    /**
+     * @return `true` si la requête est un GET ou un HEAD (sinon la réponse 405 est
+     * envoyée)
+     */
+    static boolean estLecture(HttpExchange echange) throws IOException {
+        String methode = echange.getRequestMethod();
+        if (methode.equals("GET") || methode.equals("HEAD")) {
+            return true;
+        }
+        echange.getResponseHeaders().set("Allow", "GET, HEAD");
+        echange.sendResponseHeaders(405, -1);
+        return false;
+    }
+
+    /**
+     * Répond à une lecture avec la meilleure représentation acceptée par le client
+     *
+     * @param type    valeur de l'en-tête {@code Content-Type}
+     * @param version identifiant du contenu, complété par l'encodage dans l'ETag
+     * @param cache   valeur de l'en-tête {@code Cache-Control}
+     * @param brut    contenu non compressé (non modifié)
+     * @param gzip    contenu compressé en gzip (`null` s'il n'existe pas)
+     * @param brotli  contenu compressé en brotli (`null` s'il n'existe pas)
+     */
+    static void envoyer(HttpExchange echange, String type, String version, String cache, ByteBuffer brut,
+                        ByteBuffer gzip, ByteBuffer brotli) throws IOException {
+        String encodages = echange.getRequestHeaders().getFirst("Accept-Encoding");
+        ByteBuffer corps = brut;
+        String encodage = null;
+        if (brotli != null && accepte(encodages, "br")) {
+            corps = brotli;
+            encodage = "br";
+        } else if (gzip != null && accepte(encodages, "gzip")) {
+            corps = gzip;
+            encodage = "gzip";
+        }
+        String etag = "\"" + version + (encodage == null ? "" : "-" + encodage) + "\"";
+
+        Headers entetes = echange.getResponseHeaders();
+        entetes.set("ETag", etag);
+        entetes.set("Vary", "Accept-Encoding");
+        entetes.set("Cache-Control", cache);
+        String siDifferent = echange.getRequestHeaders().getFirst("If-None-Match");
+        if (siDifferent != null && (siDifferent.contains(etag) || siDifferent.trim().equals("*"))) {
+            echange.sendResponseHeaders(304, -1);
+            return;
+        }
+        entetes.set("Content-Type", type);
+        if (encodage != null) {
+            entetes.set("Content-Encoding", encodage);
+        }
+        if (echange.getRequestMethod().equals("HEAD")) {
+            entetes.set("Content-Length", Integer.toString(corps.remaining()));
+            echange.sendResponseHeaders(200, -1);
+            return;
+        }
+        echange.sendResponseHeaders(200, corps.remaining());
+        // le HttpServer du JDK ne donne accès qu'à un flux de sortie
+        WritableByteChannel canal = Channels.newChannel(echange.getResponseBody());
+        ByteBuffer copie = corps.duplicate();
+        while (copie.hasRemaining()) {
+            canal.write(copie);
+        }
+    }
+
+    /**
+     * @param encodages valeur de l'en-tête {@code Accept-Encoding} (peut être `null`)
+     * @return `true` si l'encodage est accepté (cité sans {@code q=0})
+     */
+    static boolean accepte(String encodages, String encodage) {
+        if (encodages == null) {
+            return false;
+        }
+        for (String e : encodages.split(",")) {
+            String[] morceaux = e.trim().split(";");
+            if (morceaux[0].trim().equalsIgnoreCase(encodage)) {
+                return morceaux.length == 1 || !morceaux[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
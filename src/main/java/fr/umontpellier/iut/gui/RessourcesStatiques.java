@@ -0,0 +1,219 @@
+package fr.umontpellier.iut.gui;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Fichiers de l'interface graphique (dossier {@code svelte/public}) servis par
+ * {@link ServeurHttp}.
+ * <p>
+ * Tout est préparé au démarrage : les fichiers sont lus en mémoire, les fichiers
+ * texte sont compressés en gzip, et chaque fichier reçoit une empreinte SHA-256
+ * qui sert d'ETag. Une requête ne fait donc que choisir une représentation et
+ * l'écrire. Les fichiers sont copiés plutôt que projetés en mémoire : un fichier
+ * modifié sur le disque (nouveau build de l'interface) ne change pas ce qui est
+ * servi, ni les empreintes, jusqu'au redémarrage.
+ * <p>
+ * Les pages HTML sont réécrites pour que leurs liens vers les autres fichiers
+ * portent l'empreinte ({@code bundle.js?v=<empreinte>}) : ces adresses ne
+ * changent jamais de contenu et sont envoyées avec un en-tête de cache
+ * {@code immutable}, les autres sont revalidées par leur ETag (réponse 304).
+ * <p>
+ * Le JDK ne sait pas compresser en brotli : un fichier {@code <nom>.br} déjà
+ * compressé (par l'outil de build par exemple) est utilisé s'il existe.
+ */
+public class RessourcesStatiques {
+    private static final String CACHE_IMMUABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDER = "no-cache";
+    private static final Pattern LIEN = Pattern.compile("(href|src)=(['\"])([^'\"?#:]+)\\2");
+    private static final Map<String, String> TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "application/javascript; charset=utf-8"),
+            Map.entry("map", "application/json; charset=utf-8"),
+            Map.entry("json", "application/json; charset=utf-8"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff2", "font/woff2"));
+
+    /**
+     * Fichier prêt à être envoyé, avec ses versions compressées
+     */
+    static class Ressource {
+        private final String type;
+        private final String empreinte;
+        private final ByteBuffer brut;
+        private final ByteBuffer gzip;
+        private final ByteBuffer brotli;
+
+        Ressource(String type, String empreinte, ByteBuffer brut, ByteBuffer gzip, ByteBuffer brotli) {
+            this.type = type;
+            this.empreinte = empreinte;
+            this.brut = brut;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
+
+        String getEmpreinte() {
+            return empreinte;
+        }
+
+        /**
+         * @return la version de l'empreinte ajoutée aux liens
+         */
+        String getVersion() {
+            return empreinte.substring(0, 16);
+        }
+    }
+
+    /**
+     * Fichiers indexés par chemin (commençant par {@code /})
+     */
+    private final Map<String, Ressource> ressources = new HashMap<>();
+
+    public RessourcesStatiques(Path racine) throws IOException {
+        List<Path> fichiers;
+        try (Stream<Path> chemins = Files.walk(racine)) {
+            fichiers = chemins.filter(Files::isRegularFile)
+                    .filter(f -> !f.getFileName().toString().endsWith(".br"))
+                    .collect(Collectors.toList());
+        }
+        // les pages HTML en dernier : leurs liens utilisent l'empreinte des autres fichiers
+        for (Path f : fichiers) {
+            if (!extension(f).equals("html")) {
+                ressources.put(chemin(racine, f), charger(f, null));
+            }
+        }
+        for (Path f : fichiers) {
+            if (extension(f).equals("html")) {
+                String html = Files.readString(f, StandardCharsets.UTF_8);
+                ressources.put(chemin(racine, f), charger(f, versionnerLiens(html, chemin(racine, f))));
+            }
+        }
+    }
+
+    Ressource get(String chemin) {
+        return ressources.get(chemin.endsWith("/") ? chemin + "index.html" : chemin);
+    }
+
+    /**
+     * Répond à une requête GET ou HEAD
+     */
+    public void traiter(HttpExchange echange) throws IOException {
+        try {
+            if (!ReponseHttp.estLecture(echange)) {
+                return;
+            }
+            Ressource ressource = get(echange.getRequestURI().getPath());
+            if (ressource == null) {
+                echange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String query = echange.getRequestURI().getRawQuery();
+            ReponseHttp.envoyer(echange, ressource.type, ressource.empreinte,
+                    ("v=" + ressource.getVersion()).equals(query) ? CACHE_IMMUABLE : CACHE_REVALIDER,
+                    ressource.brut, ressource.gzip, ressource.brotli);
+        } finally {
+            echange.close();
+        }
+    }
+
+    /**
+     * Prépare un fichier
+     *
+     * @param contenu contenu à servir à la place de celui du fichier (`null` pour
+     *                servir le fichier tel qu'il est au démarrage)
+     */
+    private Ressource charger(Path fichier, String contenu) throws IOException {
+        ByteBuffer brut = ByteBuffer.wrap(contenu != null ? contenu.getBytes(StandardCharsets.UTF_8)
+                : Files.readAllBytes(fichier));
+        String type = TYPES.getOrDefault(extension(fichier), "application/octet-stream");
+        ByteBuffer gzip = null;
+        if (estCompressible(type)) {
+            gzip = compresser(brut.duplicate());
+            if (gzip.remaining() >= brut.remaining()) {
+                gzip = null;
+            }
+        }
+        Path fichierBrotli = fichier.resolveSibling(fichier.getFileName() + ".br");
+        ByteBuffer brotli = contenu == null && Files.isRegularFile(fichierBrotli)
+                ? ByteBuffer.wrap(Files.readAllBytes(fichierBrotli)).asReadOnlyBuffer() : null;
+        return new Ressource(type, empreinte(brut.duplicate()), brut.asReadOnlyBuffer(), gzip, brotli);
+    }
+
+    /**
+     * Ajoute l'empreinte des fichiers connus à leurs liens dans une page HTML
+     */
+    private String versionnerLiens(String html, String cheminPage) {
+        String dossier = cheminPage.substring(0, cheminPage.lastIndexOf('/') + 1);
+        Matcher m = LIEN.matcher(html);
+        StringBuilder resultat = new StringBuilder();
+        while (m.find()) {
+            String lien = m.group(3);
+            Ressource r = ressources.get(lien.startsWith("/") ? lien : dossier + lien);
+            String remplacement = r == null ? m.group()
+                    : m.group(1) + "=" + m.group(2) + lien + "?v=" + r.getVersion() + m.group(2);
+            m.appendReplacement(resultat, Matcher.quoteReplacement(remplacement));
+        }
+        m.appendTail(resultat);
+        return resultat.toString();
+    }
+
+    private static boolean estCompressible(String type) {
+        return type.startsWith("text/") || type.startsWith("application/javascript")
+                || type.startsWith("application/json") || type.equals("image/svg+xml");
+    }
+
+    private static ByteBuffer compresser(ByteBuffer contenu) throws IOException {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(contenu.remaining() / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(sortie)) {
+            Channels.newChannel(gzip).write(contenu);
+        }
+        return ByteBuffer.wrap(sortie.toByteArray()).asReadOnlyBuffer();
+    }
+
+    private static String empreinte(ByteBuffer contenu) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(contenu);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : sha.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String chemin(Path racine, Path fichier) {
+        return "/" + racine.relativize(fichier).toString().replace('\\', '/');
+    }
+
+    private static String extension(Path fichier) {
+        String nom = fichier.getFileName().toString();
+        int point = nom.lastIndexOf('.');
+        return point < 0 ? "" : nom.substring(point + 1).toLowerCase();
+    }
+}
@@ -0,0 +1,216 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import fr.umontpellier.iut.metriques.Metriques;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.ReserveParties;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Salon d'attente du serveur : les clients s'y inscrivent avec le nombre de
+ * joueurs qu'ils souhaitent (de 2 à 5, une couleur par joueur) et sont placés à
+ * des tables.
+ * <p>
+ * Les inscriptions sont déposées dans des files sans verrou, une par nombre de
+ * joueurs. Un thread unique les relève à chaque tic ({@link #DELAI_TIC_MS}) et
+ * forme autant de tables complètes que possible, dans l'ordre d'arrivée (les
+ * parties sont prises dans une {@link ReserveParties}). Quand le plus ancien
+ * candidat attend depuis plus que le délai d'attente, sa table est complétée
+ * par des bots.
+ */
+public class Salon {
+    /**
+     * Période de formation des tables
+     */
+    public static final long DELAI_TIC_MS = 100;
+    public static final int NB_JOUEURS_MIN = 2;
+    public static final int NB_JOUEURS_MAX = Joueur.Couleur.values().length;
+    /**
+     * Noms acceptés au salon : lettres, chiffres, espaces et tirets (le nom est
+     * affiché par l'interface graphique et écrit dans le log de la partie)
+     */
+    public static final Pattern NOM = Pattern.compile("[\\p{L}\\p{N}][\\p{L}\\p{N} -]{0,19}");
+
+    private static class Candidat {
+        private final String identifiant;
+        private final String nom;
+        private final long dateArrivee;
+        private volatile boolean retire;
+
+        private Candidat(String identifiant, String nom, long dateArrivee) {
+            this.identifiant = identifiant;
+            this.nom = nom;
+            this.dateArrivee = dateArrivee;
+        }
+    }
+
+    /**
+     * Inscriptions pas encore relevées par le thread du salon, par nombre de joueurs
+     */
+    private final List<ConcurrentLinkedQueue<Candidat>> arrivees = new ArrayList<>();
+    /**
+     * Candidats relevés en attente d'une table, dans l'ordre d'arrivée (utilisés
+     * seulement par le thread du salon)
+     */
+    private final List<ArrayDeque<Candidat>> enAttente = new ArrayList<>();
+    private final Map<String, Candidat> candidats = new ConcurrentHashMap<>();
+    private final ReserveParties reserve;
+    private final long delaiAttenteNs;
+    /**
+     * Prévenu pour chaque table formée, avec la partie (pas encore lancée) et le
+     * nom du siège de chaque candidat (indexé par identifiant)
+     */
+    private final BiConsumer<Jeu, Map<String, String>> surTable;
+    private volatile Thread thread;
+
+    /**
+     * @param delaiAttente durée d'attente au-delà de laquelle les sièges libres
+     *                     d'une table sont donnés à des bots
+     */
+    public Salon(ReserveParties reserve, long delaiAttente, TimeUnit unite,
+                 BiConsumer<Jeu, Map<String, String>> surTable) {
+        this.reserve = reserve;
+        this.delaiAttenteNs = unite.toNanos(delaiAttente);
+        this.surTable = surTable;
+        for (int n = 0; n <= NB_JOUEURS_MAX; n++) {
+            arrivees.add(new ConcurrentLinkedQueue<>());
+            enAttente.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Lance le thread qui forme les tables
+     */
+    public void demarrer() {
+        Thread t = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    apparier(System.nanoTime());
+                    Thread.sleep(DELAI_TIC_MS);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "salon");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    public void arreter() {
+        Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * Inscrit un client (une inscription précédente du même client est remplacée)
+     *
+     * @return faux si le nombre de joueurs ou le nom (voir {@link #NOM}) n'est pas
+     * valide
+     */
+    public boolean inscrire(String identifiant, String nom, int nbJoueurs) {
+        if (nbJoueurs < NB_JOUEURS_MIN || nbJoueurs > NB_JOUEURS_MAX || nom == null
+                || !NOM.matcher(nom.trim()).matches()) {
+            return false;
+        }
+        Candidat candidat = new Candidat(identifiant, nom.trim(), System.nanoTime());
+        Candidat precedent = candidats.put(identifiant, candidat);
+        if (precedent != null) {
+            precedent.retire = true;
+        }
+        arrivees.get(nbJoueurs).add(candidat);
+        return true;
+    }
+
+    /**
+     * Retire un client du salon (il est ignoré à la formation des tables)
+     */
+    public void desinscrire(String identifiant) {
+        Candidat candidat = candidats.remove(identifiant);
+        if (candidat != null) {
+            candidat.retire = true;
+        }
+    }
+
+    /**
+     * @return le nombre de clients inscrits qui n'ont pas encore de table
+     */
+    public int getNbInscrits() {
+        return candidats.size();
+    }
+
+    /**
+     * Forme les tables possibles (appelée à chaque tic)
+     *
+     * @param maintenant date courante (System.nanoTime)
+     * @return le nombre de tables formées
+     */
+    synchronized int apparier(long maintenant) {
+        int nbTables = 0;
+        for (int n = NB_JOUEURS_MIN; n <= NB_JOUEURS_MAX; n++) {
+            ArrayDeque<Candidat> file = enAttente.get(n);
+            for (Candidat c; (c = arrivees.get(n).poll()) != null; ) {
+                file.add(c);
+            }
+            file.removeIf(c -> c.retire);
+            while (file.size() >= n) {
+                former(n, file, n, maintenant);
+                nbTables++;
+            }
+            if (!file.isEmpty() && maintenant - file.peekFirst().dateArrivee >= delaiAttenteNs) {
+                former(n, file, file.size(), maintenant);
+                nbTables++;
+            }
+        }
+        return nbTables;
+    }
+
+    /**
+     * Forme une table de {@code n} joueurs avec les {@code nbHumains} premiers
+     * candidats de la file, complétée par des bots
+     */
+    private void former(int n, ArrayDeque<Candidat> file, int nbHumains, long maintenant) {
+        String[] noms = new String[n];
+        HashSet<String> pris = new HashSet<>();
+        Map<String, String> sieges = new LinkedHashMap<>();
+        for (int i = 0; i < nbHumains; i++) {
+            Candidat c = file.pollFirst();
+            candidats.remove(c.identifiant, c);
+            noms[i] = nomLibre(c.nom, pris);
+            sieges.put(c.identifiant, noms[i]);
+            Metriques.get().histogramme(Metriques.SALON_ATTENTE).enregistrer(maintenant - c.dateArrivee);
+        }
+        for (int i = nbHumains; i < n; i++) {
+            noms[i] = nomLibre("Bot", pris);
+        }
+        Jeu jeu = reserve.prendre(noms);
+        for (int i = nbHumains; i < n; i++) {
+            jeu.getJoueurs().get(i).setDecideur(new DecideurGlouton());
+        }
+        Metriques.get().compteur(Metriques.SALON_TABLES).incrementer();
+        Metriques.get().compteur(Metriques.SALON_SIEGES_BOTS).ajouter(n - nbHumains);
+        surTable.accept(jeu, sieges);
+    }
+
+    /**
+     * @return le nom, suivi d'un numéro s'il est déjà pris à la table
+     */
+    private static String nomLibre(String nom, Set<String> pris) {
+        String libre = nom;
+        for (int i = 2; !pris.add(libre.toLowerCase()); i++) {
+            libre = nom + " " + i;
+        }
+        return libre;
+    }
+}
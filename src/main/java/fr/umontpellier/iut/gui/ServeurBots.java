@@ -0,0 +1,345 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.metriques.Metriques;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+import fr.umontpellier.iut.rails.Transport;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Serveur TCP pour les bots externes : un protocole texte d'une ligne par
+ * message, sans websocket ni JSON (un bot ne reçoit que ses choix).
+ * <p>
+ * Le bot envoie d'abord {@code <partie>\t<jeton>} (partie vide : la partie
+ * par défaut), où le jeton est celui qui donne le siège du joueur sur la table
+ * (voir {@link Table#creerJeton}) : un bot ne peut donc pas prendre le siège
+ * d'un joueur humain. Le serveur répond {@code ok}, ou
+ * {@code erreur\t<raison>} et ferme la connexion. Ensuite, pour chaque choix
+ * du joueur (y compris celui en cours quand le bot se connecte), le serveur
+ * envoie
+ * {@code choix\t<instruction>\t<1 si le joueur peut passer, 0 sinon>\t<choix>...}
+ * (choix et boutons, sans doublon) et le bot répond par une ligne contenant
+ * son choix (ligne vide pour passer). Une réponse refusée reçoit
+ * {@code refuse}. À la fin de la partie, le serveur envoie {@code fin} et ferme
+ * la connexion. Les tabulations et retours à la ligne des textes sont
+ * remplacés par des espaces.
+ * <p>
+ * Comme pour les clients websocket, les lignes d'un bot sont soumises à un
+ * {@link LimiteurDebit} (une ligne en excès est ignorée, et la connexion est
+ * fermée si le bot continue d'envoyer sans attendre), une ligne de plus de
+ * {@link #TAILLE_MAX_LIGNE} caractères ferme la connexion et le nombre de
+ * connexions simultanées est limité à {@link #NB_CONNEXIONS_MAX} (au-delà, le
+ * serveur répond {@code erreur\tserveur complet}).
+ * <p>
+ * Chaque connexion a deux threads : l'un lit les lignes du bot, l'autre écrit
+ * les lignes qui lui sont destinées depuis une file bornée. Le thread de la
+ * partie ne fait que déposer ses choix dans la file et n'attend donc jamais un
+ * bot qui ne lit plus : quand la file est pleine, la connexion est fermée.
+ */
+public class ServeurBots {
+    /**
+     * Taille maximale d'une ligne envoyée par un bot (en caractères)
+     */
+    public static final int TAILLE_MAX_LIGNE = 4096;
+    /**
+     * Nombre maximal de bots connectés en même temps (deux threads par connexion)
+     */
+    public static final int NB_CONNEXIONS_MAX = 256;
+    /**
+     * Nombre maximal de lignes en attente d'envoi vers un bot
+     */
+    public static final int TAILLE_FILE_SORTIE = 64;
+
+    private final ServerSocket serveur;
+    private final ExecutorService executeur;
+    /**
+     * Table d'après son identifiant (`null` si elle n'existe pas)
+     */
+    private final Function<String, Table> tables;
+
+    public ServeurBots(String hote, int port, Function<String, Table> tables) throws IOException {
+        serveur = new ServerSocket(port, 50, InetAddress.getByName(hote));
+        this.tables = tables;
+        AtomicInteger numero = new AtomicInteger();
+        executeur = new ThreadPoolExecutor(0, 2 * NB_CONNEXIONS_MAX, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "bot-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * @return le port d'écoute (utile si le serveur a été créé avec le port 0)
+     */
+    public int getPort() {
+        return serveur.getLocalPort();
+    }
+
+    public void start() {
+        Thread t = new Thread(() -> {
+            while (!serveur.isClosed()) {
+                try {
+                    Socket socket = serveur.accept();
+                    socket.setTcpNoDelay(true);
+                    try {
+                        executeur.execute(() -> servir(socket));
+                    } catch (RejectedExecutionException e) {
+                        refuser(socket);
+                    }
+                } catch (SocketException e) {
+                    return;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "serveur-bots");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public void stop() {
+        try {
+            serveur.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        executeur.shutdownNow();
+    }
+
+    /**
+     * Ferme une connexion reçue alors que le serveur a déjà
+     * {@link #NB_CONNEXIONS_MAX} bots
+     */
+    private static void refuser(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write("erreur\tserveur complet\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // bot déjà déconnecté
+        }
+    }
+
+    /**
+     * Lit les messages d'un bot (thread de lecture de la connexion)
+     */
+    private void servir(Socket socket) {
+        Siege siege;
+        try {
+            siege = new Siege(socket);
+            executeur.execute(siege::ecrire);
+        } catch (IOException | RejectedExecutionException e) {
+            refuser(socket);
+            return;
+        }
+        try {
+            BufferedReader entree = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String presentation;
+            try {
+                presentation = lireLigne(entree);
+            } catch (LigneTropLongue e) {
+                siege.envoyer("erreur\tligne trop longue");
+                return;
+            }
+            if (presentation == null) {
+                return;
+            }
+            String[] champs = presentation.split("\t", -1);
+            Table table = champs.length == 2 ? tables.apply(champs[0]) : null;
+            Jeu jeu = table == null ? null : table.partie();
+            if (jeu == null) {
+                siege.envoyer("erreur\tpartie inconnue");
+                return;
+            }
+            String nom = table.siegeDuJeton(champs[1]);
+            if (nom == null || !jeu.brancher(nom, siege)) {
+                siege.envoyer("erreur\tjeton inconnu ou siège déjà pris");
+                return;
+            }
+            LimiteurDebit limiteur = new LimiteurDebit(ClientConnecte.CAPACITE_RAFALE,
+                    ClientConnecte.MESSAGES_PAR_SECONDE);
+            try {
+                siege.ouvrir();
+                for (String ligne; !siege.ferme && (ligne = lireLigne(entree)) != null; ) {
+                    if (!limiteur.autoriser()) {
+                        Metriques.get().compteur(Metriques.ENTREES_LIMITEES).incrementer();
+                        if (limiteur.getNbRefusConsecutifs() == ClientConnecte.REFUS_AVANT_FERMETURE) {
+                            Metriques.get().compteur(Metriques.SESSIONS_FERMEES).incrementer();
+                            siege.envoyer("erreur\ttrop de messages");
+                            return;
+                        }
+                    } else if (!jeu.proposerEntree(nom, ligne)) {
+                        siege.envoyer("refuse");
+                    }
+                }
+            } catch (LigneTropLongue e) {
+                siege.envoyer("erreur\tligne trop longue");
+            } finally {
+                jeu.debrancher(nom, siege);
+            }
+        } catch (IOException e) {
+            // connexion fermée par le bot ou à la fin de la partie
+        } finally {
+            // le thread d'écriture envoie les dernières lignes puis ferme la connexion
+            siege.terminer();
+        }
+    }
+
+    /**
+     * Lit une ligne terminée par {@code \n} (un {@code \r} final est retiré)
+     *
+     * @return `null` si le bot a fermé la connexion
+     * @throws LigneTropLongue si la ligne dépasse {@link #TAILLE_MAX_LIGNE} caractères
+     */
+    private static String lireLigne(Reader entree) throws IOException {
+        StringBuilder ligne = new StringBuilder();
+        for (int c; (c = entree.read()) != '\n'; ) {
+            if (c == -1) {
+                return ligne.length() == 0 ? null : ligne.toString();
+            }
+            if (ligne.length() == TAILLE_MAX_LIGNE) {
+                throw new LigneTropLongue();
+            }
+            ligne.append((char) c);
+        }
+        int fin = ligne.length();
+        return fin > 0 && ligne.charAt(fin - 1) == '\r' ? ligne.substring(0, fin - 1) : ligne.toString();
+    }
+
+    private static class LigneTropLongue extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Transport d'un siège vers la connexion de son bot : les lignes sont déposées
+     * dans une file bornée, écrite sur la connexion par {@link #ecrire()}
+     */
+    private static class Siege implements Transport {
+        /**
+         * Marque de fin de la file : le thread d'écriture ferme alors la connexion
+         * (comparée par identité)
+         */
+        private static final String FERMETURE = new String("");
+
+        private final Socket socket;
+        private final Writer sortie;
+        private final BlockingQueue<String> file = new ArrayBlockingQueue<>(TAILLE_FILE_SORTIE);
+        private volatile boolean ferme;
+        /**
+         * Vrai quand {@code ok} a été déposé : avant, un choix (celui en cours
+         * quand le transport est branché) est gardé dans {@code enAttente}
+         */
+        private boolean ouvert;
+        private String enAttente;
+
+        private Siege(Socket socket) throws IOException {
+            this.socket = socket;
+            sortie = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Dépose une ligne pour le bot, sans attendre : si la file est pleine (le
+         * bot ne lit plus), la connexion est fermée
+         */
+        private void envoyer(String ligne) {
+            if (!file.offer(ligne)) {
+                Metriques.get().compteur(Metriques.SESSIONS_FERMEES).incrementer();
+                couper();
+            }
+        }
+
+        /**
+         * Confirme la connexion au bot puis lui envoie le choix en cours, s'il y en a un
+         */
+        private synchronized void ouvrir() {
+            envoyer("ok");
+            ouvert = true;
+            if (enAttente != null) {
+                envoyer(enAttente);
+                enAttente = null;
+            }
+        }
+
+        /**
+         * Demande la fermeture de la connexion une fois les lignes déposées envoyées
+         */
+        private void terminer() {
+            ferme = true;
+            if (!file.offer(FERMETURE)) {
+                couper();
+            }
+        }
+
+        /**
+         * Ferme la connexion sans attendre : les threads de lecture et d'écriture
+         * s'arrêtent sur une erreur
+         */
+        private void couper() {
+            ferme = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // déjà fermée
+            }
+        }
+
+        /**
+         * Écrit les lignes de la file sur la connexion (thread d'écriture de la
+         * connexion), jusqu'à la marque de fin
+         */
+        private void ecrire() {
+            try {
+                for (String ligne = file.take(); ligne != FERMETURE; ligne = file.take()) {
+                    sortie.write(ligne);
+                    sortie.write('\n');
+                    if (file.isEmpty()) {
+                        sortie.flush();
+                    }
+                }
+                sortie.flush();
+            } catch (IOException | InterruptedException e) {
+                // bot déconnecté ou serveur arrêté
+            } finally {
+                couper();
+            }
+        }
+
+        @Override
+        public synchronized void demander(Joueur joueur, String instruction, Collection<String> choix,
+                                          Collection<String> boutons, boolean peutPasser) {
+            LinkedHashSet<String> distincts = new LinkedHashSet<>(choix);
+            distincts.addAll(boutons);
+            StringBuilder ligne = new StringBuilder("choix\t").append(nettoyer(instruction))
+                    .append(peutPasser ? "\t1" : "\t0");
+            for (String c : distincts) {
+                ligne.append('\t').append(nettoyer(c));
+            }
+            if (!ouvert) {
+                enAttente = ligne.toString();
+                return;
+            }
+            envoyer(ligne.toString());
+        }
+
+        @Override
+        public void fermer() {
+            envoyer("fin");
+            terminer();
+        }
+
+        private static String nettoyer(String texte) {
+            return texte.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+}
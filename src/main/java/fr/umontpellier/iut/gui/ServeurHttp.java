@@ -0,0 +1,89 @@
+package fr.umontpellier.iut.gui;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.umontpellier.iut.metriques.Metriques;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Petit serveur HTTP, à côté du serveur websocket, qui permet de consulter les
+ * métriques du serveur de jeu au format JSON (adresse {@code /metriques}) et
+ * qui peut servir l'état de la partie (adresse {@code /etat}, voir
+ * {@link EtatPublie}) et les fichiers de l'interface graphique (voir
+ * {@link RessourcesStatiques}).
+ * <p>
+ * Les requêtes sont traitées par un groupe de threads : sans exécuteur, le
+ * HttpServer du JDK traite tout sur son thread d'écoute et un client lent
+ * bloquerait tous les autres.
+ */
+public class ServeurHttp {
+    /**
+     * Nombre de threads qui traitent les requêtes
+     */
+    public static final int NB_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final HttpServer serveur;
+    private final ExecutorService executeur;
+
+    public ServeurHttp(String hote, int port) throws IOException {
+        serveur = HttpServer.create(new InetSocketAddress(hote, port), 0);
+        serveur.createContext("/metriques", this::envoyerMetriques);
+        AtomicInteger numero = new AtomicInteger();
+        executeur = Executors.newFixedThreadPool(NB_THREADS, r -> {
+            Thread t = new Thread(r, "http-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        serveur.setExecutor(executeur);
+    }
+
+    /**
+     * Sert les fichiers d'un dossier à la racine du serveur (préparés une fois
+     * pour toutes à l'appel de cette méthode)
+     */
+    public void servirFichiers(Path racine) throws IOException {
+        RessourcesStatiques ressources = new RessourcesStatiques(racine);
+        serveur.createContext("/", ressources::traiter);
+    }
+
+    /**
+     * Sert l'état publié à l'adresse {@code /etat} (et active sa publication)
+     */
+    public void servirEtat(EtatPublie etat) {
+        etat.activer();
+        serveur.createContext("/etat", etat::traiter);
+    }
+
+    /**
+     * @return le port d'écoute (utile si le serveur a été créé avec le port 0)
+     */
+    public int getPort() {
+        return serveur.getAddress().getPort();
+    }
+
+    public void start() {
+        serveur.start();
+    }
+
+    public void stop() {
+        serveur.stop(0);
+        executeur.shutdownNow();
+    }
+
+    private void envoyerMetriques(HttpExchange echange) throws IOException {
+        byte[] corps = Metriques.get().toJson().getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        echange.sendResponseHeaders(200, corps.length);
+        try (OutputStream sortie = echange.getResponseBody()) {
+            sortie.write(corps);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.metriques.Metriques;
+import fr.umontpellier.iut.rails.EtatPartie;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+
+import javax.websocket.CloseReason;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Une partie du serveur et les clients qui la suivent : dernier état diffusé
+ * (une vue JSON par audience et l'état binaire), numéros des diffusions pour les
+ * reprises et dictionnaire du protocole binaire.
+ * <p>
+ * La table garde son identifiant (celui de la partie) quand la partie est
+ * hibernée puis restaurée.
+ */
+public class Table {
+    private final String identifiant;
+    /**
+     * Identifiant du flux des diffusions de la table : les numéros de diffusion
+     * recommencent à 1 à chaque démarrage du serveur, une reprise n'est donc
+     * partielle que si elle donne aussi le flux de la table
+     */
+    private final String flux;
+    /**
+     * Partie en mémoire (`null` si elle est hibernée ou terminée)
+     */
+    private volatile Jeu jeu;
+    private volatile boolean hibernee;
+    /**
+     * Description de l'état du jeu, envoyé aux clients pour la mise à jour de l'interface graphique
+     * (codée une seule fois par audience, voir {@link Vues})
+     */
+    private volatile Vues etatJeu = Vues.VIDES;
+    /**
+     * Dernier état du jeu pour les clients qui utilisent le protocole binaire
+     * (`null` avant le premier prompt)
+     */
+    private volatile ProtocoleBinaire.Etat etatBinaire;
+    /**
+     * Numéros des dernières diffusions
+     */
+    private final HistoriqueDiffusions historique = new HistoriqueDiffusions(GameServer.CAPACITE_HISTORIQUE);
+    /**
+     * État publié pour les lectures HTTP (`null` si la table n'est pas publiée)
+     */
+    private final EtatPublie etatPublie;
+    /**
+     * Dictionnaire du protocole binaire (le plateau ne change pas quand la partie
+     * est restaurée)
+     */
+    private final ByteBuffer dictionnaire;
+    /**
+     * Audiences des clients de la partie (hors spectateurs), pour lesquelles les
+     * états diffusés sont calculés
+     */
+    private final List<Audience> audiences = new ArrayList<>();
+    private final Set<ClientConnecte> clients = ConcurrentHashMap.newKeySet();
+    /**
+     * Sièges attribués par le serveur, indexés par jeton (un client qui présente
+     * le jeton à sa reconnexion retrouve son siège)
+     */
+    private final Map<String, String> sieges = new ConcurrentHashMap<>();
+
+    public Table(Jeu jeu, EtatPublie etatPublie) {
+        identifiant = jeu.getIdentifiant();
+        flux = identifiant + "." + Long.toString(System.currentTimeMillis(), 36);
+        this.jeu = jeu;
+        this.etatPublie = etatPublie;
+        dictionnaire = ProtocoleBinaire.coderDictionnaire(jeu, flux);
+        audiences.add(Audience.TABLE);
+        for (Joueur j : jeu.getJoueurs()) {
+            audiences.add(Audience.siege(j.getNom()));
+        }
+    }
+
+    public String getIdentifiant() {
+        return identifiant;
+    }
+
+    public String getFlux() {
+        return flux;
+    }
+
+    /**
+     * @return un nouveau jeton secret qui donne le siège d'un joueur
+     */
+    String creerJeton(String nomJoueur) {
+        String jeton = UUID.randomUUID().toString();
+        sieges.put(jeton, nomJoueur);
+        return jeton;
+    }
+
+    /**
+     * @return le nom du joueur dont le jeton donne le siège, ou `null`
+     */
+    String siegeDuJeton(String jeton) {
+        return sieges.get(jeton);
+    }
+
+    public int getNbClients() {
+        return clients.size();
+    }
+
+    /**
+     * @return la partie en mémoire, sans la restaurer si elle est hibernée
+     */
+    public Jeu getJeu() {
+        return jeu;
+    }
+
+    /**
+     * @return la partie en cours, restaurée et relancée si elle était hibernée
+     * (l'appel attend alors que la partie soit prête à recevoir une entrée), ou
+     * `null` si la partie est terminée
+     */
+    public synchronized Jeu partie() {
+        if (jeu == null && hibernee) {
+            Jeu restauree = GameServer.restaurer(identifiant);
+            if (restauree != null) {
+                hibernee = false;
+                jeu = restauree;
+            }
+        }
+        return jeu;
+    }
+
+    /**
+     * Appelée par le thread de la partie après son hibernation : la partie est
+     * libérée, les clients gardent le dernier état diffusé jusqu'à la
+     * restauration.
+     */
+    synchronized void surHibernation(Jeu partie) {
+        hibernee = true;
+        jeu = null;
+    }
+
+    /**
+     * Appelée par le thread d'une partie terminée ou annulée : la partie est
+     * libérée, les clients gardent le dernier état diffusé et leurs connexions
+     * sont fermées.
+     */
+    void surFin(Jeu partie) {
+        synchronized (this) {
+            if (jeu != partie) {
+                return;
+            }
+            jeu = null;
+        }
+        String raison = partie.getEtat() == EtatPartie.TERMINEE ? "Partie terminée" : "Partie annulée";
+        for (ClientConnecte client : clients) {
+            try {
+                client.getSession().close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, raison));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        clients.clear();
+    }
+
+    /**
+     * Ajoute un client à la table et lui envoie l'état courant, ou seulement ce
+     * qu'il a manqué s'il reprend après une reconnexion
+     *
+     * @param reprise flux et numéro de la dernière diffusion reçue par le client
+     *                (voir {@link #reprendre(ClientConnecte, String)}), `null`
+     *                pour une première connexion
+     */
+    void rejoindre(ClientConnecte client, String reprise) throws IOException {
+        client.setTable(this);
+        clients.add(client);
+        if (reprise == null || !reprendre(client, reprise)) {
+            if (client.getProtocole() == ClientConnecte.Protocole.BINAIRE) {
+                client.envoyer(dictionnaire);
+            }
+            envoyerEtatCourant(client);
+        }
+    }
+
+    void quitter(ClientConnecte client) {
+        clients.remove(client);
+    }
+
+    /**
+     * Passe le client au protocole binaire : il reçoit le dictionnaire puis l'état
+     */
+    void passerEnBinaire(ClientConnecte client) throws IOException {
+        client.envoyer(dictionnaire);
+        ProtocoleBinaire.Etat etat = etatBinaire;
+        if (etat != null) {
+            envoyerEtatBinaire(client, etat);
+        }
+    }
+
+    /**
+     * Met à jour l'état de la partie, et envoie le nouvel état à tous les clients
+     * de la table, dans le protocole et l'audience de chaque client. Appelée par
+     * le thread de la partie : l'état est calculé pour toutes les audiences et
+     * détaché de la partie avant d'être envoyé, les threads des connexions ne
+     * lisent donc jamais la partie en cours.
+     *
+     * @param etatJeu     les vues de l'état de la partie en JSON
+     * @param etatBinaire l'état de la partie pour le protocole binaire (`null` s'il
+     *                    n'est pas disponible : les clients binaires reçoivent
+     *                    alors le JSON)
+     */
+    void diffuser(Vues etatJeu, ProtocoleBinaire.Etat etatBinaire) {
+        if (etatJeu.getNumero() == 0) {
+            // nouvelle diffusion (un prompt réutilisé garde son numéro)
+            int numero = historique.getDernierNumero() + 1;
+            etatJeu.numeroter(flux, numero);
+            if (etatBinaire != null) {
+                etatBinaire.numeroter(numero);
+            }
+            historique.ajouter(numero, etatBinaire == null ? 0 : etatBinaire.getNbLogs());
+        }
+        etatJeu.figer(audiences);
+        if (etatBinaire != null) {
+            etatBinaire.figer(audiences);
+        }
+        this.etatJeu = etatJeu;
+        if (etatPublie != null && etatPublie.isActif()) {
+            etatPublie.publier(etatJeu.getNumero(), etatJeu.get(Audience.SPECTATEUR));
+        }
+        this.etatBinaire = etatBinaire;
+        // Envoie l'état de la partie à tous les clients
+        for (ClientConnecte client : clients) {
+            try {
+                long debut = System.nanoTime();
+                if (etatBinaire != null && client.getProtocole() == ClientConnecte.Protocole.BINAIRE) {
+                    if (client.aRecu(etatBinaire)) {
+                        Metriques.get().compteur(Metriques.DIFFUSION_EVITEES).incrementer();
+                        continue;
+                    }
+                    envoyerEtatBinaire(client, etatBinaire);
+                } else {
+                    Trame trame = etatJeu.get(client.getAudience());
+                    if (client.aRecu(trame)) {
+                        Metriques.get().compteur(Metriques.DIFFUSION_EVITEES).incrementer();
+                        continue;
+                    }
+                    client.envoyer(trame);
+                }
+                Metriques.get().histogramme(Metriques.DIFFUSION_LATENCE + "." + client.getId())
+                        .enregistrer(System.nanoTime() - debut);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Envoie l'état binaire à un client, avec les messages de log qu'il n'a pas
+     * encore reçus
+     */
+    private static void envoyerEtatBinaire(ClientConnecte client, ProtocoleBinaire.Etat etat) throws IOException {
+        ByteBuffer message = etat.coder(client.getAudience(), client.getNbLogsRecus());
+        Metriques.get().histogramme(Metriques.DIFFUSION_OCTETS_BINAIRE).enregistrer(message.remaining());
+        client.envoyer(message);
+        client.setNbLogsRecus(etat.getNbLogs());
+        client.setDernierEtatBinaire(etat);
+    }
+
+    /**
+     * Reprise après une reconnexion, voir {@link #reprendre(ClientConnecte, String, int)}
+     *
+     * @param reprise {@code "<flux>:<numéro>"}
+     * @return `false` (sans rien envoyer) si la reprise est mal formée
+     */
+    boolean reprendre(ClientConnecte client, String reprise) throws IOException {
+        int separateur = reprise.lastIndexOf(':');
+        if (separateur < 0 || !reprise.substring(separateur + 1).matches("\\d{1,9}")) {
+            return false;
+        }
+        reprendre(client, reprise.substring(0, separateur), Integer.parseInt(reprise.substring(separateur + 1)));
+        return true;
+    }
+
+    /**
+     * Reprise après une reconnexion : le client a reçu la diffusion
+     * {@code numero} du flux {@code flux}. S'il est à jour, rien n'est envoyé.
+     * Sinon, s'il utilise le protocole binaire et que la diffusion est encore
+     * dans l'historique, il reçoit l'état courant avec seulement les messages de
+     * log manqués ; dans les autres cas (et si le flux n'est pas celui de la
+     * table) il reçoit l'état complet (les états intermédiaires manqués sont
+     * remplacés par l'état courant).
+     */
+    void reprendre(ClientConnecte client, String flux, int numero) throws IOException {
+        int nbLogs = this.flux.equals(flux) ? historique.getNbLogs(numero) : -1;
+        ProtocoleBinaire.Etat etat = etatBinaire;
+        boolean binaire = etat != null && client.getProtocole() == ClientConnecte.Protocole.BINAIRE;
+        if (nbLogs >= 0 && numero == historique.getDernierNumero()) {
+            Metriques.get().compteur(Metriques.REPRISES_A_JOUR).incrementer();
+            if (binaire) {
+                client.setNbLogsRecus(nbLogs);
+                client.setDernierEtatBinaire(etat);
+            } else {
+                client.setDerniereTrame(etatJeu.get(client.getAudience()));
+            }
+            return;
+        }
+        if (nbLogs >= 0) {
+            Metriques.get().compteur(Metriques.REPRISES_PARTIELLES).incrementer();
+            if (binaire) {
+                client.setNbLogsRecus(nbLogs);
+            }
+        } else {
+            Metriques.get().compteur(Metriques.REPRISES_COMPLETES).incrementer();
+            if (binaire) {
+                client.envoyer(dictionnaire);
+            }
+        }
+        envoyerEtatCourant(client);
+    }
+
+    /**
+     * Envoie l'état courant à un client dans son protocole
+     */
+    void envoyerEtatCourant(ClientConnecte client) throws IOException {
+        ProtocoleBinaire.Etat etat = etatBinaire;
+        if (etat != null && client.getProtocole() == ClientConnecte.Protocole.BINAIRE) {
+            envoyerEtatBinaire(client, etat);
+        } else {
+            envoyerEtat(client);
+        }
+    }
+
+    /**
+     * Envoie l'état JSON courant à un client, en dehors d'une diffusion (nouvelle
+     * connexion, changement de protocole ou d'audience)
+     */
+    void envoyerEtat(ClientConnecte client) throws IOException {
+        client.envoyer(etatJeu.get(client.getAudience()));
+    }
+}
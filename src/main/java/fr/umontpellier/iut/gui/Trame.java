@@ -0,0 +1,86 @@
+package fr.umontpellier.iut.gui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Message diffusé à tous les clients d'une même audience, codé une seule fois.
+ * <p>
+ * Une trame est immuable : le texte JSON, son codage UTF-8 et sa version
+ * compressée (calculée à la première demande) sont partagés par toutes les
+ * sessions. Les buffers partagés ne sortent pas du paquetage : ils ne sont pas
+ * en lecture seule (Tyrus envoie directement leur tableau) et sont dupliqués
+ * avant d'être lus ou envoyés ({@link ClientConnecte#envoyer(Trame)} s'en charge).
+ */
+public class Trame {
+    public static final Trame VIDE = new Trame("");
+
+    private final String texte;
+    private final byte[] octets;
+    private final ByteBuffer utf8;
+    private volatile ByteBuffer gzip;
+
+    public Trame(String texte) {
+        this.texte = texte;
+        octets = texte.getBytes(StandardCharsets.UTF_8);
+        utf8 = ByteBuffer.wrap(octets);
+    }
+
+    /**
+     * Recrée une trame reçue compressée (par exemple par un relais) : la version
+     * compressée reçue est gardée telle quelle
+     */
+    public static Trame depuisGzip(ByteBuffer gzip) throws IOException {
+        byte[] compresse = new byte[gzip.remaining()];
+        gzip.duplicate().get(compresse);
+        try (GZIPInputStream entree = new GZIPInputStream(new ByteArrayInputStream(compresse))) {
+            Trame trame = new Trame(new String(entree.readAllBytes(), StandardCharsets.UTF_8));
+            trame.gzip = ByteBuffer.wrap(compresse);
+            return trame;
+        }
+    }
+
+    public String getTexte() {
+        return texte;
+    }
+
+    /**
+     * @return le texte en UTF-8 (buffer partagé, à ne pas modifier)
+     */
+    ByteBuffer getUtf8() {
+        return utf8;
+    }
+
+    /**
+     * @return le texte UTF-8 compressé au format gzip (calculé une seule fois,
+     * buffer partagé à ne pas modifier)
+     */
+    ByteBuffer getGzip() {
+        ByteBuffer resultat = gzip;
+        if (resultat == null) {
+            synchronized (this) {
+                resultat = gzip;
+                if (resultat == null) {
+                    gzip = resultat = compresser();
+                }
+            }
+        }
+        return resultat;
+    }
+
+    private ByteBuffer compresser() {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(octets.length / 4 + 64);
+        try (GZIPOutputStream gzipSortie = new GZIPOutputStream(sortie)) {
+            gzipSortie.write(octets);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(sortie.toByteArray());
+    }
+}
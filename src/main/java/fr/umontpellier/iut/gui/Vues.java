@@ -0,0 +1,113 @@
+package fr.umontpellier.iut.gui;
+
+import fr.umontpellier.iut.metriques.Metriques;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Vues d'un même état de la partie, une par audience. Chaque vue est calculée
+ * une seule fois puis partagée par tous les clients de l'audience : le coût de
+ * sérialisation dépend du nombre d'audiences et non du nombre de clients.
+ * <p>
+ * Le calcul lit la partie en cours : les vues d'une partie diffusée sont donc
+ * calculées par le thread de la partie (voir {@link #figer}) avant d'être
+ * envoyées par les threads des connexions.
+ */
+public class Vues {
+    public static final Vues VIDES = identiques("");
+
+    /**
+     * Calcul des vues (`null` une fois les vues figées)
+     */
+    private volatile Function<Audience, String> calcul;
+    /**
+     * Trame commune à toutes les audiences (`null` si les vues sont différentes)
+     */
+    private final Trame trameCommune;
+    private final Map<Audience, Trame> trames = new ConcurrentHashMap<>();
+    /**
+     * Flux et numéro de diffusion, ajoutés en tête des vues JSON (champs
+     * {@code "flux"} et {@code "seq"}) s'ils sont fixés avant leur calcul
+     */
+    private volatile String flux;
+    private volatile int numero;
+
+    /**
+     * @param calcul calcule la vue JSON d'une audience
+     */
+    public Vues(Function<Audience, String> calcul) {
+        this.calcul = calcul;
+        trameCommune = null;
+    }
+
+    private Vues(Trame trameCommune) {
+        calcul = null;
+        this.trameCommune = trameCommune;
+        Metriques.get().histogramme(Metriques.DIFFUSION_OCTETS).enregistrer(trameCommune.getUtf8().remaining());
+    }
+
+    /**
+     * @return des vues identiques pour toutes les audiences
+     */
+    public static Vues identiques(String etat) {
+        return new Vues(new Trame(etat));
+    }
+
+    public int getNumero() {
+        return numero;
+    }
+
+    /**
+     * Fixe le flux et le numéro de diffusion des vues (avant le calcul de la
+     * première vue, voir {@link Table#getFlux()})
+     */
+    void numeroter(String flux, int numero) {
+        this.flux = flux;
+        this.numero = numero;
+    }
+
+    private String numeroterJson(String json) {
+        if (numero == 0 || !json.startsWith("{")) {
+            return json;
+        }
+        return "{\"flux\":\"" + flux + "\",\"seq\":" + numero + (json.length() > 2 ? "," : "") + json.substring(1);
+    }
+
+    /**
+     * Calcule les vues des audiences données et les détache de la partie (à
+     * appeler par le thread de la partie) : les vues ne calculent plus rien
+     * ensuite et les autres audiences reçoivent la vue des spectateurs.
+     */
+    public void figer(Collection<Audience> audiences) {
+        if (calcul == null) {
+            return;
+        }
+        get(Audience.SPECTATEUR);
+        for (Audience a : audiences) {
+            get(a);
+        }
+        calcul = null;
+    }
+
+    /**
+     * @return la vue de l'audience, calculée si c'est la première demande et que
+     * les vues ne sont pas figées
+     */
+    public Trame get(Audience audience) {
+        if (trameCommune != null) {
+            return trameCommune;
+        }
+        Function<Audience, String> calcul = this.calcul;
+        if (calcul == null) {
+            return trames.getOrDefault(audience, trames.get(Audience.SPECTATEUR));
+        }
+        return trames.computeIfAbsent(audience, a -> {
+            Trame trame = new Trame(numeroterJson(calcul.apply(a)));
+            Metriques.get().histogramme(Metriques.DIFFUSION_OCTETS).enregistrer(trame.getUtf8().remaining());
+            return trame;
+        });
+    }
+}
@@ -2,17 +2,28 @@ package fr.umontpellier.iut.gui;
 
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
+import java.nio.ByteBuffer;
 
 @ServerEndpoint(value = "/")
 public class WebSocketClient {
+    /**
+     * Taille maximale d'un message reçu (les instructions du jeu sont courtes)
+     */
+    private static final long TAILLE_MAX_MESSAGE = 4096;
+
     @OnOpen
     public void onOpen(Session session) {
         GameServer.addClient(session);
     }
 
-    @OnMessage
+    @OnMessage(maxMessageSize = TAILLE_MAX_MESSAGE)
     public void onMessage(String message, Session session) {
-        GameServer.addInput(message);
+        GameServer.recevoir(session, message);
+    }
+
+    @OnMessage(maxMessageSize = TAILLE_MAX_MESSAGE)
+    public void onMessage(ByteBuffer message, Session session) {
+        GameServer.recevoir(session, message);
     }
 
     @OnClose
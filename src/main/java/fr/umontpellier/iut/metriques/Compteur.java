@@ -0,0 +1,67 @@
+package fr.umontpellier.iut.metriques;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteur d'événements, avec le débit moyen sur les dernières secondes.
+ * <p>
+ * Le débit est calculé à partir d'un anneau de compteurs par seconde. Au
+ * changement de seconde, deux threads peuvent remettre la même case à zéro en
+ * même temps et perdre quelques événements : l'imprécision est acceptée pour
+ * que l'incrément reste sans verrou.
+ */
+public class Compteur {
+    /**
+     * Nombre de secondes complètes utilisées pour le débit
+     */
+    private static final int FENETRE = 10;
+    private static final int TAILLE_ANNEAU = 16;
+
+    private final LongAdder total = new LongAdder();
+    private final AtomicLongArray parSeconde = new AtomicLongArray(TAILLE_ANNEAU);
+    private final AtomicLongArray secondes = new AtomicLongArray(TAILLE_ANNEAU);
+
+    public void incrementer() {
+        ajouter(1);
+    }
+
+    public void ajouter(long n) {
+        total.add(n);
+        long seconde = System.currentTimeMillis() / 1000;
+        int i = (int) (seconde % TAILLE_ANNEAU);
+        long ancienne = secondes.get(i);
+        if (ancienne != seconde && secondes.compareAndSet(i, ancienne, seconde)) {
+            parSeconde.set(i, 0);
+        }
+        parSeconde.addAndGet(i, n);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return le nombre moyen d'événements par seconde sur les {@code FENETRE}
+     * dernières secondes complètes
+     */
+    public double getDebit() {
+        long maintenant = System.currentTimeMillis() / 1000;
+        long somme = 0;
+        for (long s = maintenant - FENETRE; s < maintenant; s++) {
+            int i = (int) (s % TAILLE_ANNEAU);
+            if (secondes.get(i) == s) {
+                somme += parSeconde.get(i);
+            }
+        }
+        return (double) somme / FENETRE;
+    }
+
+    public Object asPOJO() {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("total", getTotal());
+        data.put("parSeconde", getDebit());
+        return data;
+    }
+}
@@ -0,0 +1,101 @@
+package fr.umontpellier.iut.metriques;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées (ou de tailles) sans verrou.
+ * <p>
+ * Comme HdrHistogram, les valeurs sont rangées dans des intervalles
+ * logarithmiques (une puissance de 2 par intervalle) eux-mêmes découpés en
+ * {@code SOUS_INTERVALLES} intervalles linéaires, ce qui donne une précision
+ * relative d'environ 12%. L'enregistrement d'une valeur est un simple incrément
+ * atomique : il ne bloque jamais le thread du jeu.
+ */
+public class Histogramme {
+    private static final int BITS_SOUS_INTERVALLES = 3;
+    private static final int SOUS_INTERVALLES = 1 << BITS_SOUS_INTERVALLES;
+
+    private final AtomicLongArray comptes = new AtomicLongArray(64 * SOUS_INTERVALLES);
+    private final LongAdder nombre = new LongAdder();
+    private final LongAdder somme = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Enregistre une valeur (les valeurs négatives sont ramenées à 0)
+     */
+    public void enregistrer(long valeur) {
+        valeur = Math.max(0, valeur);
+        comptes.incrementAndGet(indice(valeur));
+        nombre.increment();
+        somme.add(valeur);
+        if (valeur > max.get()) {
+            max.accumulateAndGet(valeur, Math::max);
+        }
+    }
+
+    public long getNombre() {
+        return nombre.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMoyenne() {
+        long n = nombre.sum();
+        return n == 0 ? 0 : (double) somme.sum() / n;
+    }
+
+    /**
+     * @param p centile voulu, entre 0 et 100
+     * @return une borne supérieure de la valeur du centile
+     */
+    public long centile(double p) {
+        long total = 0;
+        for (int i = 0; i < comptes.length(); i++) {
+            total += comptes.get(i);
+        }
+        long rang = (long) Math.ceil(total * p / 100);
+        long cumul = 0;
+        for (int i = 0; i < comptes.length(); i++) {
+            cumul += comptes.get(i);
+            if (cumul >= rang && cumul > 0) {
+                return Math.min(borneSuperieure(i), getMax());
+            }
+        }
+        return 0;
+    }
+
+    private static int indice(long valeur) {
+        if (valeur < SOUS_INTERVALLES) {
+            return (int) valeur;
+        }
+        int exposant = 63 - Long.numberOfLeadingZeros(valeur);
+        int sousIntervalle = (int) (valeur >>> (exposant - BITS_SOUS_INTERVALLES)) & (SOUS_INTERVALLES - 1);
+        return (exposant - BITS_SOUS_INTERVALLES + 1) * SOUS_INTERVALLES + sousIntervalle;
+    }
+
+    private static long borneSuperieure(int indice) {
+        if (indice < SOUS_INTERVALLES) {
+            return indice;
+        }
+        int exposant = indice / SOUS_INTERVALLES + BITS_SOUS_INTERVALLES - 1;
+        long sousIntervalle = indice % SOUS_INTERVALLES;
+        long largeur = 1L << (exposant - BITS_SOUS_INTERVALLES);
+        return (1L << exposant) + (sousIntervalle + 1) * largeur - 1;
+    }
+
+    public Object asPOJO() {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("nombre", getNombre());
+        data.put("moyenne", getMoyenne());
+        data.put("p50", centile(50));
+        data.put("p90", centile(90));
+        data.put("p99", centile(99));
+        data.put("max", getMax());
+        return data;
+    }
+}
@@ -0,0 +1,89 @@
+package fr.umontpellier.iut.metriques;
+
+import com.google.gson.Gson;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registre des métriques du serveur (compteurs, jauges et histogrammes), partagé
+ * par tous les composants.
+ * <p>
+ * Les métriques sont créées à la première utilisation de leur nom ; les durées
+ * sont enregistrées en nanosecondes.
+ */
+public class Metriques {
+    public static final String PARTIES_EN_COURS = "parties.enCours";
+    public static final String TOURS = "tours";
+    public static final String PROMPT_SERIALISATION = "prompt.serialisationNs";
+    public static final String DIFFUSION_OCTETS = "diffusion.octets";
+    public static final String DIFFUSION_OCTETS_BINAIRE = "diffusion.octetsBinaire";
+    public static final String DIFFUSION_LATENCE = "diffusion.latenceNs";
+    public static final String DIFFUSION_EVITEES = "diffusion.envoisEvites";
+    public static final String REPRISES_A_JOUR = "reprises.aJour";
+    public static final String REPRISES_PARTIELLES = "reprises.partielles";
+    public static final String REPRISES_COMPLETES = "reprises.completes";
+    public static final String FILE_ENTREES = "entrees.tailleFile";
+    public static final String ATTENTE_ENTREE = "entrees.attenteNs";
+    public static final String CALCUL = "calculNs";
+    public static final String ENTREES_INVALIDES = "choisir.entreesInvalides";
+    public static final String ENTREES_REJETEES = "entrees.rejetees";
+    public static final String ENTREES_FILE_PLEINE = "entrees.filePleine";
+    public static final String ENTREES_LIMITEES = "entrees.limitees";
+    public static final String DELAIS_EXPIRES = "entrees.delaisExpires";
+    public static final String SESSIONS_FERMEES = "sessions.fermeesPourAbus";
+    public static final String PARTIES_HIBERNEES = "parties.hibernees";
+    public static final String PARTIES_RESTAUREES = "parties.restaurees";
+    public static final String PARTIES_TERMINEES = "parties.terminees";
+    public static final String PARTIES_ANNULEES = "parties.annulees";
+    public static final String RESERVE_SUCCES = "reserve.partiesPretes";
+    public static final String RESERVE_ECHECS = "reserve.partiesConstruites";
+    public static final String SALON_TABLES = "salon.tablesFormees";
+    public static final String SALON_SIEGES_BOTS = "salon.siegesBots";
+    public static final String SALON_ATTENTE = "salon.attenteNs";
+
+    private static final Metriques instance = new Metriques();
+
+    private final Map<String, Compteur> compteurs = new ConcurrentHashMap<>();
+    private final Map<String, Histogramme> histogrammes = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<Number>> jauges = new ConcurrentHashMap<>();
+
+    public static Metriques get() {
+        return instance;
+    }
+
+    public Compteur compteur(String nom) {
+        return compteurs.computeIfAbsent(nom, n -> new Compteur());
+    }
+
+    public Histogramme histogramme(String nom) {
+        return histogrammes.computeIfAbsent(nom, n -> new Histogramme());
+    }
+
+    /**
+     * Enregistre une jauge, dont la valeur est lue au moment de la consultation
+     */
+    public void jauge(String nom, Supplier<Number> valeur) {
+        jauges.put(nom, valeur);
+    }
+
+    public void supprimer(String nom) {
+        compteurs.remove(nom);
+        histogrammes.remove(nom);
+        jauges.remove(nom);
+    }
+
+    public Object asPOJO() {
+        TreeMap<String, Object> data = new TreeMap<>();
+        compteurs.forEach((nom, c) -> data.put(nom, c.asPOJO()));
+        histogrammes.forEach((nom, h) -> data.put(nom, h.asPOJO()));
+        jauges.forEach((nom, j) -> data.put(nom, j.get()));
+        return data;
+    }
+
+    public String toJson() {
+        return new Gson().toJson(asPOJO());
+    }
+}
@@ -0,0 +1,101 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Action complète envoyée en un seul message : la capture d'une route ou la
+ * construction d'une gare avec les cartes utilisées pour la payer.
+ * <p>
+ * Le message est de la forme {@code "<route ou ville>|<cartes>"} où les cartes
+ * sont séparées par des virgules et peuvent être suivies d'un nombre
+ * d'exemplaires, par exemple {@code "Paris - Wien|ROUGE x3, LOCOMOTIVE"}.
+ */
+public class ActionComposee {
+    public static final char SEPARATEUR = '|';
+    /**
+     * Nombre maximum d'exemplaires d'une carte dans une action
+     */
+    public static final int NB_EXEMPLAIRES_MAX = 45;
+
+    /**
+     * Nom de la route ou de la ville visée
+     */
+    private final String cible;
+    /**
+     * Cartes utilisées pour payer
+     */
+    private final List<CouleurWagon> cartes;
+
+    public ActionComposee(String cible, List<CouleurWagon> cartes) {
+        this.cible = cible;
+        this.cartes = cartes;
+    }
+
+    public String getCible() {
+        return cible;
+    }
+
+    public List<CouleurWagon> getCartes() {
+        return cartes;
+    }
+
+    /**
+     * Lit une action composée.
+     *
+     * @return l'action, ou `null` si le message n'est pas une action composée bien
+     * formée
+     */
+    public static ActionComposee lire(String message) {
+        int separateur = message.indexOf(SEPARATEUR);
+        if (separateur < 0) {
+            return null;
+        }
+        ArrayList<CouleurWagon> cartes = new ArrayList<>();
+        for (String element : message.substring(separateur + 1).split(",")) {
+            String[] morceaux = element.trim().split("\\s+x", 2);
+            CouleurWagon couleur = lireCouleur(morceaux[0].trim());
+            if (couleur == null) {
+                return null;
+            }
+            int nombre = 1;
+            if (morceaux.length > 1) {
+                try {
+                    nombre = Integer.parseInt(morceaux[1].trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (nombre < 1 || nombre > NB_EXEMPLAIRES_MAX) {
+                    return null;
+                }
+            }
+            cartes.addAll(Collections.nCopies(nombre, couleur));
+        }
+        return new ActionComposee(message.substring(0, separateur).trim(), cartes);
+    }
+
+    private static CouleurWagon lireCouleur(String nom) {
+        for (CouleurWagon c : CouleurWagon.values()) {
+            if (c != CouleurWagon.GRIS && c.name().equalsIgnoreCase(nom)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (CouleurWagon c : CouleurWagon.values()) {
+            int nombre = Collections.frequency(cartes, c);
+            if (nombre == 1) {
+                joiner.add(c.name());
+            } else if (nombre > 1) {
+                joiner.add(c.name() + " x" + nombre);
+            }
+        }
+        return cible + SEPARATEUR + joiner;
+    }
+}
@@ -8,6 +8,11 @@ import java.util.*;
 public enum CouleurWagon {
     NOIR, BLANC, JAUNE, ROUGE, ORANGE, BLEU, VERT, ROSE, GRIS, LOCOMOTIVE;
 
+    /**
+     * Nombre de couleurs simples : ce sont les premières valeurs de l'énumération
+     */
+    public static final int NB_COULEURS_SIMPLES = 8;
+
     @Override
     public String toString() {
         return switch (this) {
@@ -35,6 +40,23 @@ public enum CouleurWagon {
         return new ArrayList<>(List.of(NOIR, BLANC, JAUNE, ROUGE, ORANGE, BLEU, VERT, ROSE));
     }
 
+    /**
+     * Compte les cartes de chaque couleur d'une liste.
+     *
+     * @param liste  une liste de couleurs (les éléments `null` sont ignorés)
+     * @param compte tableau indexé par {@code ordinal()}, remis à zéro puis rempli
+     * @return le tableau {@code compte}
+     */
+    public static int[] compter(List<CouleurWagon> liste, int[] compte) {
+        Arrays.fill(compte, 0);
+        for (CouleurWagon c : liste) {
+            if (c != null) {
+                compte[c.ordinal()]++;
+            }
+        }
+        return compte;
+    }
+
     /**
      * Renvoie la représentation sous forme d'une chaîne de caractères d'une liste
      * non ordonnée de couleurs.
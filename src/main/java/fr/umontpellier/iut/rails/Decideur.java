@@ -0,0 +1,23 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Collection;
+
+/**
+ * Prise de décision automatique pour un joueur (bot).
+ * <p>
+ * Lorsqu'un joueur a un décideur, {@code Joueur.choisir} lui demande directement
+ * son choix au lieu d'envoyer l'état de la partie aux clients et d'attendre une
+ * entrée sur la file du jeu.
+ */
+public interface Decideur {
+    /**
+     * Renvoie le choix du joueur. Les paramètres sont ceux de
+     * {@code Joueur.choisir}, et le choix renvoyé doit être valide (un élément de
+     * {@code choix} ou de {@code boutons}, ou la chaîne vide si
+     * {@code peutPasser} est vrai).
+     *
+     * @param joueur le joueur qui doit faire le choix
+     */
+    String choisir(Joueur joueur, String instruction, Collection<String> choix, Collection<String> boutons,
+                   boolean peutPasser);
+}
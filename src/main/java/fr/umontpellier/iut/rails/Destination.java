@@ -110,4 +110,12 @@ public class Destination {
     public int getValeur() {
         return valeur;
     }
+
+    public String getVille1() {
+        return ville1;
+    }
+
+    public String getVille2() {
+        return ville2;
+    }
 }
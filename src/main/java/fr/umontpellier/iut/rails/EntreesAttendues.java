@@ -0,0 +1,68 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Réponses attendues par la partie pendant un choix d'un joueur.
+ * <p>
+ * Elles sont publiées par {@link Joueur#choisir} avant l'envoi du prompt, ce qui
+ * permet au serveur d'écarter dès la réception les messages d'un joueur dont ce
+ * n'est pas le tour, ou qui ne correspondent à aucun choix possible, sans les
+ * placer dans la file d'entrées du jeu.
+ */
+public class EntreesAttendues {
+    /**
+     * Nom du joueur qui doit répondre
+     */
+    private final String nomJoueur;
+    private final Set<String> choix;
+    private final boolean peutPasser;
+    /**
+     * Réponses acceptées en plus des choix (par exemple les actions composées)
+     */
+    private final Predicate<String> autresChoixValides;
+
+    public EntreesAttendues(String nomJoueur, Set<String> choix, boolean peutPasser,
+                            Predicate<String> autresChoixValides) {
+        this.nomJoueur = nomJoueur;
+        this.choix = choix;
+        this.peutPasser = peutPasser;
+        this.autresChoixValides = autresChoixValides;
+    }
+
+    public String getNomJoueur() {
+        return nomJoueur;
+    }
+
+    public Set<String> getChoix() {
+        return choix;
+    }
+
+    public boolean peutPasser() {
+        return peutPasser;
+    }
+
+    /**
+     * Action jouée pour un joueur qui n'a pas répondu à temps : passer si c'est
+     * possible (ce qui garde toutes les destinations proposées), sinon piocher
+     * dans la pile de cartes wagon, sinon le premier choix dans l'ordre
+     * alphabétique.
+     */
+    public static String actionParDefaut(EntreesAttendues attendues) {
+        if (attendues.peutPasser) {
+            return "";
+        }
+        if (attendues.choix.contains(CouleurWagon.GRIS.name())) {
+            return CouleurWagon.GRIS.name();
+        }
+        return attendues.choix.stream().min(String::compareTo).orElse("");
+    }
+
+    /**
+     * @return vrai si l'entrée est une réponse valide au choix en cours
+     */
+    public boolean accepte(String entree) {
+        return choix.contains(entree) || peutPasser && entree.equals("") || autresChoixValides.test(entree);
+    }
+}
@@ -0,0 +1,38 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Étapes de la vie d'une partie (voir {@link Jeu#getEtat()})
+ */
+public enum EtatPartie {
+    /**
+     * Partie créée, pas encore lancée
+     */
+    CREEE,
+    /**
+     * Le thread de la partie calcule (tour d'un bot, application d'un choix)
+     */
+    EN_COURS,
+    /**
+     * La partie attend la réponse d'un joueur
+     */
+    ATTENTE_ENTREE,
+    /**
+     * Partie sauvegardée sur disque faute de joueurs (voir {@link Hibernation})
+     */
+    HIBERNEE,
+    /**
+     * Partie allée jusqu'à son terme
+     */
+    TERMINEE,
+    /**
+     * Partie arrêtée avant la fin (voir {@link Jeu#annuler()})
+     */
+    ANNULEE;
+
+    /**
+     * @return vrai si le thread de la partie est terminé
+     */
+    public boolean estFinal() {
+        return this == HIBERNEE || this == TERMINEE || this == ANNULEE;
+    }
+}
@@ -0,0 +1,172 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Évalue à l'avance le coût supplémentaire d'un tunnel.
+ * <p>
+ * Lors de la capture d'un tunnel, 3 cartes sont piochées et chaque carte de la
+ * couleur du tunnel coûte une carte de plus au joueur (voir
+ * {@code Joueur.jouerTour}). Du point de vue du joueur, ces cartes sont tirées
+ * sans remise parmi les cartes qu'il ne voit pas : toutes les cartes du jeu sauf
+ * les cartes visibles et celles de sa main. Le nombre de correspondances suit donc
+ * une loi hypergéométrique, calculée exactement.
+ * <p>
+ * La distribution ne dépend que du nombre de cartes inconnues et du nombre de
+ * cartes correspondantes parmi elles ; elle est mémorisée pour chaque couple.
+ */
+public class EvaluateurTunnel {
+    /**
+     * Nombre de cartes piochées lors de la capture d'un tunnel
+     */
+    public static final int NB_CARTES_PIOCHEES = 3;
+
+    /**
+     * Distributions déjà calculées, indexées par (cartes inconnues, cartes correspondantes)
+     */
+    private static final ConcurrentHashMap<Integer, double[]> distributions = new ConcurrentHashMap<>();
+
+    /**
+     * Résultat de l'évaluation d'un tunnel pour un joueur
+     */
+    public static class Evaluation {
+        private final double coutSupplementaireMoyen;
+        private final double probabiliteSucces;
+
+        public Evaluation(double coutSupplementaireMoyen, double probabiliteSucces) {
+            this.coutSupplementaireMoyen = coutSupplementaireMoyen;
+            this.probabiliteSucces = probabiliteSucces;
+        }
+
+        /**
+         * @return l'espérance du nombre de cartes à payer en plus de la longueur
+         */
+        public double getCoutSupplementaireMoyen() {
+            return coutSupplementaireMoyen;
+        }
+
+        /**
+         * @return la probabilité que le joueur puisse payer le coût supplémentaire
+         * avec les cartes qui lui restent après le paiement initial
+         */
+        public double getProbabiliteSucces() {
+            return probabiliteSucces;
+        }
+
+        public Object asPOJO() {
+            HashMap<String, Object> data = new HashMap<>();
+            data.put("coutSupplementaireMoyen", coutSupplementaireMoyen);
+            data.put("probabiliteSucces", probabiliteSucces);
+            return data;
+        }
+    }
+
+    /**
+     * Renvoie le nombre de cartes de chaque couleur (indexé par
+     * {@code CouleurWagon.ordinal()}) que le joueur ne voit pas.
+     */
+    public static int[] compositionInconnue(Jeu jeu, Joueur joueur) {
+        int[] composition = compter(jeu.getPileCartesWagon());
+        ajouter(composition, jeu.getDefausseCartesWagon());
+        for (Joueur j : jeu.getJoueurs()) {
+            if (j != joueur) {
+                ajouter(composition, j.getCartesWagon());
+            }
+        }
+        return composition;
+    }
+
+    /**
+     * Évalue la capture du tunnel par le joueur, en supposant qu'il paye le
+     * prix initial avec la couleur du tunnel et ses locomotives.
+     */
+    public static Evaluation evaluer(Tunnel tunnel, Joueur joueur) {
+        int[] main = compter(joueur.getCartesWagon());
+        int[] inconnues = compositionInconnue(joueur.getJeu(), joueur);
+        CouleurWagon couleur = tunnel.getCouleur();
+
+        if (couleur == CouleurWagon.GRIS) {
+            // aucune carte piochée ne peut être de couleur GRIS : pas de surcoût
+            return new Evaluation(0, tunnel.peutEtrePayeePar(main) ? 1 : 0);
+        }
+        int disponibles = main[couleur.ordinal()] + main[CouleurWagon.LOCOMOTIVE.ordinal()] - tunnel.getLongueur();
+        if (disponibles < 0) {
+            return new Evaluation(0, 0);
+        }
+        return evaluer(somme(inconnues), inconnues[couleur.ordinal()], disponibles);
+    }
+
+    /**
+     * Évalue un tirage de {@code NB_CARTES_PIOCHEES} cartes parmi {@code nbInconnues}
+     * dont {@code nbCorrespondantes} font payer une carte supplémentaire.
+     *
+     * @param disponibles nombre de cartes supplémentaires que le joueur peut payer
+     */
+    public static Evaluation evaluer(int nbInconnues, int nbCorrespondantes, int disponibles) {
+        double[] p = distribution(nbInconnues, nbCorrespondantes);
+        double esperance = 0;
+        double succes = 0;
+        for (int k = 0; k < p.length; k++) {
+            esperance += k * p[k];
+            if (k <= disponibles) {
+                succes += p[k];
+            }
+        }
+        return new Evaluation(esperance, succes);
+    }
+
+    /**
+     * Loi hypergéométrique du nombre de cartes correspondantes piochées.
+     *
+     * @return un tableau p où p[k] est la probabilité de piocher exactement k
+     * cartes correspondantes (les cartes piochées sont limitées au nombre de
+     * cartes inconnues)
+     */
+    public static double[] distribution(int nbInconnues, int nbCorrespondantes) {
+        return distributions.computeIfAbsent(nbInconnues * 1024 + nbCorrespondantes, cle -> {
+            int tirage = Math.min(NB_CARTES_PIOCHEES, nbInconnues);
+            double[] p = new double[NB_CARTES_PIOCHEES + 1];
+            double total = combinaisons(nbInconnues, tirage);
+            for (int k = 0; k <= tirage; k++) {
+                p[k] = combinaisons(nbCorrespondantes, k) * combinaisons(nbInconnues - nbCorrespondantes, tirage - k)
+                        / total;
+            }
+            return p;
+        });
+    }
+
+    private static double combinaisons(int n, int k) {
+        if (k < 0 || k > n) {
+            return 0;
+        }
+        long res = 1;
+        for (int i = 1; i <= k; i++) {
+            res = res * (n - k + i) / i;
+        }
+        return res;
+    }
+
+    private static int[] compter(List<CouleurWagon> cartes) {
+        int[] compte = new int[CouleurWagon.values().length];
+        ajouter(compte, cartes);
+        return compte;
+    }
+
+    private static void ajouter(int[] compte, List<CouleurWagon> cartes) {
+        for (CouleurWagon c : cartes) {
+            if (c != null) {
+                compte[c.ordinal()]++;
+            }
+        }
+    }
+
+    private static int somme(int[] compte) {
+        int s = 0;
+        for (int n : compte) {
+            s += n;
+        }
+        return s;
+    }
+}
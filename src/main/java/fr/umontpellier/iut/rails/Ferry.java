@@ -20,4 +20,14 @@ public class Ferry extends Route {
     public int getNbLocomotives() {
         return nbLocomotives;
     }
+
+    @Override
+    public Type getType() {
+        return Type.FERRY;
+    }
+
+    @Override
+    public int getNbLocomotivesImposees() {
+        return nbLocomotives;
+    }
 }
@@ -0,0 +1,86 @@
+package fr.umontpellier.iut.rails;
+
+import com.google.gson.Gson;
+import fr.umontpellier.iut.metriques.Metriques;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stockage sur disque des parties inactives.
+ * <p>
+ * Une partie dont personne ne joue au début d'un tour (voir
+ * {@link Jeu#setHibernation}) est sauvegardée dans un fichier compressé
+ * {@code <identifiant>.partie.gz}, puis son thread se termine et plus rien ne
+ * la retient en mémoire. Elle est restaurée (et le fichier supprimé) quand une
+ * entrée arrive pour elle : la partie reprend au début du tour interrompu.
+ */
+public class Hibernation {
+    private static final String EXTENSION = ".partie.gz";
+
+    private final Path dossier;
+    /**
+     * Prévenu (par le thread de la partie) après la sauvegarde d'une partie
+     */
+    private final Consumer<Jeu> surHibernation;
+
+    /**
+     * @param surHibernation appelé avec la partie sauvegardée, par exemple pour
+     *                       retirer les références qui la gardent en mémoire
+     */
+    public Hibernation(Path dossier, Consumer<Jeu> surHibernation) throws IOException {
+        this.dossier = Files.createDirectories(dossier);
+        this.surHibernation = surHibernation;
+    }
+
+    public boolean contient(String identifiant) {
+        return Files.isRegularFile(fichier(identifiant));
+    }
+
+    void sauvegarder(Jeu jeu) throws IOException {
+        Path temporaire = dossier.resolve(jeu.getIdentifiant() + EXTENSION + ".tmp");
+        try (Writer sortie = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temporaire)),
+                StandardCharsets.UTF_8)) {
+            new Gson().toJson(jeu.sauvegarde(), sortie);
+        }
+        Files.move(temporaire, fichier(jeu.getIdentifiant()), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        Metriques.get().compteur(Metriques.PARTIES_HIBERNEES).incrementer();
+        surHibernation.accept(jeu);
+    }
+
+    /**
+     * Restaure une partie hibernée et supprime sa sauvegarde. La partie doit
+     * ensuite être relancée dans un nouveau thread ({@link Jeu#run()}).
+     *
+     * @throws FileNotFoundException si la partie n'est pas hibernée
+     */
+    public Jeu restaurer(String identifiant) throws IOException {
+        Path f = fichier(identifiant);
+        if (!Files.isRegularFile(f)) {
+            throw new FileNotFoundException("Aucune partie hibernée : " + identifiant);
+        }
+        Sauvegarde sauvegarde;
+        try (Reader entree = new InputStreamReader(new GZIPInputStream(Files.newInputStream(f)),
+                StandardCharsets.UTF_8)) {
+            sauvegarde = new Gson().fromJson(entree, Sauvegarde.class);
+        }
+        Jeu jeu = Jeu.restaurer(sauvegarde);
+        Files.delete(f);
+        Metriques.get().compteur(Metriques.PARTIES_RESTAUREES).incrementer();
+        return jeu;
+    }
+
+    private Path fichier(String identifiant) {
+        if (!identifiant.matches("[A-Za-z0-9-]+")) {
+            throw new IllegalArgumentException("Identifiant de partie invalide : " + identifiant);
+        }
+        return dossier.resolve(identifiant + EXTENSION);
+    }
+}
@@ -1,14 +1,52 @@
 package fr.umontpellier.iut.rails;
 
 import com.google.gson.Gson;
+import fr.umontpellier.iut.gui.Audience;
 import fr.umontpellier.iut.gui.GameServer;
+import fr.umontpellier.iut.gui.ProtocoleBinaire;
+import fr.umontpellier.iut.gui.Vues;
+import fr.umontpellier.iut.metriques.Compteur;
+import fr.umontpellier.iut.metriques.Histogramme;
+import fr.umontpellier.iut.metriques.Metriques;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class Jeu implements Runnable {
+    /**
+     * Nombre de parties dont la méthode {@code run} est en cours d'exécution
+     */
+    private static final AtomicInteger nbPartiesEnCours = new AtomicInteger();
+    private static final Compteur compteurTours = Metriques.get().compteur(Metriques.TOURS);
+    private static final Histogramme tempsSerialisation = Metriques.get().histogramme(Metriques.PROMPT_SERIALISATION);
+    private static final Histogramme tempsAttenteEntree = Metriques.get().histogramme(Metriques.ATTENTE_ENTREE);
+    private static final Histogramme tempsCalcul = Metriques.get().histogramme(Metriques.CALCUL);
+    private static final Compteur compteurEntreesRejetees = Metriques.get().compteur(Metriques.ENTREES_REJETEES);
+    private static final Compteur compteurFilePleine = Metriques.get().compteur(Metriques.ENTREES_FILE_PLEINE);
+    private static final Compteur compteurDelaisExpires = Metriques.get().compteur(Metriques.DELAIS_EXPIRES);
+    /**
+     * Nombre maximum d'entrées en attente de lecture : au-delà, les nouvelles
+     * entrées sont perdues
+     */
+    public static final int CAPACITE_FILE_ENTREES = 64;
+    /**
+     * Délai avant une nouvelle tentative de l'action par défaut quand la file
+     * d'entrées est pleine (voir {@link #expirer})
+     */
+    static final long DELAI_NOUVEL_ESSAI_MS = 100;
+
+    static {
+        Metriques.get().jauge(Metriques.PARTIES_EN_COURS, nbPartiesEnCours::get);
+    }
+
     /**
      * Liste des joueurs
      */
@@ -47,6 +85,37 @@ public class Jeu implements Runnable {
      * File d'attente des instructions recues par le serveur
      */
     private BlockingQueue<String> inputQueue;
+    /**
+     * Réponses attendues pour le choix en cours (`null` si la partie n'attend pas
+     * de réponse, ou si une réponse valide a déjà été reçue)
+     */
+    private final AtomicReference<EntreesAttendues> entreesAttendues = new AtomicReference<>();
+    /**
+     * Transports branchés sur les sièges, par nom de joueur
+     */
+    private final Map<String, Transport> transports = new ConcurrentHashMap<>();
+    /**
+     * Dernier choix transmis aux transports, renvoyé à un transport branché
+     * pendant ce choix (protégé par {@code transports})
+     */
+    private DemandeTransport demandeTransport;
+    /**
+     * Délai de décision d'un joueur en millisecondes (0 : pas de délai)
+     */
+    private long delaiDecision;
+    /**
+     * Action jouée à l'expiration du délai de décision
+     */
+    private Function<EntreesAttendues, String> actionParDefaut = EntreesAttendues::actionParDefaut;
+    /**
+     * Échéance du choix en cours et choix concerné (utilisés par le thread du jeu)
+     */
+    private RoueTemporelle.Echeance echeance;
+    private EntreesAttendues attenduesPlanifiees;
+    /**
+     * Dernier choix auquel l'action par défaut a répondu
+     */
+    private volatile EntreesAttendues derniereExpiration;
     /**
      * Messages d'information du jeu
      */
@@ -55,6 +124,83 @@ public class Jeu implements Runnable {
      * Pile destination long
      */
     private List<Destination> longDestinationList;
+    /**
+     * Valeur des routes libres pour chaque joueur, en fonction de ses destinations
+     */
+    private ValeursRoutes valeursRoutes;
+    /**
+     * Nombre maximum de tours de joueur avant d'arrêter la partie (0 : pas de limite)
+     */
+    private int nbToursMax;
+    /**
+     * Identifiant de la partie (conservé par l'hibernation)
+     */
+    private String identifiant = UUID.randomUUID().toString();
+    /**
+     * État de la boucle de jeu : destinations initiales choisies, joueur dont
+     * c'est le tour, nombre de tours joués, fin de partie annoncée et nombre de
+     * tours joués depuis, tour commencé mais pas terminé
+     */
+    private boolean partieCommencee;
+    private int indexJoueurTour;
+    private int nbTours;
+    private boolean arretDuJeu;
+    private int dernierTourDuJeu;
+    private boolean tourEnCours;
+    /**
+     * Vrai entre le début d'un tour et la première entrée lue : rien n'a encore
+     * été modifié et la partie peut être hibernée
+     */
+    private volatile boolean debutDeTour;
+    /**
+     * Stockage des parties inactives (`null` : pas d'hibernation)
+     */
+    private Hibernation hibernation;
+    /**
+     * Durée d'inactivité en millisecondes au-delà de laquelle la partie est hibernée
+     */
+    private long delaiHibernation;
+    /**
+     * Étape de la vie de la partie
+     */
+    private volatile EtatPartie etat = EtatPartie.CREEE;
+    /**
+     * Erreur qui a arrêté la partie (`null` si elle n'a pas été annulée par une
+     * erreur)
+     */
+    private volatile RuntimeException erreur;
+    /**
+     * Thread qui exécute la partie (`null` s'il n'est pas lancé ou est terminé)
+     */
+    private volatile Thread thread;
+    private volatile boolean annulationDemandee;
+    /**
+     * Moniteur pour attendre la publication d'un choix
+     */
+    private final Object moniteurChoix = new Object();
+    /**
+     * Date (System.nanoTime) de la dernière entrée lue, pour mesurer le temps de
+     * calcul entre deux lectures (0 si aucune entrée n'a encore été lue)
+     */
+    private long dateDerniereEntree;
+    /**
+     * Version de l'état de la partie, augmentée à chaque modification observée
+     * (voir {@link #getVersion()})
+     */
+    private long version;
+    /**
+     * Empreinte de l'état qui correspond à {@code version}
+     */
+    private int[] empreinte;
+    /**
+     * Dernier prompt envoyé, réutilisé tant que l'état et le choix ne changent pas
+     */
+    private long versionPrompt = -1;
+    private String instructionPrompt;
+    private List<String> boutonsPrompt;
+    private boolean peutPasserPrompt;
+    private Vues vuesPrompt;
+    private ProtocoleBinaire.Etat etatBinairePrompt;
 
     public Jeu(String[] nomJoueurs) {
         /*
@@ -67,7 +213,7 @@ public class Jeu implements Runnable {
          */
 
         // initialisation des entrées/sorties
-        inputQueue = new LinkedBlockingQueue<>();
+        inputQueue = new ArrayBlockingQueue<>(CAPACITE_FILE_ENTREES);
         log = new ArrayList<>();
 
         // création des cartes
@@ -91,22 +237,13 @@ public class Jeu implements Runnable {
         villes = plateau.getVilles();
 
         if(nomJoueurs.length < 3){
+            // une seule route entre deux villes (on garde la première des routes doubles)
             ArrayList<Route> routeArrayList= new ArrayList<>();
-            for(int i=0; i<plateau.getRoutes().size(); i++){
-                if(routeArrayList.size() < 1){
-                    routeArrayList.add(plateau.getRoutes().get(i));
-                }
-                boolean findInArray = false;
-                int k = 0;
-                while(k < routeArrayList.size() && findInArray == false){
-                    if(routeArrayList.get(k).getVille1().getNom().equalsIgnoreCase(plateau.getRoutes().get(i).getVille1().getNom()) && routeArrayList.get(k).getVille2().getNom().equalsIgnoreCase(plateau.getRoutes().get(i).getVille2().getNom())){
-                        findInArray = true;
-                    }
-                    k++;
-                }
-
-                if(findInArray == false){
-                    routeArrayList.add(plateau.getRoutes().get(i));
+            HashSet<String> relieesParUneRoute = new HashSet<>();
+            for(Route route : plateau.getRoutes()){
+                String extremites = route.getVille1().getNom().toLowerCase() + " - " + route.getVille2().getNom().toLowerCase();
+                if(relieesParUneRoute.add(extremites)){
+                    routeArrayList.add(route);
                 }
             }
             routes = routeArrayList;
@@ -143,6 +280,8 @@ public class Jeu implements Runnable {
         }
 
         this.resetCarteWagonVisible();
+
+        valeursRoutes = new ValeursRoutes(this);
     }
 
     public List<CouleurWagon> getPileCartesWagon() {
@@ -157,6 +296,10 @@ public class Jeu implements Runnable {
 
     public List<CouleurWagon> getDefausseCartesWagon() { return defausseCartesWagon; }
 
+    public List<String> getLog() {
+        return log;
+    }
+
     public List<Ville> getVilles() {
         return villes;
     }
@@ -169,10 +312,149 @@ public class Jeu implements Runnable {
         return joueurCourant;
     }
 
+    /**
+     * Fixe le nombre maximum de tours de joueur de la partie (utile pour les
+     * parties entre bots, qui pourraient ne jamais se terminer)
+     *
+     * @param nbToursMax nombre maximum de tours, 0 pour ne pas limiter la partie
+     */
+    public void setNbToursMax(int nbToursMax) {
+        this.nbToursMax = nbToursMax;
+    }
+
+    /**
+     * Renvoie la valeur de chaque route libre pour le joueur : somme des points des
+     * destinations du joueur dont un chemin de coût minimal passe par la route.
+     * Le calcul n'est refait qu'après une capture ou une nouvelle destination.
+     *
+     * @param joueur le joueur pour lequel on évalue les routes
+     * @return les routes de valeur non nulle, associées à leur valeur
+     */
+    public Map<Route, Integer> getValeursRoutes(Joueur joueur) {
+        return valeursRoutes.getValeurs(joueur);
+    }
+
+    /**
+     * Évalue le coût supplémentaire attendu et la probabilité de réussite de la
+     * capture d'un tunnel par un joueur, avant qu'il ne s'engage à payer.
+     */
+    public EvaluateurTunnel.Evaluation evaluerTunnel(Tunnel tunnel, Joueur joueur) {
+        return EvaluateurTunnel.evaluer(tunnel, joueur);
+    }
+
+    /**
+     * @return l'évaluation de chaque tunnel libre pour le joueur (nom du tunnel ->
+     * évaluation), pour l'affichage
+     */
+    private Object tunnelsAsPOJO(Joueur joueur) {
+        HashMap<String, Object> data = new HashMap<>();
+        for (Route r : routes) {
+            if (r.getProprietaire() == null && r.getType() == Route.Type.TUNNEL) {
+                data.put(r.getNom(), evaluerTunnel((Tunnel) r, joueur).asPOJO());
+            }
+        }
+        return data;
+    }
+
     /**
      * Exécute la partie
      */
     public void run() {
+        thread = Thread.currentThread();
+        nbPartiesEnCours.incrementAndGet();
+        try {
+            if (annulationDemandee) {
+                throw new PartieAnnulee();
+            }
+            etat = EtatPartie.EN_COURS;
+            jouerPartie();
+            if (etat != EtatPartie.HIBERNEE) {
+                etat = EtatPartie.TERMINEE;
+            }
+        } catch (PartieAnnulee e) {
+            etat = EtatPartie.ANNULEE;
+            Thread.interrupted();
+        } catch (RuntimeException e) {
+            // une erreur dans le déroulement de la partie l'arrête : elle est annulée
+            // pour que le registre et les clients la voient terminée
+            erreur = e;
+            etat = EtatPartie.ANNULEE;
+            System.err.println("Partie " + identifiant + " annulée après une erreur :");
+            e.printStackTrace();
+        } catch (Error e) {
+            etat = EtatPartie.ANNULEE;
+            throw e;
+        } finally {
+            // libère l'échéance du choix en cours et les entrées qui n'ont pas été lues
+            attendreEntree(null);
+            inputQueue.clear();
+            for (Transport transport : transports.values()) {
+                transport.fermer();
+            }
+            transports.clear();
+            thread = null;
+            nbPartiesEnCours.decrementAndGet();
+        }
+    }
+
+    /**
+     * Arrête la partie : le thread de la partie sort dès qu'il attend une entrée
+     * ou commence un tour. Une partie qui n'est pas encore lancée ne le sera pas.
+     */
+    public void annuler() {
+        annulationDemandee = true;
+        Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    public EtatPartie getEtat() {
+        return etat;
+    }
+
+    /**
+     * @return l'erreur qui a arrêté la partie ({@link #run()} ne la relance pas :
+     * la partie est alors {@link EtatPartie#ANNULEE}), ou `null`
+     */
+    public RuntimeException getErreur() {
+        return erreur;
+    }
+
+    /**
+     * Remplace l'identifiant d'une partie pas encore lancée (par exemple pour
+     * qu'il désigne le serveur qui l'exécute dans un cluster)
+     *
+     * @throws IllegalStateException si la partie est déjà lancée
+     */
+    public void attribuerIdentifiant(String identifiant) {
+        if (etat != EtatPartie.CREEE) {
+            throw new IllegalStateException("Partie déjà lancée");
+        }
+        this.identifiant = identifiant;
+    }
+
+    /**
+     * Donne aux joueurs d'une partie préparée à l'avance (voir
+     * {@link ReserveParties}) les noms des joueurs qui vont l'occuper
+     *
+     * @throws IllegalStateException si la partie est déjà lancée
+     * @throws IllegalArgumentException si le nombre de noms n'est pas le nombre de
+     *                                  joueurs
+     */
+    public void attribuerSieges(String[] nomJoueurs) {
+        if (etat != EtatPartie.CREEE) {
+            throw new IllegalStateException("Partie déjà lancée");
+        }
+        if (nomJoueurs.length != joueurs.size()) {
+            throw new IllegalArgumentException("Partie à " + joueurs.size() + " joueurs");
+        }
+        for (int i = 0; i < nomJoueurs.length; i++) {
+            joueurs.get(i).renommer(nomJoueurs[i]);
+        }
+    }
+
+    private void jouerPartie() {
         /*
          * ATTENTION : Cette méthode est à réécrire.
          * 
@@ -192,7 +474,8 @@ public class Jeu implements Runnable {
          * PERSONNEL
          */
         //DEBUT DU JEU, SELECTION DES CARTES
-        for(int i=0; i<joueurs.size(); i++){
+        // (sauf pour une partie restaurée après une hibernation, qui reprend au tour en cours)
+        for(int i=0; i<joueurs.size() && !partieCommencee; i++){
             this.joueurCourant = this.joueurs.get(i);
             ArrayList<Destination> destinationPlayer = new ArrayList<>();
             destinationPlayer.add(this.getRandomLongDestinationCard());
@@ -206,29 +489,42 @@ public class Jeu implements Runnable {
             List<Destination> aSupprimer = joueurs.get(i).choisirDestinations(destinationPlayer, 2);
         }
 
-        //LANCEMENT DU JEU
-        boolean arretDuJeu = false;
-        int dernierTourDujeu = 0;
-        while(arretDuJeu == false || dernierTourDujeu < joueurs.size()){
-            for(int i=0; i<joueurs.size(); i++){
-                if(dernierTourDujeu < joueurs.size()){
-                    log("Au tour de <strong>" + joueurs.get(i).getNom() + "</strong>");
-                    this.joueurCourant = this.joueurs.get(i);
-
-                    //Lancement du tour du joueur, voir sa suite dans Joueur.java
-                    this.joueurCourant.jouerTour();
+        partieCommencee = true;
 
-
-                    //Pour la fin du jeu.
-                    if(arretDuJeu == true){
-                        dernierTourDujeu++;
-                    }
-                    //Si le joueur à moin de 3 wagon (0,1 ou 2), alors la fin du jeu commence.
-                    if(joueurs.get(i).getNbWagons() < 3){
-                        arretDuJeu = true;
-                    }
+        //LANCEMENT DU JEU
+        // l'état de la boucle est dans des attributs pour qu'une partie hibernée puisse reprendre
+        try {
+            while(tourEnCours || (dernierTourDuJeu < joueurs.size() && (nbToursMax == 0 || nbTours < nbToursMax))){
+                if(annulationDemandee){
+                    throw new PartieAnnulee();
+                }
+                if(!tourEnCours){
+                    nbTours++;
+                    log("Au tour de <strong>" + echapperHtml(joueurs.get(indexJoueurTour).getNom()) + "</strong>");
+                    tourEnCours = true;
+                }
+                this.joueurCourant = this.joueurs.get(indexJoueurTour);
+
+                //Lancement du tour du joueur, voir sa suite dans Joueur.java
+                debutDeTour = true;
+                this.joueurCourant.jouerTour();
+                debutDeTour = false;
+                tourEnCours = false;
+                compteurTours.incrementer();
+
+                //Pour la fin du jeu.
+                if(arretDuJeu == true){
+                    dernierTourDuJeu++;
+                }
+                //Si le joueur à moin de 3 wagon (0,1 ou 2), alors la fin du jeu commence.
+                if(joueurCourant.getNbWagons() < 3){
+                    arretDuJeu = true;
                 }
+                indexJoueurTour = (indexJoueurTour + 1) % joueurs.size();
             }
+        } catch (PartieHibernee e) {
+            hiberner();
+            return;
         }
 
         this.log("<strong>FIN DU JEU</strong>");
@@ -242,7 +538,7 @@ public class Jeu implements Runnable {
                 gagnant = j;
             }
         }
-        this.log("Le gagnant est: <strong>" + gagnant.getNom() + "</strong>, avec " + gagnant.getScore() + "points !");
+        this.log("Le gagnant est: <strong>" + echapperHtml(gagnant.getNom()) + "</strong>, avec " + gagnant.getScore() + "points !");
         System.out.println("Le gagnant est: " + gagnant.getNom() + ", avec " + gagnant.getScore() + "points !");
 
 
@@ -390,6 +686,25 @@ public class Jeu implements Runnable {
         return joiner.toString();
     }
 
+    /**
+     * Échappe un texte (par exemple le nom d'un joueur) pour l'insérer dans un
+     * message de log, qui est affiché comme du HTML par l'interface graphique
+     */
+    public static String echapperHtml(String texte) {
+        StringBuilder resultat = new StringBuilder(texte.length());
+        for (char c : texte.toCharArray()) {
+            switch (c) {
+                case '<' -> resultat.append("&lt;");
+                case '>' -> resultat.append("&gt;");
+                case '&' -> resultat.append("&amp;");
+                case '"' -> resultat.append("&quot;");
+                case '\'' -> resultat.append("&#39;");
+                default -> resultat.append(c);
+            }
+        }
+        return resultat.toString();
+    }
+
     /**
      * Ajoute un message au log du jeu
      */
@@ -398,10 +713,318 @@ public class Jeu implements Runnable {
     }
 
     /**
-     * Ajoute un message à la file d'entrées
+     * Ajoute un message à la file d'entrées, s'il reste de la place
+     *
+     * @return faux si la file est pleine (le message est perdu)
      */
-    public void addInput(String message) {
-        inputQueue.add(message);
+    public boolean addInput(String message) {
+        if (!inputQueue.offer(message)) {
+            compteurFilePleine.incrementer();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Choix d'un joueur tel qu'il est transmis à un transport
+     */
+    private static class DemandeTransport {
+        private final EntreesAttendues attendues;
+        private final Joueur joueur;
+        private final String instruction;
+        private final List<String> choix;
+        private final List<String> boutons;
+        private final boolean peutPasser;
+
+        private DemandeTransport(EntreesAttendues attendues, Joueur joueur, String instruction,
+                                 Collection<String> choix, Collection<String> boutons, boolean peutPasser) {
+            this.attendues = attendues;
+            this.joueur = joueur;
+            this.instruction = instruction;
+            this.choix = new ArrayList<>(choix);
+            this.boutons = new ArrayList<>(boutons);
+            this.peutPasser = peutPasser;
+        }
+
+        private void envoyer(Transport transport) {
+            transport.demander(joueur, instruction, choix, boutons, peutPasser);
+        }
+    }
+
+    /**
+     * Branche un transport sur le siège d'un joueur : il reçoit les choix de ce
+     * joueur (voir {@link Transport}), à commencer par le choix en cours si la
+     * partie attend déjà la réponse de ce joueur
+     *
+     * @return faux si le joueur n'existe pas ou si son siège a déjà un transport
+     */
+    public boolean brancher(String nomJoueur, Transport transport) {
+        if (etat.estFinal() || joueurs.stream().noneMatch(j -> j.getNom().equals(nomJoueur))) {
+            return false;
+        }
+        synchronized (transports) {
+            if (transports.putIfAbsent(nomJoueur, transport) != null) {
+                return false;
+            }
+            DemandeTransport demande = demandeTransport;
+            if (demande != null && demande.joueur.getNom().equals(nomJoueur)
+                    && demande.attendues == entreesAttendues.get()) {
+                demande.envoyer(transport);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Retire le transport d'un siège (s'il est toujours branché)
+     */
+    public void debrancher(String nomJoueur, Transport transport) {
+        transports.remove(nomJoueur, transport);
+    }
+
+    /**
+     * Transmet un choix au transport branché sur le siège du joueur, s'il y en a
+     * un, et le garde pour un transport branché pendant le choix (appelée par le
+     * thread de la partie après le prompt)
+     */
+    void demander(EntreesAttendues attendues, Joueur joueur, String instruction, Collection<String> choix,
+                  Collection<String> boutons, boolean peutPasser) {
+        DemandeTransport demande = new DemandeTransport(attendues, joueur, instruction, choix, boutons, peutPasser);
+        synchronized (transports) {
+            demandeTransport = demande;
+            Transport transport = transports.get(joueur.getNom());
+            if (transport != null) {
+                demande.envoyer(transport);
+            }
+        }
+    }
+
+    /**
+     * Propose une entrée reçue d'un client. Elle n'est ajoutée à la file que si la
+     * partie attend une réponse de ce joueur et que l'entrée est un choix valide ;
+     * une seule entrée est acceptée par choix.
+     *
+     * @param nomJoueur nom du joueur qui envoie l'entrée, ou `null` si le client
+     *                  peut jouer pour tous les joueurs (écran partagé)
+     * @return vrai si l'entrée a été ajoutée à la file
+     */
+    public boolean proposerEntree(String nomJoueur, String message) {
+        EntreesAttendues attendues = entreesAttendues.get();
+        if (attendues == null || nomJoueur != null && !nomJoueur.equals(attendues.getNomJoueur())
+                || !attendues.accepte(message) || !entreesAttendues.compareAndSet(attendues, null)) {
+            compteurEntreesRejetees.incrementer();
+            return false;
+        }
+        return addInput(message);
+    }
+
+    /**
+     * Indique les réponses attendues pour le choix en cours (`null` si aucune), et
+     * planifie le délai de décision s'il y en a un
+     */
+    void attendreEntree(EntreesAttendues attendues) {
+        entreesAttendues.set(attendues);
+        if (attendues != null && etat == EtatPartie.EN_COURS) {
+            etat = EtatPartie.ATTENTE_ENTREE;
+        } else if (attendues == null && etat == EtatPartie.ATTENTE_ENTREE) {
+            etat = EtatPartie.EN_COURS;
+        }
+        if (attendues != null) {
+            synchronized (moniteurChoix) {
+                moniteurChoix.notifyAll();
+            }
+        }
+        if (attendues == attenduesPlanifiees) {
+            return;
+        }
+        if (echeance != null) {
+            echeance.annuler();
+            echeance = null;
+        }
+        attenduesPlanifiees = attendues;
+        if (attendues != null && delaiDecision > 0) {
+            echeance = RoueTemporelle.partagee().planifier(() -> expirer(attendues), delaiDecision,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Joue l'action par défaut si le choix attend toujours une réponse (appelée
+     * par la roue temporelle à l'expiration du délai). Si la file d'entrées est
+     * pleine, le choix reste ouvert et l'action par défaut est de nouveau tentée
+     * après {@link #DELAI_NOUVEL_ESSAI_MS} : sinon la partie attendrait une
+     * réponse que plus rien ne donnerait.
+     */
+    void expirer(EntreesAttendues attendues) {
+        if (!entreesAttendues.compareAndSet(attendues, null)) {
+            return;
+        }
+        derniereExpiration = attendues;
+        if (addInput(actionParDefaut.apply(attendues))) {
+            compteurDelaisExpires.incrementer();
+            return;
+        }
+        System.err.println("Action par défaut différée (file d'entrées pleine) : partie " + identifiant);
+        derniereExpiration = null;
+        if (entreesAttendues.compareAndSet(null, attendues)) {
+            RoueTemporelle.partagee().planifier(() -> expirer(attendues), DELAI_NOUVEL_ESSAI_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return vrai si la réponse au choix a été donnée par l'action par défaut
+     */
+    boolean aExpire(EntreesAttendues attendues) {
+        return derniereExpiration == attendues;
+    }
+
+    /**
+     * Active l'hibernation : si personne ne joue pendant {@code delai} au début
+     * d'un tour, la partie est sauvegardée dans {@code hibernation} et son thread
+     * se termine (la partie est restaurée par {@link Hibernation#restaurer}).
+     */
+    public void setHibernation(Hibernation hibernation, long delai, TimeUnit unite) {
+        this.hibernation = hibernation;
+        delaiHibernation = unite.toMillis(delai);
+    }
+
+    public String getIdentifiant() {
+        return identifiant;
+    }
+
+    public boolean estHibernee() {
+        return etat == EtatPartie.HIBERNEE;
+    }
+
+    /**
+     * Attend que la partie attende une réponse (par exemple après la restauration
+     * d'une partie, avant de lui transmettre l'entrée reçue)
+     *
+     * @return vrai si un choix est en cours
+     */
+    public boolean attendreChoix(long delai, TimeUnit unite) throws InterruptedException {
+        long fin = System.nanoTime() + unite.toNanos(delai);
+        synchronized (moniteurChoix) {
+            while (entreesAttendues.get() == null) {
+                long reste = fin - System.nanoTime();
+                if (reste <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(moniteurChoix, reste);
+            }
+        }
+        return true;
+    }
+
+    Sauvegarde sauvegarde() {
+        Sauvegarde s = new Sauvegarde();
+        s.identifiant = identifiant;
+        s.nbToursMax = nbToursMax;
+        s.partieCommencee = partieCommencee;
+        s.indexJoueurTour = indexJoueurTour;
+        s.nbTours = nbTours;
+        s.arretDuJeu = arretDuJeu;
+        s.dernierTourDuJeu = dernierTourDuJeu;
+        s.tourEnCours = tourEnCours;
+        for (Joueur j : joueurs) {
+            s.joueurs.add(j.sauvegarde());
+        }
+        s.pileCartesWagon = Sauvegarde.coder(pileCartesWagon);
+        s.cartesWagonVisibles = Sauvegarde.coder(cartesWagonVisibles);
+        s.defausseCartesWagon = Sauvegarde.coder(defausseCartesWagon);
+        s.pileDestinations = new ArrayList<>(pileDestinations);
+        s.longDestinationList = new ArrayList<>(longDestinationList);
+        s.proprietairesRoutes = new int[routes.size()];
+        for (int i = 0; i < routes.size(); i++) {
+            s.proprietairesRoutes[i] = joueurs.indexOf(routes.get(i).getProprietaire());
+        }
+        s.proprietairesVilles = new int[villes.size()];
+        for (int i = 0; i < villes.size(); i++) {
+            s.proprietairesVilles[i] = joueurs.indexOf(villes.get(i).getProprietaire());
+        }
+        s.log = new ArrayList<>(log);
+        return s;
+    }
+
+    /**
+     * Recrée une partie sauvegardée (le plateau est reconstruit à l'identique par
+     * le constructeur, puis l'état est remplacé par celui de la sauvegarde)
+     */
+    static Jeu restaurer(Sauvegarde s) {
+        String[] noms = new String[s.joueurs.size()];
+        for (int i = 0; i < noms.length; i++) {
+            noms[i] = s.joueurs.get(i).nom;
+        }
+        Jeu jeu = new Jeu(noms);
+        jeu.identifiant = s.identifiant;
+        jeu.nbToursMax = s.nbToursMax;
+        jeu.partieCommencee = s.partieCommencee;
+        jeu.indexJoueurTour = s.indexJoueurTour;
+        jeu.nbTours = s.nbTours;
+        jeu.arretDuJeu = s.arretDuJeu;
+        jeu.dernierTourDuJeu = s.dernierTourDuJeu;
+        jeu.tourEnCours = s.tourEnCours;
+        for (int i = 0; i < noms.length; i++) {
+            jeu.joueurs.get(i).restaurer(s.joueurs.get(i));
+        }
+        jeu.joueurCourant = jeu.joueurs.get(s.indexJoueurTour);
+        remplacer(jeu.pileCartesWagon, Sauvegarde.decoder(s.pileCartesWagon));
+        remplacer(jeu.cartesWagonVisibles, Sauvegarde.decoder(s.cartesWagonVisibles));
+        remplacer(jeu.defausseCartesWagon, Sauvegarde.decoder(s.defausseCartesWagon));
+        remplacer(jeu.pileDestinations, s.pileDestinations);
+        remplacer(jeu.longDestinationList, s.longDestinationList);
+        for (int i = 0; i < jeu.routes.size(); i++) {
+            int p = s.proprietairesRoutes[i];
+            jeu.routes.get(i).setProprietaire(p < 0 ? null : jeu.joueurs.get(p));
+        }
+        for (int i = 0; i < jeu.villes.size(); i++) {
+            int p = s.proprietairesVilles[i];
+            jeu.villes.get(i).setProprietaire(p < 0 ? null : jeu.joueurs.get(p));
+        }
+        remplacer(jeu.log, s.log);
+        return jeu;
+    }
+
+    private static <T> void remplacer(List<T> liste, List<T> contenu) {
+        liste.clear();
+        liste.addAll(contenu);
+    }
+
+    private void hiberner() {
+        attendreEntree(null);
+        try {
+            hibernation.sauvegarder(this);
+            etat = EtatPartie.HIBERNEE;
+        } catch (IOException e) {
+            // la partie ne peut pas être sauvegardée : elle reste en mémoire
+            e.printStackTrace();
+            hibernation = null;
+            jouerPartie();
+        }
+    }
+
+    /**
+     * Fixe le délai dont dispose un joueur pour chaque décision (0 : pas de
+     * délai). À l'expiration, l'action par défaut est jouée à sa place.
+     */
+    public void setDelaiDecision(long delai, TimeUnit unite) {
+        delaiDecision = unite.toMillis(delai);
+    }
+
+    /**
+     * Remplace l'action jouée à l'expiration du délai de décision (par défaut
+     * {@link EntreesAttendues#actionParDefaut})
+     */
+    public void setActionParDefaut(Function<EntreesAttendues, String> actionParDefaut) {
+        this.actionParDefaut = actionParDefaut;
+    }
+
+    /**
+     * @return le nombre d'entrées reçues qui n'ont pas encore été lues
+     */
+    public int getTailleFileEntrees() {
+        return inputQueue.size();
     }
 
     /**
@@ -411,13 +1034,40 @@ public class Jeu implements Runnable {
      *
      * @return une chaîne de caractères correspondant à l'entrée suivante dans la
      *         file
+     * @throws PartieAnnulee si la partie est annulée (ou son thread interrompu)
+     *                       pendant l'attente
      */
     public String lireLigne() {
+        if (annulationDemandee) {
+            throw new PartieAnnulee();
+        }
         try {
-            return inputQueue.take();
+            long debut = System.nanoTime();
+            if (dateDerniereEntree != 0) {
+                tempsCalcul.enregistrer(debut - dateDerniereEntree);
+            }
+            String entree;
+            if (hibernation != null && debutDeTour) {
+                entree = inputQueue.poll(delaiHibernation, TimeUnit.MILLISECONDS);
+                if (entree == null) {
+                    EntreesAttendues attendues = entreesAttendues.get();
+                    if (attendues != null && entreesAttendues.compareAndSet(attendues, null)) {
+                        // personne n'a joué depuis le début du tour : la partie est sauvegardée
+                        throw new PartieHibernee();
+                    }
+                    // une entrée vient d'être acceptée et va arriver dans la file
+                    entree = inputQueue.take();
+                }
+                debutDeTour = false;
+            } else {
+                entree = inputQueue.take();
+            }
+            dateDerniereEntree = System.nanoTime();
+            tempsAttenteEntree.enregistrer(dateDerniereEntree - debut);
+            return entree;
         } catch (InterruptedException e) {
-            e.printStackTrace();
-            return null;
+            annulationDemandee = true;
+            throw new PartieAnnulee();
         }
     }
 
@@ -441,25 +1091,115 @@ public class Jeu implements Runnable {
             System.out.printf(">>> %s: %s [%s] <<<%n", joueurCourant.getNom(), instruction, joiner);
         }
 
-        Map<String, Object> data = Map.ofEntries(
-                new AbstractMap.SimpleEntry<String, Object>("prompt", Map.ofEntries(
-                        new AbstractMap.SimpleEntry<String, Object>("instruction", instruction),
-                        new AbstractMap.SimpleEntry<String, Object>("boutons", boutons),
-                        new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", getJoueurCourant().getNom()),
-                        new AbstractMap.SimpleEntry<String, Object>("peutPasser", peutPasser))),
-                new AbstractMap.SimpleEntry<>("villes",
-                        villes.stream().map(Ville::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<>("routes",
-                        routes.stream().map(Route::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<String, Object>("joueurs",
-                        joueurs.stream().map(Joueur::asPOJO).collect(Collectors.toList())),
-                new AbstractMap.SimpleEntry<String, Object>("piles", Map.ofEntries(
-                        new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", pileCartesWagon.size()),
-                        new AbstractMap.SimpleEntry<String, Object>("pileDestinations", pileDestinations.size()),
-                        new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", defausseCartesWagon),
-                        new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", cartesWagonVisibles))),
-                new AbstractMap.SimpleEntry<String, Object>("log", log));
-        GameServer.setEtatJeu(new Gson().toJson(data));
+        // le même prompt sur un état inchangé réutilise les mêmes trames, que le
+        // serveur n'envoie pas une deuxième fois aux clients qui les ont reçues
+        long versionCourante = getVersion();
+        if (versionCourante != versionPrompt || peutPasser != peutPasserPrompt
+                || !instruction.equals(instructionPrompt) || !boutonsPrompt.equals(new ArrayList<>(boutons))) {
+            // les vues sont calculées par la table de la partie quand elle les diffuse
+            ArrayList<String> boutonsCopie = new ArrayList<>(boutons);
+            versionPrompt = versionCourante;
+            instructionPrompt = instruction;
+            boutonsPrompt = boutonsCopie;
+            peutPasserPrompt = peutPasser;
+            vuesPrompt = new Vues(audience -> etatAsJson(audience, instruction, boutonsCopie, peutPasser));
+            etatBinairePrompt = new ProtocoleBinaire.Etat(this, instruction, boutonsCopie, peutPasser);
+        }
+        GameServer.setEtatJeu(this, vuesPrompt, etatBinairePrompt);
+    }
+
+    /**
+     * Renvoie la version de l'état de la partie : elle augmente quand l'état
+     * visible par les clients a changé depuis le dernier appel, et seulement dans
+     * ce cas.
+     * <p>
+     * Les listes de la partie et des joueurs sont modifiées directement à de
+     * nombreux endroits, donc la version n'est pas augmentée à chaque
+     * modification : elle est mise à jour en comparant une empreinte exacte de
+     * l'état (scores, gares, wagons, nombre de cartes de chaque couleur,
+     * propriétaires, piles, cartes visibles, log), bien moins coûteuse à calculer
+     * que la sérialisation de l'état.
+     */
+    public long getVersion() {
+        int[] nouvelle = calculerEmpreinte();
+        if (!Arrays.equals(nouvelle, empreinte)) {
+            empreinte = nouvelle;
+            version++;
+        }
+        return version;
+    }
+
+    private int[] calculerEmpreinte() {
+        int nbCouleurs = CouleurWagon.values().length;
+        int[] e = new int[4 + joueurs.size() * (5 + 2 * nbCouleurs) + nbCouleurs + cartesWagonVisibles.size()
+                + routes.size() + villes.size()];
+        int i = 0;
+        e[i++] = joueurs.indexOf(joueurCourant);
+        e[i++] = pileCartesWagon.size();
+        e[i++] = pileDestinations.size();
+        e[i++] = log.size();
+        for (Joueur j : joueurs) {
+            e[i++] = j.getScore();
+            e[i++] = j.getNbGares();
+            e[i++] = j.getNbWagons();
+            e[i++] = j.getDestinations().size();
+            e[i++] = j.getCartesWagon().size();
+            for (CouleurWagon c : j.getCartesWagon()) {
+                e[i + c.ordinal()]++;
+            }
+            i += nbCouleurs;
+            for (CouleurWagon c : j.getCartesWagonPosees()) {
+                e[i + c.ordinal()]++;
+            }
+            i += nbCouleurs;
+        }
+        for (CouleurWagon c : defausseCartesWagon) {
+            e[i + c.ordinal()]++;
+        }
+        i += nbCouleurs;
+        for (CouleurWagon c : cartesWagonVisibles) {
+            e[i++] = c == null ? -1 : c.ordinal();
+        }
+        for (Route r : routes) {
+            e[i++] = joueurs.indexOf(r.getProprietaire());
+        }
+        for (Ville v : villes) {
+            e[i++] = joueurs.indexOf(v.getProprietaire());
+        }
+        return e;
+    }
+
+    /**
+     * Renvoie l'état de la partie en JSON, tel qu'il est vu par une audience : les
+     * mains et destinations des joueurs que l'audience ne voit pas sont réduites à
+     * leur nombre, et l'aide au joueur courant (valeur des routes et évaluation des
+     * tunnels) n'est visible que par lui.
+     */
+    public String etatAsJson(Audience audience, String instruction, Collection<String> boutons, boolean peutPasser) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("prompt", Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("instruction", instruction),
+                new AbstractMap.SimpleEntry<String, Object>("boutons", boutons),
+                new AbstractMap.SimpleEntry<String, Object>("nomJoueurCourant", getJoueurCourant().getNom()),
+                new AbstractMap.SimpleEntry<String, Object>("peutPasser", peutPasser)));
+        data.put("villes", villes.stream().map(Ville::asPOJO).collect(Collectors.toList()));
+        data.put("routes", routes.stream().map(Route::asPOJO).collect(Collectors.toList()));
+        data.put("joueurs", joueurs.stream().map(j -> j.asPOJO(audience.voit(j.getNom()))).collect(Collectors.toList()));
+        data.put("piles", Map.ofEntries(
+                new AbstractMap.SimpleEntry<String, Object>("pileCartesWagon", pileCartesWagon.size()),
+                new AbstractMap.SimpleEntry<String, Object>("pileDestinations", pileDestinations.size()),
+                new AbstractMap.SimpleEntry<String, Object>("defausseCartesWagon", defausseCartesWagon),
+                new AbstractMap.SimpleEntry<String, Object>("cartesWagonVisibles", cartesWagonVisibles)));
+        if (audience.voit(joueurCourant.getNom())) {
+            data.put("valeursRoutes", valeursRoutes.asPOJO(joueurCourant));
+            data.put("tunnels", tunnelsAsPOJO(joueurCourant));
+        }
+        data.put("audience", audience.toString());
+        data.put("log", log);
+        long debut = System.nanoTime();
+        String etat = new Gson().toJson(data);
+        tempsSerialisation.enregistrer(System.nanoTime() - debut);
+        return etat;
     }
 
 
@@ -596,7 +1336,7 @@ public class Jeu implements Runnable {
                 this.pileDestinations.add(first);
             }
         }
-        log("<strong>" + this.joueurCourant.getNom() + "</strong>, à piocher " + finalRes.size() + " cartes destinations");
+        log("<strong>" + echapperHtml(this.joueurCourant.getNom()) + "</strong>, à piocher " + finalRes.size() + " cartes destinations");
     }
 
     public static String DEVPREFIX = "<strong><p style='color: red'>MILLANR-TREGUIERE/DEVELOPPEMENT</p></strong> ";
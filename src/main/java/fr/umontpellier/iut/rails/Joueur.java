@@ -1,9 +1,21 @@
 package fr.umontpellier.iut.rails;
 
+import fr.umontpellier.iut.metriques.Compteur;
+import fr.umontpellier.iut.metriques.Metriques;
+
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class Joueur {
+    private static final Compteur compteurEntreesInvalides = Metriques.get().compteur(Metriques.ENTREES_INVALIDES);
+    /**
+     * Nombre de fois que le tour d'un joueur qui a un décideur peut être
+     * recommencé avant d'abandonner (un décideur qui propose toujours une action
+     * impossible). Le tour d'un joueur humain est recommencé sans limite : c'est
+     * la limite de débit de son client qui l'empêche d'insister.
+     */
+    private static final int NB_ESSAIS_MAX_TOUR = 1000;
 
     /**
      * Les couleurs possibles pour les joueurs (pour l'interface graphique)
@@ -49,6 +61,18 @@ public class Joueur {
      * Score courant du joueur (somme des valeurs des routes capturées)
      */
     private int score;
+    /**
+     * Décideur qui fait les choix à la place du joueur (`null` si les choix sont lus
+     * sur l'entrée du jeu)
+     */
+    private Decideur decideur;
+    /**
+     * Réponse déjà lue qui sera utilisée comme réponse du prochain appel à
+     * {@code choisir} (`null` si aucune). Elle permet de passer au choix des cartes
+     * une par une lorsque le joueur refuse le paiement proposé en choisissant une
+     * carte.
+     */
+    private String entreeEnAttente;
 
     public Joueur(String nom, Jeu jeu, Joueur.Couleur couleur) {
         this.nom = nom;
@@ -94,6 +118,58 @@ public class Joueur {
         return nbGares;
     }
 
+    public Decideur getDecideur() {
+        return decideur;
+    }
+
+    public void setDecideur(Decideur decideur) {
+        this.decideur = decideur;
+    }
+
+    void renommer(String nom) {
+        this.nom = nom;
+    }
+
+    Sauvegarde.JoueurSauvegarde sauvegarde() {
+        Sauvegarde.JoueurSauvegarde s = new Sauvegarde.JoueurSauvegarde();
+        s.nom = nom;
+        s.couleur = couleur;
+        s.score = score;
+        s.nbGares = nbGares;
+        s.nbWagons = nbWagons;
+        s.cartesWagon = Sauvegarde.coder(cartesWagon);
+        s.cartesWagonPosees = Sauvegarde.coder(cartesWagonPosees);
+        s.destinations = new ArrayList<>(destinations);
+        s.decideur = decideur == null ? null : decideur.getClass().getName();
+        return s;
+    }
+
+    /**
+     * Remet le joueur dans l'état sauvegardé. Un décideur qui n'a pas de
+     * constructeur sans paramètre ne peut pas être recréé : le joueur devient
+     * alors humain.
+     */
+    void restaurer(Sauvegarde.JoueurSauvegarde s) {
+        couleur = s.couleur;
+        score = s.score;
+        nbGares = s.nbGares;
+        nbWagons = s.nbWagons;
+        cartesWagon.clear();
+        cartesWagon.addAll(Sauvegarde.decoder(s.cartesWagon));
+        cartesWagonPosees.clear();
+        cartesWagonPosees.addAll(Sauvegarde.decoder(s.cartesWagonPosees));
+        destinations.clear();
+        destinations.addAll(s.destinations);
+        decideur = null;
+        if (s.decideur != null) {
+            try {
+                decideur = (Decideur) Class.forName(s.decideur).getConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                System.err.println("Décideur non restauré pour " + nom + " : " + e);
+            }
+        }
+    }
+
     /**
      * Attend une entrée de la part du joueur (au clavier ou sur la websocket) et
      * renvoie le choix du joueur.
@@ -111,6 +187,13 @@ public class Joueur {
      * Si l'ensemble des choix est vide, la chaîne vide ("") est automatiquement
      * renvoyée par la méthode (indépendamment de la valeur de {@code canPass}).
      * <p>
+     * Si le joueur a un décideur, le choix lui est demandé directement (sans
+     * envoyer l'état de la partie ni lire l'entrée du jeu). Un choix invalide du
+     * décideur lève une {@code IllegalStateException}.
+     * <p>
+     * Si une réponse est en attente (voir {@code proposerPaiement}) et qu'elle est
+     * valide, elle est renvoyée sans demander de nouveau choix.
+     * <p>
      * Exemple d'utilisation pour demander à un joueur de répondre à une question
      * par "oui" ou "non" :
      * <p>
@@ -144,27 +227,61 @@ public class Joueur {
      */
     public String choisir(String instruction, Collection<String> choix, Collection<String> boutons,
                           boolean peutPasser) {
+        return choisir(instruction, choix, boutons, peutPasser, entree -> false);
+    }
+
+    /**
+     * Comme {@link #choisir(String, Collection, Collection, boolean)}, mais accepte
+     * aussi les réponses qui vérifient {@code autresChoixValides} (par exemple des
+     * actions composées, qui ne peuvent pas être énumérées).
+     */
+    public String choisir(String instruction, Collection<String> choix, Collection<String> boutons,
+                          boolean peutPasser, Predicate<String> autresChoixValides) {
         // on retire les doublons de la liste des choix
         HashSet<String> choixDistincts = new HashSet<>();
         choixDistincts.addAll(choix);
         choixDistincts.addAll(boutons);
+        String enAttente = entreeEnAttente;
+        entreeEnAttente = null;
 
         // Aucun choix disponible
         if (choixDistincts.isEmpty()) {
             return "";
         } else {
+            EntreesAttendues attendues = new EntreesAttendues(nom, choixDistincts, peutPasser, autresChoixValides);
+            if (enAttente != null && attendues.accepte(enAttente))
+                return enAttente;
             // Un seul choix possible (renvoyer cet unique élément)
             if (choixDistincts.size() == 1 && !peutPasser)
                 return choixDistincts.iterator().next();
             else {
                 String entree;
+                if (decideur == null) {
+                    // le prompt n'est envoyé qu'une fois : une entrée invalide ne
+                    // provoque pas de nouvelle diffusion de l'état
+                    jeu.attendreEntree(attendues);
+                    jeu.prompt(instruction, boutons, peutPasser);
+                    jeu.demander(attendues, this, instruction, choix, boutons, peutPasser);
+                }
                 // Lit l'entrée de l'utilisateur jusqu'à obtenir un choix valide
                 while (true) {
-                    jeu.prompt(instruction, boutons, peutPasser);
-                    entree = jeu.lireLigne();
+                    if (decideur != null) {
+                        entree = decideur.choisir(this, instruction, choix, boutons, peutPasser);
+                    } else {
+                        entree = jeu.lireLigne();
+                    }
                     // si une réponse valide est obtenue, elle est renvoyée
-                    if (choixDistincts.contains(entree) || (peutPasser && entree.equals("")))
+                    if (attendues.accepte(entree)) {
+                        jeu.attendreEntree(null);
+                        if (decideur == null && jeu.aExpire(attendues)) {
+                            log(Jeu.echapperHtml(nom) + " n'a pas répondu à temps");
+                        }
                         return entree;
+                    }
+                    if (decideur != null)
+                        throw new IllegalStateException("Choix invalide du décideur de " + nom + " : " + entree);
+                    compteurEntreesInvalides.incrementer();
+                    jeu.attendreEntree(attendues);
                 }
             }
         }
@@ -204,6 +321,17 @@ public class Joueur {
      * (POJO)
      */
     public Object asPOJO() {
+        return asPOJO(true);
+    }
+
+    /**
+     * Renvoie une représentation du joueur sous la forme d'un objet Java simple
+     * (POJO), vue par un autre joueur ou un spectateur.
+     *
+     * @param mainVisible si faux, les cartes wagon et les destinations du joueur
+     *                    sont remplacées par leur nombre
+     */
+    public Object asPOJO(boolean mainVisible) {
         HashMap<String, Object> data = new HashMap<>();
         data.put("nom", nom);
         data.put("couleur", couleur);
@@ -211,6 +339,13 @@ public class Joueur {
         data.put("nbGares", nbGares);
         data.put("nbWagons", nbWagons);
         data.put("estJoueurCourant", this == jeu.getJoueurCourant());
+        if (!mainVisible) {
+            data.put("nbDestinations", destinations.size());
+            data.put("nbCartesWagon", cartesWagon.size());
+            data.put("cartesWagonPosees",
+                    cartesWagonPosees.stream().sorted().map(CouleurWagon::name).collect(Collectors.toList()));
+            return data;
+        }
         data.put("destinations", destinations.stream().map(Destination::asPOJO).collect(Collectors.toList()));
         data.put("cartesWagon", cartesWagon.stream().sorted().map(CouleurWagon::name).collect(Collectors.toList()));
         data.put("cartesWagonPosees",
@@ -305,6 +440,43 @@ public class Joueur {
      * "construire une gare", "choisir les destinations à défausser", etc.)
      */
     public void jouerTour() {
+        for (int essais = 1; ; essais++) {
+            try {
+                essayerTour();
+                return;
+            } catch (TourARecommencer e) {
+                if (decideur != null && essais >= NB_ESSAIS_MAX_TOUR) {
+                    throw new IllegalStateException(nom + " ne peut pas jouer son tour");
+                }
+            }
+        }
+    }
+
+    /**
+     * Abandonne le tour en cours, qui est recommencé depuis le début par
+     * {@link #jouerTour()} (choix impossible à réaliser) : les cartes wagon déjà
+     * posées pour l'action abandonnée reviennent dans la main du joueur
+     */
+    private void recommencerTour() {
+        cartesWagon.addAll(cartesWagonPosees);
+        cartesWagonPosees.clear();
+        throw new TourARecommencer();
+    }
+
+    /**
+     * Signale que le tour doit être recommencé (sans trace d'appel : c'est un
+     * saut vers {@link #jouerTour()}, pas une erreur)
+     */
+    private static class TourARecommencer extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private TourARecommencer() {
+            super(null, null, false, false);
+        }
+    }
+
+    private void essayerTour() {
+        this.entreeEnAttente = null;
         ArrayList<String> others = new ArrayList();
         others.add(CouleurWagon.GRIS.toString().toUpperCase());
         others.add(CouleurWagon.LOCOMOTIVE.toString().toUpperCase());
@@ -327,7 +499,21 @@ public class Joueur {
                 "Choissisez l'action à effectué.", // instruction
                 others, // choix (hors boutons, ici aucun)
                 new ArrayList<>(),
-                false); // le joueur ne peut pas passer (il doit faire un choix)
+                false, // le joueur ne peut pas passer (il doit faire un choix)
+                entree -> {
+                    ActionComposee action = ActionComposee.lire(entree);
+                    return action != null && others.contains(action.getCible());
+                });
+
+        //CHOISI: ACTION COMPOSEE (cible et paiement en un seul message)
+        ActionComposee actionComposee = ActionComposee.lire(choix);
+        if(actionComposee != null){
+            if(this.jouerActionComposee(actionComposee)){
+                return;
+            }
+            //paiement refusé : on continue avec le choix des cartes une par une
+            choix = actionComposee.getCible();
+        }
 
         ArrayList<String> wagonVisibleString = new ArrayList<>();
         ArrayList<CouleurWagon> wagonVisible = new ArrayList<>();
@@ -353,7 +539,7 @@ public class Joueur {
         //CHOISI: DESTINATION
         if(choix.equalsIgnoreCase("destinations")){
             this.jeu.jouerTourPiocherDestination();
-            this.jeu.log("<strong>" + this.getNom() + "</strong>, à piocher des cartes destinations.");
+            this.jeu.log("<strong>" + Jeu.echapperHtml(this.getNom()) + "</strong>, à piocher des cartes destinations.");
         }else if(wagonVisibleString.contains(choix) || choix.equalsIgnoreCase(CouleurWagon.GRIS.toString())){
             //CHOISI: WAGON
             if(wagonVisibleString.contains(choix)){
@@ -386,7 +572,7 @@ public class Joueur {
                 //1er Carte NON VISIBLE
                 if(this.jeu.getPileCartesWagon().isEmpty()){
                     this.jeu.log("Impossible de piocher une carte wagon non visible.");
-                    this.jouerTour();
+                    this.recommencerTour();
                 }else {
                     CouleurWagon selectCardNotVisible = this.jeu.piocherCarteWagon();
                     this.cartesWagon.add(selectCardNotVisible);
@@ -406,9 +592,11 @@ public class Joueur {
             }
 
             if(villeChoisis.getProprietaire() != null){
-                this.jouerTour();
+                this.recommencerTour();
             }else {
-                if(this.nbGares == 3){
+                if(this.nbGares > 0 && this.proposerPaiement(PlanificateurPaiement.planifierGare(4 - this.nbGares, this.cartesWagon, PlanificateurPaiement.couleursUtiles(this, null)), false)){
+                    this.construireGare(villeChoisis);
+                }else if(this.nbGares == 3){
                     //1er Gare
                     if(this.nbWagonMemeCouleurMax() >= 1){
                         ArrayList<String> cartesPossibles = new ArrayList<>();
@@ -436,8 +624,8 @@ public class Joueur {
                         this.score += 4;
 
                     }else {
-                        log(this.nom + " il est <strong>impossible</strong> pour vous de contruire une gare, vous n'avez pas assez de cartes wagons de même couleur");
-                        this.jouerTour();
+                        log(Jeu.echapperHtml(this.nom) + " il est <strong>impossible</strong> pour vous de contruire une gare, vous n'avez pas assez de cartes wagons de même couleur");
+                        this.recommencerTour();
                     }
                 }else if(this.nbGares == 2){
                     //2nd Gare => 2 wagon de mm couleur
@@ -463,7 +651,7 @@ public class Joueur {
                                 choixCarte1 = this.choisir("Choisir la 1er carte à défausser", new ArrayList<>(), cartesPossibles, false);
 
                                 if(choixCarte1.equalsIgnoreCase("")){
-                                    this.jouerTour();
+                                    this.recommencerTour();
                                 }
 
                                 for(int j=0; j<this.cartesWagon.size(); j++){
@@ -495,12 +683,7 @@ public class Joueur {
                                 choixCarte2 = this.choisir("Choisir la 2nd carte à défausser", new ArrayList<>(), cartesPossibles, false);
 
                                 if(choixCarte2.equalsIgnoreCase("")){
-                                    this.jouerTour();
-
-                                    for(int w=0; w<this.cartesWagonPosees.size(); w++){
-                                        this.cartesWagon.add(this.cartesWagonPosees.get(0));
-                                        this.cartesWagonPosees.remove(0);
-                                    }
+                                    this.recommencerTour();
                                 }
 
                                 for(int j=0; j<this.cartesWagon.size(); j++){
@@ -535,8 +718,8 @@ public class Joueur {
                         this.nbGares--;
 
                     }else {
-                        log(this.nom + " il est <strong>impossible</strong> pour vous de contruire une gare, vous n'avez pas assez de cartes wagons de même couleur");
-                        this.jouerTour();
+                        log(Jeu.echapperHtml(this.nom) + " il est <strong>impossible</strong> pour vous de contruire une gare, vous n'avez pas assez de cartes wagons de même couleur");
+                        this.recommencerTour();
                     }
                 }else if(this.nbGares == 1){
                     //3nd Gare => 3 wagon de mm couleur
@@ -564,7 +747,7 @@ public class Joueur {
                                 choixCarte1 = this.choisir("Choisir la 1er carte à défausser", new ArrayList<>(), cartesPossibles, false);
 
                                 if(choixCarte1.equalsIgnoreCase("")){
-                                    this.jouerTour();
+                                    this.recommencerTour();
                                 }
 
                                 for(int j=0; j<this.cartesWagon.size(); j++){
@@ -596,12 +779,7 @@ public class Joueur {
                                 choixCarte2 = this.choisir("Choisir la 2nd carte à défausser", new ArrayList<>(), cartesPossibles, false);
 
                                 if(choixCarte2.equalsIgnoreCase("")){
-                                    this.jouerTour();
-
-                                    for(int w=0; w<this.cartesWagonPosees.size(); w++){
-                                        this.cartesWagon.add(this.cartesWagonPosees.get(0));
-                                        this.cartesWagonPosees.remove(0);
-                                    }
+                                    this.recommencerTour();
                                 }
 
                                 for(int j=0; j<this.cartesWagon.size(); j++){
@@ -639,12 +817,7 @@ public class Joueur {
                                 choixCarte3 = this.choisir("Choisir la 3eme carte à défausser", new ArrayList<>(), cartesPossibles, false);
 
                                 if(choixCarte3.equalsIgnoreCase("")){
-                                    this.jouerTour();
-
-                                    for(int w=0; w<this.cartesWagonPosees.size(); w++){
-                                        this.cartesWagon.add(this.cartesWagonPosees.get(0));
-                                        this.cartesWagonPosees.remove(0);
-                                    }
+                                    this.recommencerTour();
                                 }
 
                                 for(int j=0; j<this.cartesWagon.size(); j++){
@@ -679,13 +852,13 @@ public class Joueur {
                         this.nbGares--;
 
                     }else {
-                        log(this.nom + " il est <strong>impossible</strong> pour vous de contruire une gare, vous n'avez pas assez de cartes wagons de même couleur");
-                        this.jouerTour();
+                        log(Jeu.echapperHtml(this.nom) + " il est <strong>impossible</strong> pour vous de contruire une gare, vous n'avez pas assez de cartes wagons de même couleur");
+                        this.recommencerTour();
                     }
 
                 }else {
-                    log(this.nom + " il est <strong>impossible</strong> pour vous de contruire une gare, nombre de gares incompris.");
-                    this.jouerTour();
+                    log(Jeu.echapperHtml(this.nom) + " il est <strong>impossible</strong> pour vous de contruire une gare, nombre de gares incompris.");
+                    this.recommencerTour();
                 }
             }
         }else if(routeSelect.contains(choix)){
@@ -702,18 +875,20 @@ public class Joueur {
 
             if(this.nbWagons < routeChoisi.getLongueur()){
                 this.jeu.log("Impossible de construire une route, vous n'avez pas assez de <strong>Nombre de Wagon</strong>.");
-                this.jouerTour();
+                this.recommencerTour();
             }else {
                 if(routeChoisi.getProprietaire() != null){
-                    this.jouerTour();
+                    this.recommencerTour();
                 }
-                if(routeChoisi.estFerry() == true){
+                if(routeChoisi.getProprietaire() == null && this.proposerPaiement(PlanificateurPaiement.planifier(routeChoisi, this.cartesWagon, PlanificateurPaiement.couleursUtiles(this, routeChoisi)), true)){
+                    this.capturerRoute(routeChoisi);
+                }else if(routeChoisi.estFerry() == true){
                     //FERRY
                     routeChoisi = (Ferry) routeChoisi;
                     if(this.nbWagonMemeCouleurMax() + this.getNbWagonByCoul(CouleurWagon.LOCOMOTIVE) < ((Ferry) routeChoisi).getLongueur() && this.getNbWagonByCoul(CouleurWagon.LOCOMOTIVE) < ((Ferry) routeChoisi).getNbLocomotives()){
-                        this.jouerTour();
+                        this.recommencerTour();
                     }else if(this.nbWagonMemeCouleurMax() < (routeChoisi.getLongueur()-((Ferry) routeChoisi).getNbLocomotives()) || this.getNbWagonByCoul(CouleurWagon.LOCOMOTIVE) < ((Ferry) routeChoisi).getNbLocomotives()){
-                        this.jouerTour();
+                        this.recommencerTour();
                     }else {
                         int nbLocoChosePlayer = 0;
                         do{
@@ -744,7 +919,7 @@ public class Joueur {
                                             this.cartesWagon.add(this.cartesWagonPosees.get(i));
                                         }
                                         this.cartesWagonPosees.clear();
-                                        this.jouerTour();
+                                        this.recommencerTour();
                                     }else {
                                         if(!choixPlayer.equalsIgnoreCase(CouleurWagon.LOCOMOTIVE.toString())){
                                             if(colorToFillAll.equalsIgnoreCase("")){
@@ -793,7 +968,7 @@ public class Joueur {
                                 this.cartesWagon.add(this.cartesWagonPosees.get(j));
                             }
                             this.cartesWagonPosees.clear();
-                            this.jouerTour();
+                            this.recommencerTour();
                         }
 
                         routeChoisi.setProprietaire(this);
@@ -811,7 +986,7 @@ public class Joueur {
 
                     if(routeChoisi.getCouleur().equals(CouleurWagon.GRIS)){
                         if(this.nbWagonMemeCouleurMax() + this.getNbWagonByCoul(CouleurWagon.LOCOMOTIVE) < routeChoisi.getLongueur()){
-                            this.jouerTour();
+                            this.recommencerTour();
                         }else {
                             ArrayList<String> buttonStringCartWagonPlayer = new ArrayList<>();
                             String colorToFillAll = "";
@@ -835,7 +1010,7 @@ public class Joueur {
                                             this.cartesWagon.add(this.cartesWagonPosees.get(i));
                                         }
                                         this.cartesWagonPosees.clear();
-                                        this.jouerTour();
+                                        this.recommencerTour();
                                     }else {
                                         if(!choixPlayer.equalsIgnoreCase(CouleurWagon.LOCOMOTIVE.toString())){
                                             if(colorToFillAll.equalsIgnoreCase("")){
@@ -895,7 +1070,7 @@ public class Joueur {
                                             this.cartesWagon.add(this.cartesWagonPosees.get(i));
                                         }
                                         this.cartesWagonPosees.clear();
-                                        this.jouerTour();
+                                        this.recommencerTour();
                                     }
                                 }while(!choixPlayer.equalsIgnoreCase(colorToFillAll) && !choixPlayer.equalsIgnoreCase(CouleurWagon.LOCOMOTIVE.toString()));
 
@@ -919,7 +1094,7 @@ public class Joueur {
                         }
                     }else {
                         if(this.getNbWagonByCoul(routeChoisi.getCouleur()) + this.getNbWagonByCoul(CouleurWagon.LOCOMOTIVE) < routeChoisi.getLongueur()){
-                            this.jouerTour();
+                            this.recommencerTour();
                         }else {
                             ArrayList<String> buttonStringCartWagonPlayer = new ArrayList<>();
                             do {
@@ -940,7 +1115,7 @@ public class Joueur {
                                             this.cartesWagon.add(this.cartesWagonPosees.get(i));
                                         }
                                         this.cartesWagonPosees.clear();
-                                        this.jouerTour();
+                                        this.recommencerTour();
                                     }
                                 }while(!choixPlayer.equalsIgnoreCase(routeChoisi.getCouleur().toString()) && !choixPlayer.equalsIgnoreCase(CouleurWagon.LOCOMOTIVE.toString()));
 
@@ -1052,7 +1227,7 @@ public class Joueur {
                                             this.cartesWagon.add(this.cartesWagonPosees.get(i));
                                         }
                                         this.cartesWagonPosees.clear();
-                                        this.jouerTour();
+                                        this.recommencerTour();
                                     }else {
                                         if(fillAllCard.equalsIgnoreCase("")){
                                             if(!choixPlayer.equalsIgnoreCase(CouleurWagon.LOCOMOTIVE.toString())){
@@ -1099,7 +1274,7 @@ public class Joueur {
                             this.nbWagons-=routeChoisi.getLongueur();
                         }else {
                             this.jeu.log("ERREUR, nombre de wagon invalide !");
-                            this.jouerTour();
+                            this.recommencerTour();
                         }
                     }else {
                         //Route de couleur
@@ -1127,7 +1302,7 @@ public class Joueur {
                                             this.cartesWagon.add(this.cartesWagonPosees.get(i));
                                         }
                                         this.cartesWagonPosees.clear();
-                                        this.jouerTour();
+                                        this.recommencerTour();
                                     }else {
                                         if(choixPlayer.equalsIgnoreCase(routeChoisi.getCouleur().toString())){
                                             whileCheck = true;
@@ -1157,7 +1332,7 @@ public class Joueur {
                             this.nbWagons-=routeChoisi.getLongueur();
                         }else {
                             this.jeu.log("ERREUR, nombre de wagon invalide !");
-                            this.jouerTour();
+                            this.recommencerTour();
                         }
                     }
                 }
@@ -1166,7 +1341,7 @@ public class Joueur {
 
 
         }else {
-            this.jouerTour();
+            this.recommencerTour();
         }
 
 
@@ -1201,8 +1376,8 @@ public class Joueur {
         int res = 0;
 
         if(coul != null){
-            for(int i=0; i<this.cartesWagon.size(); i++){
-                if(this.cartesWagon.get(i).toString().equalsIgnoreCase(coul.toString())){
+            for(CouleurWagon c : this.cartesWagon){
+                if(c == coul){
                     res++;
                 }
             }
@@ -1253,23 +1428,159 @@ public class Joueur {
 
     }
 
-    public int nbWagonMemeCouleurMax(){
-        ArrayList<CouleurWagon> dejasVus = new ArrayList<>();
-        int max = 0;
-
-        for(int i=0; i<this.cartesWagon.size(); i++){
-            if(!dejasVus.contains(this.cartesWagon.get(i))){
-                int cmpt = 0;
-                for(int x=0; x<this.cartesWagon.size(); x++){
-                    if(this.cartesWagon.get(x).equals(this.cartesWagon.get(i)) || this.cartesWagon.get(x).equals(CouleurWagon.LOCOMOTIVE)){
-                        cmpt++;
-                    }
+    /**
+     * Propose au joueur de payer avec les cartes calculées par le
+     * {@link PlanificateurPaiement}, en un seul choix.
+     * <p>
+     * Si le joueur choisit une carte (ou passe) au lieu d'accepter, sa réponse est
+     * mise en attente pour être la réponse du premier choix de carte qui suit.
+     *
+     * @param plan les cartes à payer (`null` si la main ne permet pas de payer,
+     *             auquel cas rien n'est proposé)
+     * @return vrai si le joueur a accepté : les cartes du plan ont alors été
+     * déplacées de sa main vers ses cartes posées
+     */
+    private boolean proposerPaiement(List<CouleurWagon> plan, boolean peutPasser) {
+        if(plan == null){
+            return false;
+        }
+        ArrayList<String> boutons = new ArrayList<>();
+        boutons.add(PlanificateurPaiement.PAIEMENT_AUTO);
+        for(CouleurWagon c : this.cartesWagon){
+            boutons.add(c.name());
+        }
+        String choix = this.choisir(
+                "Payer avec " + CouleurWagon.listToString(plan) + " ? (ou choisissez vos cartes)",
+                new ArrayList<>(),
+                boutons,
+                peutPasser);
+        if(!choix.equals(PlanificateurPaiement.PAIEMENT_AUTO)){
+            this.entreeEnAttente = choix;
+            return false;
+        }
+        this.poserCartes(plan);
+        return true;
+    }
+
+    /**
+     * Exécute une action composée si elle est valide dans son ensemble : la cible
+     * est libre, le joueur a assez de wagons ou de gares et les cartes annoncées
+     * forment un paiement valide. Dans ce cas les cartes sont posées et l'action
+     * est terminée (le supplément d'un tunnel est demandé ensuite).
+     *
+     * @return vrai si l'action a été exécutée, faux si rien n'a été modifié
+     */
+    private boolean jouerActionComposee(ActionComposee action){
+        for(Route r : this.jeu.getRoutes()){
+            if(r.getNom().equals(action.getCible())){
+                if(r.getProprietaire() != null || this.nbWagons < r.getLongueur()
+                        || !PlanificateurPaiement.estPaiementValide(r, action.getCartes(), this.cartesWagon)){
+                    this.log("Paiement refusé pour " + r.toLog() + ", choisissez vos cartes.");
+                    return false;
+                }
+                this.poserCartes(action.getCartes());
+                this.capturerRoute(r);
+                return true;
+            }
+        }
+        for(Ville v : this.jeu.getVilles()){
+            if(v.getNom().equals(action.getCible())){
+                if(v.getProprietaire() != null || this.nbGares <= 0
+                        || !PlanificateurPaiement.estPaiementGareValide(4 - this.nbGares, action.getCartes(), this.cartesWagon)){
+                    this.log("Paiement refusé pour la gare de " + v.getNom() + ", choisissez vos cartes.");
+                    return false;
                 }
+                this.poserCartes(action.getCartes());
+                this.construireGare(v);
+                return true;
+            }
+        }
+        return false;
+    }
 
-                if(cmpt > max){
-                    max = cmpt;
+    /**
+     * Déplace des cartes de la main du joueur vers ses cartes posées
+     */
+    private void poserCartes(List<CouleurWagon> cartes){
+        for(CouleurWagon c : cartes){
+            this.cartesWagon.remove(c);
+            this.cartesWagonPosees.add(c);
+        }
+    }
+
+    /**
+     * Termine la capture d'une route payée avec les cartes posées. Pour un tunnel,
+     * 3 cartes sont piochées et le supplément est proposé au joueur ; s'il ne peut
+     * pas ou ne veut pas le payer, il reprend ses cartes et la route n'est pas
+     * capturée.
+     */
+    private void capturerRoute(Route route){
+        if(route.estTunnel()){
+            int nbCartesEnPlus = 0;
+            for(int i=0; i<3; i++){
+                CouleurWagon c = this.jeu.piocherCarteWagon();
+                if(c == null){
+                    break;
+                }
+                if(c == route.getCouleur()){
+                    nbCartesEnPlus++;
+                }
+                this.jeu.defausserCarteWagon(c);
+            }
+            if(nbCartesEnPlus > 0){
+                List<CouleurWagon> supplement = PlanificateurPaiement.planifierSupplement(route.getCouleur(), nbCartesEnPlus, this.cartesWagon);
+                String choix = "";
+                if(supplement != null){
+                    choix = this.choisir(
+                            "Payer le supplément du tunnel avec " + CouleurWagon.listToString(supplement) + " ?",
+                            new ArrayList<>(),
+                            List.of(PlanificateurPaiement.PAIEMENT_AUTO),
+                            true);
+                }
+                if(choix.equals("")){
+                    this.cartesWagon.addAll(this.cartesWagonPosees);
+                    this.cartesWagonPosees.clear();
+                    return;
                 }
+                this.poserCartes(supplement);
+            }
+        }
+
+        route.setProprietaire(this);
+        for(CouleurWagon c : this.cartesWagonPosees){
+            this.jeu.defausserCarteWagon(c);
+        }
+        this.cartesWagonPosees.clear();
+        this.addScoreEnFonctionDeRoute(route);
+        this.nbWagons -= route.getLongueur();
+    }
+
+    /**
+     * Termine la construction d'une gare payée avec les cartes posées
+     */
+    private void construireGare(Ville ville){
+        ville.setProprietaire(this);
+        for(CouleurWagon c : this.cartesWagonPosees){
+            this.jeu.defausserCarteWagon(c);
+        }
+        this.cartesWagonPosees.clear();
+        this.nbGares--;
+        this.score += 4;
+    }
+
+    /**
+     * @return le plus grand nombre de cartes utilisables pour payer une même
+     * couleur : les cartes d'une couleur de la main plus les locomotives (0 si la
+     * main est vide)
+     */
+    public int nbWagonMemeCouleurMax(){
+        int[] compte = CouleurWagon.compter(this.cartesWagon, new int[CouleurWagon.values().length]);
+        int locomotives = compte[CouleurWagon.LOCOMOTIVE.ordinal()];
+        int max = locomotives;
 
+        for(int i=0; i<compte.length; i++){
+            if(compte[i] > 0 && i != CouleurWagon.LOCOMOTIVE.ordinal()){
+                max = Math.max(max, compte[i] + locomotives);
             }
         }
 
@@ -1328,7 +1639,7 @@ public class Joueur {
 
             if(this.jeu.getPileCartesWagon().isEmpty()){
                 this.jeu.log("Impossible, de piocher une carte wagon non visible, car aucune carte dans la pile.");
-                this.jouerTour();
+                this.recommencerTour();
             }else {
                 CouleurWagon selectCardNotVisible = this.jeu.piocherCarteWagon();
                 while(selectCardNotVisible.toString().equalsIgnoreCase(CouleurWagon.LOCOMOTIVE.toString())){
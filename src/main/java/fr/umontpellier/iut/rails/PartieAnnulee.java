@@ -0,0 +1,13 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Levée dans le thread d'une partie annulée (voir {@link Jeu#annuler()}) pour
+ * en sortir : elle remonte jusqu'à {@link Jeu#run()}.
+ */
+class PartieAnnulee extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    PartieAnnulee() {
+        super(null, null, false, false);
+    }
+}
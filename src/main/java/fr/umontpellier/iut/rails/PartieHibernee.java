@@ -0,0 +1,14 @@
+package fr.umontpellier.iut.rails;
+
+/**
+ * Levée par {@link Jeu#lireLigne()} quand la partie est restée inactive au début
+ * d'un tour : elle interrompt le tour (qui n'a encore rien modifié) pour que la
+ * partie soit sauvegardée.
+ */
+class PartieHibernee extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    PartieHibernee() {
+        super(null, null, false, false);
+    }
+}
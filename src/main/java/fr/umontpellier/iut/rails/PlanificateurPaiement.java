@@ -0,0 +1,156 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.*;
+
+/**
+ * Calcule le paiement le moins coûteux d'une route (route simple, ferry ou
+ * tunnel) ou d'une gare à partir de la main d'un joueur.
+ * <p>
+ * Le meilleur paiement est celui qui utilise le moins de locomotives. À nombre
+ * de locomotives égal, on évite les couleurs dont le joueur a besoin pour ses
+ * destinations (couleurs des routes libres utiles d'après
+ * {@link ValeursRoutes}), puis on utilise la couleur la plus présente dans la
+ * main.
+ * <p>
+ * Le plan est proposé au joueur en un seul choix (bouton
+ * {@code PAIEMENT_AUTO}) au lieu de lui demander ses cartes une par une.
+ */
+public class PlanificateurPaiement {
+    /**
+     * Bouton proposé au joueur pour accepter le paiement calculé
+     */
+    public static final String PAIEMENT_AUTO = "PAIEMENT";
+
+    /**
+     * Calcule le paiement initial d'une route (sans le supplément d'un tunnel).
+     *
+     * @param aPreserver couleurs à éviter si possible
+     * @return les cartes à payer, ou `null` si la main ne permet pas de payer la
+     * route
+     */
+    public static List<CouleurWagon> planifier(Route route, List<CouleurWagon> main, Set<CouleurWagon> aPreserver) {
+        return planifier(route.getLongueur(), route.getCouleur(), route.getNbLocomotivesImposees(), main,
+                aPreserver);
+    }
+
+    /**
+     * Calcule le paiement d'une gare : {@code nbCartes} cartes d'une même couleur
+     * (les locomotives remplacent n'importe quelle couleur).
+     *
+     * @return les cartes à payer, ou `null` si la main ne permet pas de payer la
+     * gare
+     */
+    public static List<CouleurWagon> planifierGare(int nbCartes, List<CouleurWagon> main, Set<CouleurWagon> aPreserver) {
+        return planifier(nbCartes, CouleurWagon.GRIS, 0, main, aPreserver);
+    }
+
+    /**
+     * Calcule le paiement du supplément d'un tunnel : des cartes de la couleur
+     * du tunnel, puis des locomotives.
+     *
+     * @return les cartes à payer, ou `null` si la main ne permet pas de payer le
+     * supplément
+     */
+    public static List<CouleurWagon> planifierSupplement(CouleurWagon couleur, int nbCartes, List<CouleurWagon> main) {
+        return planifier(nbCartes, couleur, 0, main, Collections.emptySet());
+    }
+
+    /**
+     * Vérifie qu'un paiement proposé par le joueur est valide pour le coût
+     * initial de la route : les cartes sont dans la main, en nombre égal à la
+     * longueur, d'une seule couleur (celle de la route si elle n'est pas grise)
+     * complétée par des locomotives, avec les locomotives imposées d'un ferry.
+     */
+    public static boolean estPaiementValide(Route route, List<CouleurWagon> cartes, List<CouleurWagon> main) {
+        return estValide(route.getLongueur(), route.getCouleur(), route.getNbLocomotivesImposees(), cartes, main);
+    }
+
+    /**
+     * Vérifie qu'un paiement proposé par le joueur est valide pour une gare de
+     * {@code nbCartes} cartes
+     */
+    public static boolean estPaiementGareValide(int nbCartes, List<CouleurWagon> cartes, List<CouleurWagon> main) {
+        return estValide(nbCartes, CouleurWagon.GRIS, 0, cartes, main);
+    }
+
+    private static boolean estValide(int longueur, CouleurWagon couleur, int locomotivesImposees,
+                                     List<CouleurWagon> cartes, List<CouleurWagon> main) {
+        if (cartes.size() != longueur) {
+            return false;
+        }
+        int[] compteCartes = CouleurWagon.compter(cartes, new int[CouleurWagon.values().length]);
+        int[] compteMain = CouleurWagon.compter(main, new int[CouleurWagon.values().length]);
+        CouleurWagon couleurPayee = null;
+        for (CouleurWagon c : CouleurWagon.values()) {
+            if (compteCartes[c.ordinal()] > compteMain[c.ordinal()]) {
+                return false;
+            }
+            if (c != CouleurWagon.LOCOMOTIVE && compteCartes[c.ordinal()] > 0) {
+                if (couleurPayee != null || couleur != CouleurWagon.GRIS && c != couleur) {
+                    return false;
+                }
+                couleurPayee = c;
+            }
+        }
+        return compteCartes[CouleurWagon.LOCOMOTIVE.ordinal()] >= locomotivesImposees;
+    }
+
+    /**
+     * @return les couleurs des routes libres (autres que {@code exclue}) qui
+     * rapprochent le joueur de ses destinations
+     */
+    public static Set<CouleurWagon> couleursUtiles(Joueur joueur, Route exclue) {
+        EnumSet<CouleurWagon> couleurs = EnumSet.noneOf(CouleurWagon.class);
+        for (Route r : joueur.getJeu().getValeursRoutes(joueur).keySet()) {
+            if (r != exclue && r.getProprietaire() == null && r.getCouleur() != CouleurWagon.GRIS) {
+                couleurs.add(r.getCouleur());
+            }
+        }
+        return couleurs;
+    }
+
+    /**
+     * @param couleur            couleur imposée, ou GRIS si toutes les couleurs
+     *                           sont possibles
+     * @param locomotivesImposees nombre de locomotives obligatoires (ferry)
+     */
+    private static List<CouleurWagon> planifier(int longueur, CouleurWagon couleur, int locomotivesImposees,
+                                                List<CouleurWagon> main, Set<CouleurWagon> aPreserver) {
+        int[] compte = CouleurWagon.compter(main, new int[CouleurWagon.values().length]);
+        int locomotives = compte[CouleurWagon.LOCOMOTIVE.ordinal()];
+        if (locomotives < locomotivesImposees) {
+            return null;
+        }
+
+        CouleurWagon meilleure = null;
+        int meilleurNbLocomotives = Integer.MAX_VALUE;
+        for (CouleurWagon c : CouleurWagon.values()) {
+            if (couleur == CouleurWagon.GRIS ? c.ordinal() >= CouleurWagon.NB_COULEURS_SIMPLES : c != couleur) {
+                continue;
+            }
+            int nbLocomotives = longueur - Math.min(compte[c.ordinal()], longueur - locomotivesImposees);
+            if (nbLocomotives > locomotives) {
+                continue;
+            }
+            if (meilleure == null || nbLocomotives < meilleurNbLocomotives
+                    || nbLocomotives == meilleurNbLocomotives && estPreferable(c, meilleure, compte, aPreserver)) {
+                meilleure = c;
+                meilleurNbLocomotives = nbLocomotives;
+            }
+        }
+        if (meilleure == null) {
+            return null;
+        }
+        ArrayList<CouleurWagon> plan = new ArrayList<>(Collections.nCopies(longueur - meilleurNbLocomotives, meilleure));
+        plan.addAll(Collections.nCopies(meilleurNbLocomotives, CouleurWagon.LOCOMOTIVE));
+        return plan;
+    }
+
+    private static boolean estPreferable(CouleurWagon c, CouleurWagon autre, int[] compte, Set<CouleurWagon> aPreserver) {
+        boolean cPreservee = aPreserver.contains(c);
+        if (cPreservee != aPreserver.contains(autre)) {
+            return !cPreservee;
+        }
+        return compte[c.ordinal()] > compte[autre.ordinal()];
+    }
+}
@@ -0,0 +1,139 @@
+package fr.umontpellier.iut.rails;
+
+import fr.umontpellier.iut.metriques.Metriques;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Parties exécutées par un serveur.
+ * <p>
+ * Chaque partie lancée par le registre a son propre thread. Dès que ce thread se
+ * termine (partie terminée, annulée ou hibernée), la partie est retirée du
+ * registre : une partie terminée ou annulée est résumée dans une archive (les
+ * {@code capaciteArchives} plus récentes sont gardées) et n'est plus référencée
+ * par le registre.
+ */
+public class RegistreParties {
+    /**
+     * Résumé d'une partie terminée ou annulée
+     */
+    public static class Archive {
+        private final String identifiant;
+        private final EtatPartie etat;
+        private final Map<String, Integer> scores = new LinkedHashMap<>();
+        private final List<String> log;
+
+        Archive(Jeu jeu) {
+            identifiant = jeu.getIdentifiant();
+            etat = jeu.getEtat();
+            for (Joueur j : jeu.getJoueurs()) {
+                scores.put(j.getNom(), j.getScore());
+            }
+            log = List.copyOf(jeu.getLog());
+        }
+
+        public String getIdentifiant() {
+            return identifiant;
+        }
+
+        public EtatPartie getEtat() {
+            return etat;
+        }
+
+        public Map<String, Integer> getScores() {
+            return Collections.unmodifiableMap(scores);
+        }
+
+        public List<String> getLog() {
+            return log;
+        }
+    }
+
+    private final Map<String, Jeu> parties = new ConcurrentHashMap<>();
+    private final Map<String, Thread> threads = new ConcurrentHashMap<>();
+    private final int capaciteArchives;
+    private final ArrayDeque<Archive> archives = new ArrayDeque<>();
+    /**
+     * Prévenu (dans le thread de la partie) quand une partie quitte le registre
+     */
+    private final Consumer<Jeu> surFin;
+
+    public RegistreParties(int capaciteArchives, Consumer<Jeu> surFin) {
+        this.capaciteArchives = capaciteArchives;
+        this.surFin = surFin;
+    }
+
+    /**
+     * Enregistre la partie et l'exécute dans un nouveau thread
+     */
+    public Thread lancer(Jeu jeu) {
+        Thread thread = new Thread(() -> {
+            try {
+                jeu.run();
+            } finally {
+                terminer(jeu);
+            }
+        }, "partie-" + jeu.getIdentifiant());
+        parties.put(jeu.getIdentifiant(), jeu);
+        threads.put(jeu.getIdentifiant(), thread);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return la partie en mémoire, ou `null` si elle n'est pas (ou plus) dans le
+     * registre
+     */
+    public Jeu get(String identifiant) {
+        return parties.get(identifiant);
+    }
+
+    public int getNbParties() {
+        return parties.size();
+    }
+
+    /**
+     * @return les archives, de la plus ancienne à la plus récente
+     */
+    public synchronized List<Archive> getArchives() {
+        return new ArrayList<>(archives);
+    }
+
+    /**
+     * Annule toutes les parties et attend la fin de leurs threads
+     *
+     * @return vrai si tous les threads sont terminés avant le délai
+     */
+    public boolean arreter(long delai, TimeUnit unite) throws InterruptedException {
+        for (Jeu jeu : parties.values()) {
+            jeu.annuler();
+        }
+        long fin = System.nanoTime() + unite.toNanos(delai);
+        for (Thread thread : threads.values()) {
+            long reste = fin - System.nanoTime();
+            if (reste > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(thread, reste);
+            }
+        }
+        return threads.isEmpty();
+    }
+
+    private void terminer(Jeu jeu) {
+        parties.remove(jeu.getIdentifiant());
+        threads.remove(jeu.getIdentifiant());
+        if (jeu.getEtat() == EtatPartie.TERMINEE || jeu.getEtat() == EtatPartie.ANNULEE) {
+            Metriques.get().compteur(jeu.getEtat() == EtatPartie.TERMINEE ? Metriques.PARTIES_TERMINEES
+                    : Metriques.PARTIES_ANNULEES).incrementer();
+            synchronized (this) {
+                archives.addLast(new Archive(jeu));
+                while (archives.size() > capaciteArchives) {
+                    archives.removeFirst();
+                }
+            }
+        }
+        surFin.accept(jeu);
+    }
+}
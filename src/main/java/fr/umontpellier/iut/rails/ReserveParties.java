@@ -0,0 +1,180 @@
+package fr.umontpellier.iut.rails;
+
+import fr.umontpellier.iut.metriques.Metriques;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Réserve de parties construites à l'avance, par nombre de joueurs.
+ * <p>
+ * Construire une partie (plateau, routes, pioches mélangées, mains distribuées)
+ * est fait par un thread de fond de faible priorité : une table qui se forme
+ * prend une partie prête dans la réserve et lui donne les noms de ses joueurs
+ * ({@link Jeu#attribuerSieges}). Si la réserve est vide, la partie est
+ * construite sur place.
+ * <p>
+ * La taille visée de chaque réserve suit la demande : elle augmente à chaque
+ * partie construite sur place et diminue d'une partie à chaque période sans
+ * demande (sans descendre sous {@link #TAILLE_MIN}).
+ */
+public class ReserveParties {
+    public static final int NB_JOUEURS_MIN = 2;
+    public static final int NB_JOUEURS_MAX = 5;
+    public static final int TAILLE_MIN = 1;
+    public static final int TAILLE_MAX = 16;
+
+    private final List<ConcurrentLinkedQueue<Jeu>> reserves;
+    /**
+     * Nombre de parties prêtes dans chaque réserve (la taille d'une
+     * ConcurrentLinkedQueue n'est pas en temps constant)
+     */
+    private final AtomicInteger[] disponibles;
+    private final AtomicInteger[] tailles;
+    private final AtomicInteger[] demandes;
+    private final long periodeMs;
+    private final Thread remplissage;
+    /**
+     * Réveille le thread de remplissage quand une partie est prise
+     */
+    private final Object signal = new Object();
+    /**
+     * Une partie a été prise depuis le dernier remplissage (protégé par
+     * {@code signal}) : le signal n'est pas perdu s'il arrive pendant que le
+     * thread de remplissage construit une partie
+     */
+    private boolean signale;
+    private volatile boolean arretee;
+
+    /**
+     * Crée la réserve et lance son thread de remplissage
+     */
+    public ReserveParties() {
+        this(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param periode période d'ajustement des tailles visées
+     */
+    ReserveParties(long periode, TimeUnit unite) {
+        int n = NB_JOUEURS_MAX + 1;
+        reserves = new ArrayList<>(n);
+        disponibles = new AtomicInteger[n];
+        tailles = new AtomicInteger[n];
+        demandes = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) {
+            reserves.add(new ConcurrentLinkedQueue<>());
+            disponibles[i] = new AtomicInteger();
+            tailles[i] = new AtomicInteger(i >= NB_JOUEURS_MIN ? TAILLE_MIN : 0);
+            demandes[i] = new AtomicInteger();
+        }
+        periodeMs = unite.toMillis(periode);
+        remplissage = new Thread(this::remplir, "reserve-parties");
+        remplissage.setDaemon(true);
+        remplissage.setPriority(Thread.MIN_PRIORITY);
+        remplissage.start();
+    }
+
+    /**
+     * @return une partie pas encore lancée dont les joueurs portent les noms donnés
+     */
+    public Jeu prendre(String[] nomJoueurs) {
+        int n = nomJoueurs.length;
+        if (n < NB_JOUEURS_MIN || n > NB_JOUEURS_MAX) {
+            throw new IllegalArgumentException("Nombre de joueurs invalide : " + n);
+        }
+        demandes[n].incrementAndGet();
+        Jeu jeu = reserves.get(n).poll();
+        if (jeu == null) {
+            Metriques.get().compteur(Metriques.RESERVE_ECHECS).incrementer();
+            tailles[n].updateAndGet(t -> Math.min(TAILLE_MAX, t + 1));
+            signaler();
+            return new Jeu(nomJoueurs);
+        }
+        disponibles[n].decrementAndGet();
+        Metriques.get().compteur(Metriques.RESERVE_SUCCES).incrementer();
+        signaler();
+        jeu.attribuerSieges(nomJoueurs);
+        return jeu;
+    }
+
+    /**
+     * @return le nombre de parties prêtes pour {@code nbJoueurs} joueurs
+     */
+    public int getDisponibles(int nbJoueurs) {
+        return disponibles[nbJoueurs].get();
+    }
+
+    /**
+     * @return le nombre de parties que la réserve essaie de garder prêtes pour
+     * {@code nbJoueurs} joueurs
+     */
+    public int getTailleVisee(int nbJoueurs) {
+        return tailles[nbJoueurs].get();
+    }
+
+    /**
+     * Arrête le thread de remplissage et vide la réserve
+     */
+    public void arreter() {
+        arretee = true;
+        remplissage.interrupt();
+        for (int i = 0; i < reserves.size(); i++) {
+            reserves.get(i).clear();
+            disponibles[i].set(0);
+        }
+    }
+
+    private void signaler() {
+        synchronized (signal) {
+            signale = true;
+            signal.notify();
+        }
+    }
+
+    private void remplir() {
+        long prochainAjustement = System.currentTimeMillis() + periodeMs;
+        while (!arretee) {
+            for (int n = NB_JOUEURS_MIN; n <= NB_JOUEURS_MAX && !arretee; n++) {
+                while (disponibles[n].get() < tailles[n].get() && !arretee) {
+                    reserves.get(n).add(new Jeu(nomsProvisoires(n)));
+                    disponibles[n].incrementAndGet();
+                }
+                // parties en trop après une baisse de la taille visée
+                while (disponibles[n].get() > tailles[n].get() && reserves.get(n).poll() != null) {
+                    disponibles[n].decrementAndGet();
+                }
+            }
+            long maintenant = System.currentTimeMillis();
+            if (maintenant >= prochainAjustement) {
+                for (int n = NB_JOUEURS_MIN; n <= NB_JOUEURS_MAX; n++) {
+                    if (demandes[n].getAndSet(0) == 0) {
+                        tailles[n].updateAndGet(t -> Math.max(TAILLE_MIN, t - 1));
+                    }
+                }
+                prochainAjustement = maintenant + periodeMs;
+            }
+            try {
+                synchronized (signal) {
+                    if (!signale) {
+                        signal.wait(Math.max(1, prochainAjustement - maintenant));
+                    }
+                    signale = false;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static String[] nomsProvisoires(int nbJoueurs) {
+        String[] noms = new String[nbJoueurs];
+        for (int i = 0; i < nbJoueurs; i++) {
+            noms[i] = "Joueur " + (i + 1);
+        }
+        return noms;
+    }
+}
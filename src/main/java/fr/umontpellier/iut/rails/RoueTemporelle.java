@@ -0,0 +1,163 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minuterie à roue (« hashed wheel timer ») partagée par toutes les parties pour
+ * les délais de décision des joueurs.
+ * <p>
+ * Un seul thread avance d'une case de la roue à chaque tic. Une échéance est
+ * rangée dans la case de sa date d'expiration, avec le nombre de tours de roue
+ * restant avant cette date : planifier, annuler et faire expirer une échéance
+ * coûtent un temps constant, quel que soit le nombre d'échéances en attente
+ * (des dizaines de milliers de parties). La précision est celle d'un tic, ce qui
+ * suffit pour des délais de plusieurs secondes.
+ * <p>
+ * Les actions sont exécutées par le thread de la roue : elles doivent être
+ * courtes et ne pas bloquer.
+ */
+public class RoueTemporelle {
+    private static final int EN_ATTENTE = 0;
+    private static final int ANNULEE = 1;
+    private static final int EXPIREE = 2;
+
+    private static RoueTemporelle partagee;
+
+    /**
+     * Échéance planifiée, qui peut être annulée tant qu'elle n'a pas expiré
+     */
+    public static class Echeance {
+        private final Runnable action;
+        private final long date;
+        private final AtomicInteger etat = new AtomicInteger(EN_ATTENTE);
+        private long toursRestants;
+
+        private Echeance(Runnable action, long date) {
+            this.action = action;
+            this.date = date;
+        }
+
+        /**
+         * @return vrai si l'échéance a été annulée avant d'expirer
+         */
+        public boolean annuler() {
+            return etat.compareAndSet(EN_ATTENTE, ANNULEE);
+        }
+
+        public boolean estExpiree() {
+            return etat.get() == EXPIREE;
+        }
+    }
+
+    private final long dureeTic;
+    private final List<ArrayList<Echeance>> cases;
+    /**
+     * Échéances planifiées depuis les autres threads, rangées dans la roue par
+     * son thread au tic suivant
+     */
+    private final Queue<Echeance> nouvelles = new ConcurrentLinkedQueue<>();
+    private final long debut;
+    private final Thread thread;
+    private long tic;
+    private volatile boolean arretee;
+
+    /**
+     * @param dureeTic durée d'une case en millisecondes
+     * @param nbCases  nombre de cases de la roue
+     */
+    public RoueTemporelle(long dureeTic, int nbCases) {
+        this.dureeTic = TimeUnit.MILLISECONDS.toNanos(dureeTic);
+        cases = new ArrayList<>(nbCases);
+        for (int i = 0; i < nbCases; i++) {
+            cases.add(new ArrayList<>());
+        }
+        debut = System.nanoTime();
+        thread = new Thread(this::tourner, "roue-temporelle");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return la roue partagée par toutes les parties (tics de 100 ms, 512 cases)
+     */
+    public static synchronized RoueTemporelle partagee() {
+        if (partagee == null) {
+            partagee = new RoueTemporelle(100, 512);
+        }
+        return partagee;
+    }
+
+    /**
+     * Planifie une action après un délai
+     */
+    public Echeance planifier(Runnable action, long delai, TimeUnit unite) {
+        Echeance e = new Echeance(action, System.nanoTime() + unite.toNanos(delai));
+        nouvelles.add(e);
+        return e;
+    }
+
+    public void arreter() {
+        arretee = true;
+        thread.interrupt();
+    }
+
+    private void tourner() {
+        while (!arretee) {
+            long prochainTic = debut + (tic + 1) * dureeTic;
+            long attente = prochainTic - System.nanoTime();
+            if (attente > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(attente);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            ranger();
+            expirer(cases.get((int) (tic % cases.size())));
+            tic++;
+        }
+    }
+
+    /**
+     * Range les nouvelles échéances dans la case de leur date d'expiration
+     */
+    private void ranger() {
+        Echeance e;
+        while ((e = nouvelles.poll()) != null) {
+            if (e.etat.get() != EN_ATTENTE) {
+                continue;
+            }
+            // au plus tôt dans la case courante
+            long ticEcheance = Math.max(tic, (e.date - debut + dureeTic - 1) / dureeTic - 1);
+            e.toursRestants = (ticEcheance - tic) / cases.size();
+            cases.get((int) (ticEcheance % cases.size())).add(e);
+        }
+    }
+
+    private void expirer(ArrayList<Echeance> echeances) {
+        Iterator<Echeance> it = echeances.iterator();
+        while (it.hasNext()) {
+            Echeance e = it.next();
+            if (e.etat.get() != EN_ATTENTE) {
+                it.remove();
+            } else if (e.toursRestants > 0) {
+                e.toursRestants--;
+            } else {
+                it.remove();
+                if (e.etat.compareAndSet(EN_ATTENTE, EXPIREE)) {
+                    try {
+                        e.action.run();
+                    } catch (RuntimeException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+}
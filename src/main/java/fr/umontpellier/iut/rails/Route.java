@@ -3,6 +3,13 @@ package fr.umontpellier.iut.rails;
 import java.util.HashMap;
 
 public class Route {
+    /**
+     * Nature d'une route, qui détermine la façon dont elle est payée
+     */
+    public enum Type {
+        ROUTE, FERRY, TUNNEL
+    }
+
     /**
      * Première extrémité
      */
@@ -28,6 +35,11 @@ public class Route {
      * (voir la classe Plateau pour plus de clarté)
      */
     private String nom;
+    /**
+     * Appelé à chaque changement de propriétaire (`null` si personne n'observe la
+     * route, voir {@link ValeursRoutes})
+     */
+    private Runnable surChangementProprietaire;
 
     public Route(Ville ville1, Ville ville2, int longueur, CouleurWagon couleur) {
         this.ville1 = ville1;
@@ -59,7 +71,15 @@ public class Route {
     }
 
     public void setProprietaire(Joueur proprietaire) {
+        boolean change = proprietaire != this.proprietaire;
         this.proprietaire = proprietaire;
+        if (change && surChangementProprietaire != null) {
+            surChangementProprietaire.run();
+        }
+    }
+
+    void setSurChangementProprietaire(Runnable surChangementProprietaire) {
+        this.surChangementProprietaire = surChangementProprietaire;
     }
 
     public String getNom() {
@@ -91,19 +111,51 @@ public class Route {
         return data;
     }
 
-    public boolean estFerry(){
-        boolean res = false;
-
-        res = this.getClass().equals((new Ferry(new Ville("nom"), new Ville("nom"), 1, CouleurWagon.ROUGE, 3)).getClass());
+    /**
+     * @return la nature de la route (redéfinie par les sous-classes)
+     */
+    public Type getType() {
+        return Type.ROUTE;
+    }
 
-        return res;
+    /**
+     * @return le nombre de locomotives qui doivent obligatoirement faire partie du
+     * paiement de la route (0 sauf pour les ferries)
+     */
+    public int getNbLocomotivesImposees() {
+        return 0;
     }
 
-    public boolean estTunnel(){
-        boolean res = false;
+    /**
+     * Indique si une main peut payer le coût initial de la route (sans le
+     * supplément éventuel d'un tunnel), sans allocation.
+     *
+     * @param main nombre de cartes de chaque couleur dans la main, indexé par
+     *             {@code CouleurWagon.ordinal()} (voir {@link CouleurWagon#compter})
+     */
+    public boolean peutEtrePayeePar(int[] main) {
+        int locomotives = main[CouleurWagon.LOCOMOTIVE.ordinal()];
+        int imposees = getNbLocomotivesImposees();
+        if (locomotives < imposees) {
+            return false;
+        }
+        int couleurs = longueur - imposees;
+        if (couleur != CouleurWagon.GRIS) {
+            return Math.min(main[couleur.ordinal()], couleurs) + locomotives >= longueur;
+        }
+        // route grise : la couleur la plus présente de la main
+        int max = 0;
+        for (int i = 0; i < CouleurWagon.NB_COULEURS_SIMPLES; i++) {
+            max = Math.max(max, main[i]);
+        }
+        return Math.min(max, couleurs) + locomotives >= longueur;
+    }
 
-        res = this.getClass().equals((new Tunnel(new Ville("nom"), new Ville("nom"), 1, CouleurWagon.ROUGE)).getClass());
+    public boolean estFerry(){
+        return getType() == Type.FERRY;
+    }
 
-        return res;
+    public boolean estTunnel(){
+        return getType() == Type.TUNNEL;
     }
 }
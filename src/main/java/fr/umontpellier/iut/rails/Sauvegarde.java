@@ -0,0 +1,63 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forme compacte d'une partie hibernée, sérialisée en JSON (voir
+ * {@link Hibernation}). Les listes de cartes wagon sont codées par une chaîne
+ * d'un caractère par carte (numéro de la couleur, {@code -} pour une carte
+ * visible absente) et les propriétaires des routes et des villes par le numéro
+ * du joueur (-1 si libre). Le plateau n'est pas sauvegardé : il est recréé.
+ */
+class Sauvegarde {
+    static class JoueurSauvegarde {
+        String nom;
+        Joueur.Couleur couleur;
+        int score;
+        int nbGares;
+        int nbWagons;
+        String cartesWagon;
+        String cartesWagonPosees;
+        List<Destination> destinations;
+        /**
+         * Classe du décideur (`null` pour un joueur humain)
+         */
+        String decideur;
+    }
+
+    String identifiant;
+    int nbToursMax;
+    boolean partieCommencee;
+    int indexJoueurTour;
+    int nbTours;
+    boolean arretDuJeu;
+    int dernierTourDuJeu;
+    boolean tourEnCours;
+    List<JoueurSauvegarde> joueurs = new ArrayList<>();
+    String pileCartesWagon;
+    String cartesWagonVisibles;
+    String defausseCartesWagon;
+    List<Destination> pileDestinations;
+    List<Destination> longDestinationList;
+    int[] proprietairesRoutes;
+    int[] proprietairesVilles;
+    List<String> log;
+
+    static String coder(List<CouleurWagon> cartes) {
+        StringBuilder s = new StringBuilder(cartes.size());
+        for (CouleurWagon c : cartes) {
+            s.append(c == null ? '-' : (char) ('0' + c.ordinal()));
+        }
+        return s.toString();
+    }
+
+    static List<CouleurWagon> decoder(String cartes) {
+        ArrayList<CouleurWagon> liste = new ArrayList<>(cartes.length());
+        for (int i = 0; i < cartes.length(); i++) {
+            char c = cartes.charAt(i);
+            liste.add(c == '-' ? null : CouleurWagon.values()[c - '0']);
+        }
+        return liste;
+    }
+}
@@ -0,0 +1,33 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Collection;
+
+/**
+ * Liaison entre une partie et un joueur externe qui n'est ni un client
+ * websocket ni un {@link Decideur} (bot dans un autre thread ou un autre
+ * processus).
+ * <p>
+ * Le transport est branché sur un siège ({@link Jeu#brancher}). À chaque choix
+ * du joueur, la partie lui transmet la demande après le prompt (un transport
+ * branché pendant un choix du joueur reçoit ce choix dès le branchement), et le
+ * transport renvoie la réponse par {@link Jeu#proposerEntree} : elle est
+ * vérifiée comme celle d'un client et soumise au délai de décision. Les
+ * transports ne sont pas conservés par l'hibernation.
+ */
+public interface Transport {
+    /**
+     * Transmet un choix au joueur (appelée par le thread de la partie, qui attend
+     * ensuite la réponse, ou par {@link Jeu#brancher} : la méthode ne doit pas
+     * bloquer). Les paramètres sont
+     * ceux de {@code Joueur.choisir}.
+     */
+    void demander(Joueur joueur, String instruction, Collection<String> choix, Collection<String> boutons,
+                  boolean peutPasser);
+
+    /**
+     * Appelée quand le thread de la partie se termine (partie terminée, annulée
+     * ou hibernée)
+     */
+    default void fermer() {
+    }
+}
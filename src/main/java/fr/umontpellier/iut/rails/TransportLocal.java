@@ -0,0 +1,104 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport en mémoire pour un bot qui tourne dans le même processus, dans son
+ * propre thread : les demandes sont déposées dans une file sans être codées,
+ * avec les objets de la partie (le bot peut lire l'état du joueur directement,
+ * le thread de la partie attend sa réponse).
+ */
+public class TransportLocal implements Transport {
+    /**
+     * Choix demandé au joueur. Les collections sont celles de la partie : elles
+     * ne doivent pas être modifiées, et ne sont valables que jusqu'à la réponse.
+     */
+    public static class Demande {
+        private final Joueur joueur;
+        private final String instruction;
+        private final Collection<String> choix;
+        private final Collection<String> boutons;
+        private final boolean peutPasser;
+
+        private Demande(Joueur joueur, String instruction, Collection<String> choix, Collection<String> boutons,
+                        boolean peutPasser) {
+            this.joueur = joueur;
+            this.instruction = instruction;
+            this.choix = choix;
+            this.boutons = boutons;
+            this.peutPasser = peutPasser;
+        }
+
+        public Joueur getJoueur() {
+            return joueur;
+        }
+
+        public String getInstruction() {
+            return instruction;
+        }
+
+        public Collection<String> getChoix() {
+            return choix;
+        }
+
+        public Collection<String> getBoutons() {
+            return boutons;
+        }
+
+        public boolean peutPasser() {
+            return peutPasser;
+        }
+
+        /**
+         * Envoie la réponse à la partie
+         *
+         * @return faux si la réponse est refusée (choix invalide, ou réponse déjà
+         * donnée par l'action par défaut)
+         */
+        public boolean repondre(String reponse) {
+            return joueur.getJeu().proposerEntree(joueur.getNom(), reponse);
+        }
+    }
+
+    /**
+     * Marque la fin des demandes dans la file
+     */
+    private static final Demande FIN = new Demande(null, null, null, null, false);
+
+    private final BlockingQueue<Demande> demandes = new LinkedBlockingQueue<>();
+    private volatile boolean ferme;
+
+    @Override
+    public void demander(Joueur joueur, String instruction, Collection<String> choix, Collection<String> boutons,
+                        boolean peutPasser) {
+        demandes.add(new Demande(joueur, instruction, choix, boutons, peutPasser));
+    }
+
+    @Override
+    public void fermer() {
+        ferme = true;
+        demandes.add(FIN);
+    }
+
+    public boolean estFerme() {
+        return ferme;
+    }
+
+    /**
+     * Attend la prochaine demande de la partie
+     *
+     * @return la demande, ou `null` si le délai est écoulé ou si la partie est
+     * finie
+     */
+    public Demande prochaineDemande(long delai, TimeUnit unite) throws InterruptedException {
+        Demande demande = demandes.poll(delai, unite);
+        if (demande == FIN) {
+            demandes.add(FIN);
+            return null;
+        }
+        return demande;
+    }
+}
@@ -10,4 +10,9 @@ public class Tunnel extends Route {
         return "[" + super.toString() + "]";
     }
 
+    @Override
+    public Type getType() {
+        return Type.TUNNEL;
+    }
+
 }
@@ -0,0 +1,182 @@
+package fr.umontpellier.iut.rails;
+
+import java.util.*;
+
+/**
+ * Calcule, pour un joueur, la valeur de chaque route encore libre du plateau.
+ * <p>
+ * La valeur d'une route est la somme des points des destinations du joueur pour
+ * lesquelles la route se trouve sur au moins un chemin de coût minimal entre les
+ * deux villes de la destination. Le coût d'un chemin est le nombre de wagons
+ * qu'il reste à poser : les routes déjà capturées par le joueur coûtent 0, celles
+ * capturées par un autre joueur sont infranchissables.
+ * <p>
+ * Les valeurs sont mémorisées par joueur et ne sont recalculées qu'après une
+ * capture de route (signalée par les routes, voir
+ * {@link Route#setSurChangementProprietaire}) ou un changement dans les
+ * destinations du joueur : le recalcul est fait à la demande suivante, en
+ * entier (quelques dizaines de villes par destination).
+ */
+public class ValeursRoutes {
+    private static final int INFINI = Integer.MAX_VALUE / 2;
+
+    /**
+     * Indice de chaque ville dans les tableaux de distances (clé : nom en minuscules)
+     */
+    private final Map<String, Integer> indicesVilles;
+    /**
+     * Routes du plateau, dans l'ordre de {@code Jeu.getRoutes()}
+     */
+    private final List<Route> routes;
+    /**
+     * Indices des deux extrémités de chaque route
+     */
+    private final int[] extremites1;
+    private final int[] extremites2;
+    /**
+     * Pour chaque ville, indices des routes qui la touchent
+     */
+    private final int[][] routesParVille;
+    /**
+     * Valeurs mémorisées pour chaque joueur
+     */
+    private final Map<Joueur, Memoire> memoires;
+    /**
+     * Nombre de changements de propriétaire des routes depuis la création
+     */
+    private long nbCaptures;
+
+    /**
+     * Valeurs calculées pour un joueur, avec l'état dont elles dépendent
+     */
+    private static class Memoire {
+        private final long nbCaptures;
+        private final List<Destination> destinations;
+        private final Map<Route, Integer> valeurs;
+
+        private Memoire(long nbCaptures, List<Destination> destinations, Map<Route, Integer> valeurs) {
+            this.nbCaptures = nbCaptures;
+            this.destinations = destinations;
+            this.valeurs = valeurs;
+        }
+    }
+
+    public ValeursRoutes(Jeu jeu) {
+        indicesVilles = new HashMap<>();
+        for (Ville v : jeu.getVilles()) {
+            indicesVilles.put(v.getNom().toLowerCase(), indicesVilles.size());
+        }
+        routes = jeu.getRoutes();
+        extremites1 = new int[routes.size()];
+        extremites2 = new int[routes.size()];
+        List<List<Integer>> adjacence = new ArrayList<>();
+        for (int i = 0; i < indicesVilles.size(); i++) {
+            adjacence.add(new ArrayList<>());
+        }
+        for (int i = 0; i < routes.size(); i++) {
+            extremites1[i] = indicesVilles.get(routes.get(i).getVille1().getNom().toLowerCase());
+            extremites2[i] = indicesVilles.get(routes.get(i).getVille2().getNom().toLowerCase());
+            adjacence.get(extremites1[i]).add(i);
+            adjacence.get(extremites2[i]).add(i);
+            routes.get(i).setSurChangementProprietaire(() -> nbCaptures++);
+        }
+        routesParVille = new int[adjacence.size()][];
+        for (int i = 0; i < adjacence.size(); i++) {
+            routesParVille[i] = adjacence.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        memoires = new HashMap<>();
+    }
+
+    /**
+     * Renvoie la valeur des routes libres pour le joueur (seules les routes de
+     * valeur non nulle apparaissent dans le résultat).
+     */
+    public Map<Route, Integer> getValeurs(Joueur joueur) {
+        Memoire memoire = memoires.get(joueur);
+        // les destinations sont modifiées directement dans la liste du joueur :
+        // elles sont comparées (quelques éléments) à celles du dernier calcul
+        if (memoire == null || memoire.nbCaptures != nbCaptures
+                || !memoire.destinations.equals(joueur.getDestinations())) {
+            memoire = new Memoire(nbCaptures, new ArrayList<>(joueur.getDestinations()), calculer(joueur));
+            memoires.put(joueur, memoire);
+        }
+        return memoire.valeurs;
+    }
+
+    /**
+     * @return une représentation simple (nom de route -> valeur) pour l'interface
+     */
+    public Object asPOJO(Joueur joueur) {
+        HashMap<String, Object> data = new HashMap<>();
+        for (Map.Entry<Route, Integer> e : getValeurs(joueur).entrySet()) {
+            data.put(e.getKey().getNom(), e.getValue());
+        }
+        return data;
+    }
+
+    private Map<Route, Integer> calculer(Joueur joueur) {
+        Map<Route, Integer> resultat = new HashMap<>();
+        for (Destination d : joueur.getDestinations()) {
+            Integer depart = indicesVilles.get(d.getVille1().toLowerCase());
+            Integer arrivee = indicesVilles.get(d.getVille2().toLowerCase());
+            if (depart == null || arrivee == null) {
+                continue;
+            }
+            int[] distDepart = distances(depart, joueur);
+            int[] distArrivee = distances(arrivee, joueur);
+            int total = distDepart[arrivee];
+            if (total >= INFINI) {
+                continue;
+            }
+            for (int i = 0; i < routes.size(); i++) {
+                Route r = routes.get(i);
+                if (r.getProprietaire() != null) {
+                    continue;
+                }
+                int u = extremites1[i];
+                int v = extremites2[i];
+                int l = r.getLongueur();
+                if (distDepart[u] + l + distArrivee[v] == total || distDepart[v] + l + distArrivee[u] == total) {
+                    resultat.merge(r, d.getValeur(), Integer::sum);
+                }
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Algorithme de Dijkstra (version tableau, le plateau ne compte qu'une
+     * cinquantaine de villes)
+     */
+    private int[] distances(int source, Joueur joueur) {
+        int n = indicesVilles.size();
+        int[] dist = new int[n];
+        boolean[] vus = new boolean[n];
+        Arrays.fill(dist, INFINI);
+        dist[source] = 0;
+        for (int k = 0; k < n; k++) {
+            int u = -1;
+            for (int i = 0; i < n; i++) {
+                if (!vus[i] && (u == -1 || dist[i] < dist[u])) {
+                    u = i;
+                }
+            }
+            if (u == -1 || dist[u] >= INFINI) {
+                break;
+            }
+            vus[u] = true;
+            for (int i : routesParVille[u]) {
+                Route r = routes.get(i);
+                if (r.getProprietaire() != null && r.getProprietaire() != joueur) {
+                    continue;
+                }
+                int autre = extremites1[i] == u ? extremites2[i] : extremites1[i];
+                int cout = r.getProprietaire() == joueur ? 0 : r.getLongueur();
+                if (dist[u] + cout < dist[autre]) {
+                    dist[autre] = dist[u] + cout;
+                }
+            }
+        }
+        return dist;
+    }
+}
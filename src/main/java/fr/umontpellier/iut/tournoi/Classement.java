@@ -0,0 +1,53 @@
+package fr.umontpellier.iut.tournoi;
+
+import java.util.List;
+
+/**
+ * Mise à jour des classements Elo après une partie à plusieurs joueurs.
+ * <p>
+ * Une partie à n joueurs est vue comme n(n-1)/2 duels : chaque joueur est comparé
+ * à chacun des autres selon son score, et le coefficient K est divisé par (n-1)
+ * pour qu'une partie compte autant qu'un duel quel que soit le nombre de joueurs.
+ */
+public class Classement {
+    /**
+     * Coefficient K de la formule Elo
+     */
+    private final double k;
+
+    public Classement(double k) {
+        this.k = k;
+    }
+
+    public Classement() {
+        this(32);
+    }
+
+    /**
+     * Met à jour le classement des participants d'une partie.
+     *
+     * @param participants les participants, dans un ordre quelconque (celui des
+     *                     sièges pour le tournoi)
+     * @param scores       score final de chaque participant, dans le même ordre
+     */
+    public synchronized void mettreAJour(List<Participant> participants, int[] scores) {
+        int n = participants.size();
+        double[] elos = new double[n];
+        int meilleur = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            elos[i] = participants.get(i).getElo();
+            meilleur = Math.max(meilleur, scores[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            double variation = 0;
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    double attendu = 1 / (1 + Math.pow(10, (elos[j] - elos[i]) / 400));
+                    double obtenu = scores[i] > scores[j] ? 1 : scores[i] == scores[j] ? 0.5 : 0;
+                    variation += obtenu - attendu;
+                }
+            }
+            participants.get(i).enregistrer(k / (n - 1) * variation, scores[i] == meilleur);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package fr.umontpellier.iut.tournoi;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Écrit le résultat de chaque partie dès qu'elle se termine, au format CSV ou JSON
+ * (un objet par ligne) selon l'extension du fichier.
+ */
+public class EcrivainResultats implements Closeable {
+    private final Writer sortie;
+    private final boolean json;
+    private final Gson gson = new Gson();
+
+    public EcrivainResultats(File fichier) throws IOException {
+        json = fichier.getName().endsWith(".json");
+        sortie = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fichier), StandardCharsets.UTF_8));
+        if (!json) {
+            sortie.write("partie;joueurs;scores;gagnant;dureeMs;erreur\n");
+            sortie.flush();
+        }
+    }
+
+    /**
+     * Enregistre le résultat d'une partie
+     *
+     * @param numero       numéro de la partie
+     * @param participants les participants, dans l'ordre des places autour de la table
+     * @param scores       score final de chaque participant
+     * @param dureeMs      durée de la partie en millisecondes
+     * @param erreur       message d'erreur si la partie a été interrompue (`null` sinon)
+     */
+    public synchronized void ecrire(long numero, List<Participant> participants, int[] scores, long dureeMs,
+                                    String erreur) throws IOException {
+        int gagnant = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[gagnant]) {
+                gagnant = i;
+            }
+        }
+        if (json) {
+            HashMap<String, Object> data = new HashMap<>();
+            data.put("partie", numero);
+            data.put("joueurs", participants.stream().map(Participant::getNom).toArray());
+            data.put("scores", scores);
+            data.put("gagnant", participants.get(gagnant).getNom());
+            data.put("dureeMs", dureeMs);
+            if (erreur != null) {
+                data.put("erreur", erreur);
+            }
+            sortie.write(gson.toJson(data));
+        } else {
+            StringJoiner noms = new StringJoiner(",");
+            StringJoiner points = new StringJoiner(",");
+            for (int i = 0; i < scores.length; i++) {
+                noms.add(participants.get(i).getNom());
+                points.add(String.valueOf(scores[i]));
+            }
+            sortie.write(String.format("%d;%s;%s;%s;%d;%s", numero, noms, points, participants.get(gagnant).getNom(),
+                    dureeMs, erreur == null ? "" : erreur.replace(';', ',')));
+        }
+        sortie.write('\n');
+        sortie.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sortie.close();
+    }
+}
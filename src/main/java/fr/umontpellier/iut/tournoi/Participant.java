@@ -0,0 +1,66 @@
+package fr.umontpellier.iut.tournoi;
+
+import fr.umontpellier.iut.rails.Decideur;
+
+import java.util.function.Supplier;
+
+/**
+ * Participant d'un tournoi : un nom, une façon de créer un décideur pour chaque
+ * partie et le classement courant.
+ */
+public class Participant {
+    /**
+     * Classement Elo initial
+     */
+    public static final double ELO_INITIAL = 1500;
+
+    private final String nom;
+    /**
+     * Crée un nouveau décideur pour chaque partie (les décideurs peuvent garder un
+     * état pendant une partie)
+     */
+    private final Supplier<Decideur> fabrique;
+    private double elo;
+    private int nbParties;
+    private int nbVictoires;
+
+    public Participant(String nom, Supplier<Decideur> fabrique) {
+        this.nom = nom;
+        this.fabrique = fabrique;
+        elo = ELO_INITIAL;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public Decideur creerDecideur() {
+        return fabrique.get();
+    }
+
+    public synchronized double getElo() {
+        return elo;
+    }
+
+    public synchronized int getNbParties() {
+        return nbParties;
+    }
+
+    public synchronized int getNbVictoires() {
+        return nbVictoires;
+    }
+
+    synchronized void enregistrer(double variationElo, boolean victoire) {
+        elo += variationElo;
+        nbParties++;
+        if (victoire) {
+            nbVictoires++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-15s Elo %7.1f  %6d parties  %6d victoires", nom, getElo(), getNbParties(),
+                getNbVictoires());
+    }
+}
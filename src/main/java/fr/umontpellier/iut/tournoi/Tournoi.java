@@ -0,0 +1,214 @@
+package fr.umontpellier.iut.tournoi;
+
+import fr.umontpellier.iut.bots.DecideurAleatoire;
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import fr.umontpellier.iut.rails.EtatPartie;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Joueur;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tournoi entre bots : planifie des parties de 2 à 5 joueurs, les exécute en
+ * parallèle et met à jour le classement Elo des participants.
+ * <p>
+ * Deux formats sont possibles :
+ * - toutes rondes : toutes les tables possibles de n participants sont jouées à
+ * tour de rôle ;
+ * - suisse : à chaque ronde les participants sont triés par classement et les
+ * participants de classement voisin jouent ensemble.
+ */
+public class Tournoi implements AutoCloseable {
+    public enum Format {
+        TOUTES_RONDES, SUISSE
+    }
+
+    private final List<Participant> participants;
+    private final int nbJoueursParTable;
+    private final Format format;
+    private final Classement classement;
+    private final EcrivainResultats ecrivain;
+    /**
+     * Pool à vol de tâches qui exécute les parties
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Nombre maximum de tours de joueur d'une partie
+     */
+    private int nbToursMax;
+    private final AtomicLong numeroPartie;
+
+    public Tournoi(List<Participant> participants, int nbJoueursParTable, Format format, EcrivainResultats ecrivain) {
+        if (nbJoueursParTable < 2 || nbJoueursParTable > Joueur.Couleur.values().length) {
+            throw new IllegalArgumentException("Une partie se joue de 2 à " + Joueur.Couleur.values().length
+                    + " joueurs");
+        }
+        if (participants.size() < nbJoueursParTable) {
+            throw new IllegalArgumentException("Pas assez de participants pour une table de " + nbJoueursParTable);
+        }
+        this.participants = new ArrayList<>(participants);
+        this.nbJoueursParTable = nbJoueursParTable;
+        this.format = format;
+        this.ecrivain = ecrivain;
+        classement = new Classement();
+        pool = new ForkJoinPool();
+        nbToursMax = 1000;
+        numeroPartie = new AtomicLong();
+    }
+
+    public void setNbToursMax(int nbToursMax) {
+        this.nbToursMax = nbToursMax;
+    }
+
+    /**
+     * @return les participants, du mieux classé au moins bien classé
+     */
+    public List<Participant> getClassement() {
+        List<Participant> resultat = new ArrayList<>(participants);
+        resultat.sort(Comparator.comparingDouble(Participant::getElo).reversed());
+        return resultat;
+    }
+
+    /**
+     * Joue {@code nbParties} parties selon le format du tournoi (peut être
+     * appelée plusieurs fois, jusqu'à {@link #close()})
+     */
+    public void jouer(int nbParties) {
+        if (format == Format.TOUTES_RONDES) {
+            List<List<Participant>> tables = new ArrayList<>();
+            ajouterTables(0, new ArrayList<>(), tables);
+            List<Future<?>> parties = new ArrayList<>();
+            for (int i = 0; i < nbParties; i++) {
+                List<Participant> table = tables.get(i % tables.size());
+                parties.add(pool.submit(() -> jouerPartie(table)));
+            }
+            attendre(parties);
+        } else {
+            int joues = 0;
+            while (joues < nbParties) {
+                List<Future<?>> parties = new ArrayList<>();
+                List<Participant> ordre = getClassement();
+                for (int i = 0; i + nbJoueursParTable <= ordre.size() && joues < nbParties; i += nbJoueursParTable) {
+                    List<Participant> table = ordre.subList(i, i + nbJoueursParTable);
+                    parties.add(pool.submit(() -> jouerPartie(table)));
+                    joues++;
+                }
+                attendre(parties);
+                Collections.rotate(participants, 1); // varie les tables quand les classements sont égaux
+            }
+        }
+    }
+
+    /**
+     * Arrête les threads du tournoi : il ne peut plus jouer de parties ensuite
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Ajoute à {@code tables} toutes les combinaisons de participants de taille
+     * {@code nbJoueursParTable} qui complètent {@code table}
+     */
+    private void ajouterTables(int debut, List<Participant> table, List<List<Participant>> tables) {
+        if (table.size() == nbJoueursParTable) {
+            tables.add(new ArrayList<>(table));
+            return;
+        }
+        for (int i = debut; i < participants.size(); i++) {
+            table.add(participants.get(i));
+            ajouterTables(i + 1, table, tables);
+            table.remove(table.size() - 1);
+        }
+    }
+
+    private static void attendre(List<Future<?>> parties) {
+        for (Future<?> partie : parties) {
+            try {
+                partie.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Joue une partie entre les participants (placés dans un ordre aléatoire),
+     * met à jour leur classement et écrit le résultat
+     */
+    private void jouerPartie(List<Participant> table) {
+        List<Participant> places = new ArrayList<>(table);
+        Collections.shuffle(places);
+        String[] noms = new String[places.size()];
+        for (int i = 0; i < noms.length; i++) {
+            noms[i] = places.get(i).getNom();
+        }
+
+        long debut = System.nanoTime();
+        Jeu jeu = new Jeu(noms);
+        jeu.setNbToursMax(nbToursMax);
+        for (int i = 0; i < noms.length; i++) {
+            jeu.getJoueurs().get(i).setDecideur(places.get(i).creerDecideur());
+        }
+        jeu.run();
+        // une partie annulée (erreur d'un décideur ou du moteur) ne compte pas pour le classement
+        String erreur = null;
+        if (jeu.getEtat() == EtatPartie.ANNULEE) {
+            erreur = jeu.getErreur() == null ? "partie annulée" : jeu.getErreur().toString();
+        }
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+
+        int[] scores = new int[noms.length];
+        for (int i = 0; i < noms.length; i++) {
+            scores[i] = jeu.getJoueurs().get(i).getScore();
+        }
+        if (erreur == null) {
+            classement.mettreAJour(places, scores);
+        }
+        try {
+            ecrivain.ecrire(numeroPartie.incrementAndGet(), places, scores, dureeMs, erreur);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lance un tournoi entre les bots disponibles.
+     * <p>
+     * Arguments (optionnels) : format ("rondes" ou "suisse"), nombre de joueurs par
+     * table, nombre de parties, fichier de résultats (.csv ou .json)
+     */
+    public static void main(String[] args) throws IOException {
+        Format format = args.length > 0 && args[0].equalsIgnoreCase("suisse") ? Format.SUISSE : Format.TOUTES_RONDES;
+        int nbJoueurs = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int nbParties = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        File fichier = new File(args.length > 3 ? args[3] : "resultats.csv");
+
+        List<Participant> participants = new ArrayList<>();
+        for (int i = 1; i <= Math.max(3, nbJoueurs); i++) {
+            participants.add(new Participant("Glouton-" + i, DecideurGlouton::new));
+            participants.add(new Participant("Aleatoire-" + i, DecideurAleatoire::new));
+        }
+
+        try (EcrivainResultats ecrivain = new EcrivainResultats(fichier);
+             Tournoi tournoi = new Tournoi(participants, nbJoueurs, format, ecrivain)) {
+            long debut = System.currentTimeMillis();
+            tournoi.jouer(nbParties);
+            System.out.printf("%d parties jouées en %d ms%n", nbParties, System.currentTimeMillis() - debut);
+            for (Participant p : tournoi.getClassement()) {
+                System.out.println(p);
+            }
+        }
+    }
+}
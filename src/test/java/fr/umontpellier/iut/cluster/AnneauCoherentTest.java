@@ -0,0 +1,62 @@
+package fr.umontpellier.iut.cluster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class AnneauCoherentTest {
+    private static final List<String> NOEUDS = List.of("localhost:3240", "localhost:3250", "localhost:3260");
+
+    @Test
+    void testClesRepartiesEntreLesNoeuds() {
+        AnneauCoherent anneau = new AnneauCoherent(NOEUDS);
+        Map<String, Integer> nbCles = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            nbCles.merge(anneau.noeud("partie-" + i), 1, Integer::sum);
+        }
+        assertEquals(3, nbCles.size());
+        for (int n : nbCles.values()) {
+            assertTrue(n > 7000 && n < 13000, "répartition : " + nbCles);
+        }
+        // même liste de nœuds, même anneau
+        assertEquals(anneau.noeud("partie-42"), new AnneauCoherent(List.of(NOEUDS.get(2), NOEUDS.get(0), NOEUDS.get(1))).noeud("partie-42"));
+    }
+
+    @Test
+    void testAjoutDUnNoeudDeplacePeuDeCles() {
+        AnneauCoherent anneau = new AnneauCoherent(NOEUDS);
+        Map<String, String> avant = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            avant.put("partie-" + i, anneau.noeud("partie-" + i));
+        }
+        anneau.ajouter("localhost:3270");
+        int deplacees = 0;
+        for (Map.Entry<String, String> e : avant.entrySet()) {
+            String apres = anneau.noeud(e.getKey());
+            if (!apres.equals(e.getValue())) {
+                // une clé ne peut aller que vers le nouveau nœud
+                assertEquals("localhost:3270", apres);
+                deplacees++;
+            }
+        }
+        assertTrue(deplacees > 1500 && deplacees < 3500, deplacees + " clés déplacées");
+
+        anneau.retirer("localhost:3270");
+        assertEquals(avant.get("partie-7"), anneau.noeud("partie-7"));
+    }
+
+    @Test
+    void testCandidatsDistincts() {
+        AnneauCoherent anneau = new AnneauCoherent(NOEUDS);
+        List<String> candidats = anneau.candidats("salon:3", 2);
+        assertEquals(2, candidats.size());
+        assertNotEquals(candidats.get(0), candidats.get(1));
+        assertEquals(anneau.noeud("salon:3"), candidats.get(0));
+        assertEquals(3, anneau.candidats("salon:3", 5).size());
+        assertNull(new AnneauCoherent(List.of()).noeud("x"));
+    }
+}
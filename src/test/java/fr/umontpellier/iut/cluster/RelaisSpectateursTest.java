@@ -0,0 +1,146 @@
+package fr.umontpellier.iut.cluster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.*;
+import javax.websocket.server.ServerEndpoint;
+
+import fr.umontpellier.iut.gui.ClientConnecte;
+import fr.umontpellier.iut.gui.Trame;
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.server.Server;
+import org.junit.jupiter.api.Test;
+
+public class RelaisSpectateursTest {
+    private static final AtomicInteger nbAbonnements = new AtomicInteger();
+
+    /**
+     * Source de test : envoie à chaque abonné un état compressé qui reprend les
+     * paramètres de connexion
+     */
+    @ServerEndpoint(value = "/")
+    public static class Source {
+        @OnOpen
+        public void onOpen(Session session) throws IOException {
+            if (session.getQueryString().endsWith("partie=inconnue")) {
+                session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Partie inconnue"));
+                return;
+            }
+            nbAbonnements.incrementAndGet();
+            ClientConnecte client = new ClientConnecte(session);
+            client.setProtocole(ClientConnecte.Protocole.GZIP);
+            client.envoyer(new Trame(session.getQueryString()));
+        }
+    }
+
+    @Test
+    void testUnSeulAbonnementParPartieEtChainage() throws Exception {
+        nbAbonnements.set(0);
+        int portSource = portLibre();
+        Server source = new Server("localhost", portSource, "/source", Source.class);
+        source.start();
+        int portRelais = portLibre();
+        RelaisSpectateurs relais = new RelaisSpectateurs("localhost", portRelais, "/relais",
+                "localhost:" + portSource + "/source");
+        relais.demarrer();
+        int portSecond = portLibre();
+        RelaisSpectateurs second = new RelaisSpectateurs("localhost", portSecond, "/second",
+                "localhost:" + portRelais + "/relais");
+        second.demarrer();
+        try {
+            String attendu = "audience=spectateur&protocole=gzip&partie=abc";
+            BlockingQueue<String> recus1 = new LinkedBlockingQueue<>();
+            Session s1 = connecter("ws://localhost:" + portRelais + "/relais/?partie=abc", recus1);
+            assertEquals(attendu, recus1.poll(5, TimeUnit.SECONDS));
+            BlockingQueue<String> recus2 = new LinkedBlockingQueue<>();
+            connecter("ws://localhost:" + portRelais + "/relais/?partie=abc", recus2);
+            assertEquals(attendu, recus2.poll(5, TimeUnit.SECONDS));
+            // spectateur d'un relais abonné au premier relais
+            BlockingQueue<String> recus3 = new LinkedBlockingQueue<>();
+            connecter("ws://localhost:" + portSecond + "/second/?partie=abc", recus3);
+            assertEquals(attendu, recus3.poll(5, TimeUnit.SECONDS));
+
+            assertEquals(1, nbAbonnements.get());
+            assertEquals(1, relais.getNbFlux());
+            assertEquals(3, relais.getNbSpectateurs("abc"));
+
+            s1.close();
+            long fin = System.currentTimeMillis() + 5000;
+            while (relais.getNbSpectateurs("abc") > 2 && System.currentTimeMillis() < fin) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, relais.getNbSpectateurs("abc"));
+        } finally {
+            second.arreter();
+            relais.arreter();
+            source.stop();
+        }
+    }
+
+    @Test
+    void testPartiesInconnuesEtNombreDeFluxLimite() throws Exception {
+        int portSource = portLibre();
+        Server source = new Server("localhost", portSource, "/source2", Source.class);
+        source.start();
+        int portRelais = portLibre();
+        RelaisSpectateurs relais = new RelaisSpectateurs("localhost", portRelais, "/relais2",
+                "localhost:" + portSource + "/source2", 1);
+        relais.demarrer();
+        try {
+            BlockingQueue<CloseReason> fermetures = new LinkedBlockingQueue<>();
+            connecter("ws://localhost:" + portRelais + "/relais2/?partie=inconnue", new LinkedBlockingQueue<>(),
+                    fermetures);
+            assertEquals("Partie inconnue", fermetures.poll(5, TimeUnit.SECONDS).getReasonPhrase());
+            assertEquals(0, relais.getNbFlux());
+
+            BlockingQueue<String> recus = new LinkedBlockingQueue<>();
+            connecter("ws://localhost:" + portRelais + "/relais2/?partie=abc", recus);
+            assertNotNull(recus.poll(5, TimeUnit.SECONDS));
+            connecter("ws://localhost:" + portRelais + "/relais2/?partie=def", new LinkedBlockingQueue<>(),
+                    fermetures);
+            assertEquals("Relais complet", fermetures.poll(5, TimeUnit.SECONDS).getReasonPhrase());
+            assertEquals(1, relais.getNbFlux());
+        } finally {
+            relais.arreter();
+            source.stop();
+        }
+    }
+
+    private static Session connecter(String adresse, BlockingQueue<String> recus) throws Exception {
+        return connecter(adresse, recus, new LinkedBlockingQueue<>());
+    }
+
+    private static Session connecter(String adresse, BlockingQueue<String> recus,
+                                     BlockingQueue<CloseReason> fermetures) throws Exception {
+        return ClientManager.createClient().connectToServer(new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+                session.addMessageHandler(new MessageHandler.Whole<String>() {
+                    @Override
+                    public void onMessage(String message) {
+                        recus.add(message);
+                    }
+                });
+            }
+
+            @Override
+            public void onClose(Session session, CloseReason raison) {
+                fermetures.add(raison);
+            }
+        }, ClientEndpointConfig.Builder.create().build(), new URI(adresse));
+    }
+
+    private static int portLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
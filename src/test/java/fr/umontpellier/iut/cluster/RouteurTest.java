@@ -0,0 +1,93 @@
+package fr.umontpellier.iut.cluster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.*;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.server.Server;
+import org.junit.jupiter.api.Test;
+
+public class RouteurTest {
+    /**
+     * Nœud de test : renvoie chaque message suivi des paramètres de connexion
+     */
+    @ServerEndpoint(value = "/")
+    public static class Echo {
+        @OnMessage
+        public String onMessage(String message, Session session) {
+            return message + "?" + session.getQueryString();
+        }
+    }
+
+    @Test
+    void testConnexionRelayeeVersLeNoeud() throws Exception {
+        int portNoeud = portLibre();
+        // contexte distinct de celui du routeur (les serveurs d'un même processus
+        // partagent leurs chemins)
+        Server noeud = new Server("localhost", portNoeud, "/noeud", Echo.class);
+        noeud.start();
+        String adresseNoeud = "localhost:" + portNoeud + "/noeud";
+        int portRouteur = portLibre();
+        Routeur routeur = new Routeur("localhost", portRouteur, List.of(adresseNoeud));
+        routeur.demarrer();
+        try {
+            BlockingQueue<String> recus = new LinkedBlockingQueue<>();
+            Session session = ClientManager.createClient().connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(Session session, EndpointConfig config) {
+                    session.addMessageHandler(new MessageHandler.Whole<String>() {
+                        @Override
+                        public void onMessage(String message) {
+                            recus.add(message);
+                        }
+                    });
+                }
+            }, ClientEndpointConfig.Builder.create().build(),
+                    new URI("ws://localhost:" + portRouteur + "/?joueurs=3&nom=Guybrush"));
+            session.getBasicRemote().sendText("bonjour");
+            assertEquals("bonjour?joueurs=3&nom=Guybrush", recus.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, routeur.getCharge(adresseNoeud));
+
+            session.close();
+            long fin = System.currentTimeMillis() + 5000;
+            while (routeur.getCharge(adresseNoeud) > 0 && System.currentTimeMillis() < fin) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, routeur.getCharge(adresseNoeud));
+        } finally {
+            routeur.arreter();
+            noeud.stop();
+        }
+    }
+
+    private static int portLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    void testCodesDeFermetureReservesRemplaces() {
+        CloseReason normale = new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "fin");
+        assertSame(normale, ConnexionRoutee.transmissible(normale));
+        CloseReason erreur = new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "panne");
+        assertSame(erreur, ConnexionRoutee.transmissible(erreur));
+
+        CloseReason anormale = ConnexionRoutee.transmissible(
+                new CloseReason(CloseReason.CloseCodes.CLOSED_ABNORMALLY, ""));
+        assertEquals(CloseReason.CloseCodes.GOING_AWAY, anormale.getCloseCode());
+        CloseReason sansCode = ConnexionRoutee.transmissible(
+                new CloseReason(CloseReason.CloseCodes.NO_STATUS_CODE, ""));
+        assertEquals(CloseReason.CloseCodes.NORMAL_CLOSURE, sansCode.getCloseCode());
+    }
+}
@@ -0,0 +1,28 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class ClientConnecteTest {
+    @Test
+    void testAudienceAttribueeParLeServeur() {
+        ClientConnecte client = new ClientConnecte(null);
+        assertEquals(Audience.SPECTATEUR, client.getAudience());
+        assertFalse(client.demanderAudience(Audience.TABLE));
+        assertFalse(client.demanderAudience(Audience.siege("Guybrush")));
+        assertEquals(Audience.SPECTATEUR, client.getAudience());
+
+        client.attribuer(Audience.siege("Guybrush"));
+        assertEquals(Audience.siege("Guybrush"), client.getAudience());
+        assertFalse(client.demanderAudience(Audience.TABLE));
+        assertFalse(client.demanderAudience(Audience.siege("Largo")));
+        assertEquals(Audience.siege("Guybrush"), client.getAudience());
+
+        // passage en spectateur puis retour au siège attribué
+        assertTrue(client.demanderAudience(Audience.SPECTATEUR));
+        assertEquals(Audience.SPECTATEUR, client.getAudience());
+        assertTrue(client.demanderAudience(Audience.siege("Guybrush")));
+        assertEquals(Audience.siege("Guybrush"), client.getAudience());
+    }
+}
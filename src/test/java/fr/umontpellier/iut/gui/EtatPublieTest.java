@@ -0,0 +1,52 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+public class EtatPublieTest {
+    @Test
+    void testPublicationEtRevalidation() throws IOException, InterruptedException {
+        EtatPublie etat = new EtatPublie();
+        etat.publier(1, new Trame("{}"));
+        // rien n'est publié tant que la publication n'est pas activée
+        assertNull(etat.get());
+
+        ServeurHttp serveur = new ServeurHttp("localhost", 0);
+        serveur.servirEtat(etat);
+        serveur.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest requete = HttpRequest.newBuilder(URI.create("http://localhost:" + serveur.getPort() + "/etat"))
+                    .build();
+            assertEquals(503, client.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode());
+
+            Trame trame = new Trame("{\"seq\":1}");
+            etat.publier(1, trame);
+            EtatPublie.Instantane premier = etat.get();
+            etat.publier(1, trame);
+            assertSame(premier, etat.get());
+
+            HttpResponse<String> reponse = client.send(requete, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, reponse.statusCode());
+            assertEquals("{\"seq\":1}", reponse.body());
+            String etag = reponse.headers().firstValue("ETag").orElseThrow();
+            HttpRequest refusGzip = HttpRequest.newBuilder(requete.uri()).header("Accept-Encoding", "gzip;q=0").build();
+            assertNull(client.send(refusGzip, HttpResponse.BodyHandlers.ofString()).headers()
+                    .firstValue("Content-Encoding").orElse(null));
+
+            HttpRequest revalidation = HttpRequest.newBuilder(requete.uri()).header("If-None-Match", etag).build();
+            assertEquals(304, client.send(revalidation, HttpResponse.BodyHandlers.discarding()).statusCode());
+            etat.publier(2, new Trame("{\"seq\":2}"));
+            assertEquals(200, client.send(revalidation, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } finally {
+            serveur.stop();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class HistoriqueDiffusionsTest {
+    @Test
+    void testHistoriqueBorne() {
+        HistoriqueDiffusions historique = new HistoriqueDiffusions(3);
+        assertEquals(0, historique.getDernierNumero());
+        assertEquals(-1, historique.getNbLogs(0));
+
+        historique.ajouter(1, 2);
+        historique.ajouter(2, 5);
+        historique.ajouter(4, 9);
+        assertEquals(4, historique.getDernierNumero());
+        assertEquals(5, historique.getNbLogs(2));
+        assertEquals(-1, historique.getNbLogs(3));
+
+        historique.ajouter(5, 10);
+        // la diffusion 1 est oubliée : le client recevra l'état complet
+        assertEquals(-1, historique.getNbLogs(1));
+        assertEquals(5, historique.getNbLogs(2));
+        assertEquals(10, historique.getNbLogs(5));
+        assertEquals(-1, historique.getNbLogs(6));
+    }
+}
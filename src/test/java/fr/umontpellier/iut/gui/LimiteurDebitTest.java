@@ -0,0 +1,29 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class LimiteurDebitTest {
+    @Test
+    void testRafalePuisRemplissage() {
+        LimiteurDebit limiteur = new LimiteurDebit(3, 2);
+        long t = System.nanoTime();
+        limiteur.autoriser(t);
+        assertTrue(limiteur.autoriser(t));
+        assertTrue(limiteur.autoriser(t));
+        assertFalse(limiteur.autoriser(t));
+        assertFalse(limiteur.autoriser(t));
+        assertEquals(2, limiteur.getNbRefusConsecutifs());
+
+        // 2 jetons par seconde : un jeton après une demi-seconde
+        assertTrue(limiteur.autoriser(t + 500_000_000L));
+        assertEquals(0, limiteur.getNbRefusConsecutifs());
+        assertFalse(limiteur.autoriser(t + 500_000_000L));
+        // le seau ne dépasse pas sa capacité
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiteur.autoriser(t + 60_000_000_000L));
+        }
+        assertFalse(limiteur.autoriser(t + 60_000_000_000L));
+    }
+}
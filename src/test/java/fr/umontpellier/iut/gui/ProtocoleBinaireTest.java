@@ -0,0 +1,87 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fr.umontpellier.iut.rails.CouleurWagon;
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.Route;
+
+public class ProtocoleBinaireTest {
+    private static ByteBuffer message(int... octets) {
+        ProtocoleBinaire.Sortie sortie = new ProtocoleBinaire.Sortie();
+        for (int o : octets) {
+            sortie.write(o);
+        }
+        return sortie.buffer();
+    }
+
+    @Test
+    void testVarintEtTexte() {
+        ProtocoleBinaire.Sortie sortie = new ProtocoleBinaire.Sortie();
+        sortie.varint(0);
+        sortie.varint(300);
+        sortie.varint(Integer.MAX_VALUE);
+        sortie.texte("Zürich");
+        ByteBuffer b = sortie.buffer();
+        assertEquals(0, ProtocoleBinaire.lireVarint(b));
+        assertEquals(300, ProtocoleBinaire.lireVarint(b));
+        assertEquals(Integer.MAX_VALUE, ProtocoleBinaire.lireVarint(b));
+        assertEquals("Zürich", ProtocoleBinaire.lireTexte(b));
+        assertFalse(b.hasRemaining());
+    }
+
+    @Test
+    void testDecoderEntree() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        Route route = jeu.getRoutes().get(3);
+        assertEquals(route.getNom(), ProtocoleBinaire.decoderEntree(jeu, message(ProtocoleBinaire.ROUTE, 3)));
+        assertEquals("ROUGE",
+                ProtocoleBinaire.decoderEntree(jeu, message(ProtocoleBinaire.CARTE, CouleurWagon.ROUGE.ordinal())));
+        assertEquals("", ProtocoleBinaire.decoderEntree(jeu, message(ProtocoleBinaire.PASSER)));
+        assertEquals(route.getNom() + "|ROUGE x2, LOCOMOTIVE", ProtocoleBinaire.decoderEntree(jeu,
+                message(ProtocoleBinaire.ACTION, 0, 3, 0, 0, 0, 2, 0, 0, 0, 0, 0, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoleBinaire.decoderEntree(jeu, message(ProtocoleBinaire.ROUTE, 0x7F)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoleBinaire.decoderEntree(jeu, message(ProtocoleBinaire.TEXTE, 5, 'a')));
+        // nombre de cartes 0x7fffffff : refusé avant toute allocation
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.decoderEntree(jeu,
+                message(ProtocoleBinaire.ACTION, 0, 3, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 0, 0, 0, 0, 0, 0, 0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> ProtocoleBinaire.decoderEntree(jeu,
+                message(ProtocoleBinaire.ACTION, 0, 3, 46, 0, 0, 0, 0, 0, 0, 0, 0)));
+    }
+
+    @Test
+    void testEtatPlusCompactQueJson() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.log("Début de la partie");
+        ProtocoleBinaire.Etat etat = new ProtocoleBinaire.Etat(jeu, "Choix", List.of("A", "B"), true);
+        ByteBuffer complet = etat.coder(Audience.TABLE, 0);
+        ByteBuffer sansLog = etat.coder(Audience.TABLE, etat.getNbLogs());
+        assertEquals(ProtocoleBinaire.ETAT, complet.get(0));
+        assertTrue(sansLog.remaining() < complet.remaining());
+        assertSame(complet, etat.coder(Audience.TABLE, 0));
+        assertTrue(ProtocoleBinaire.coderDictionnaire(jeu, "p.1").remaining() > 0);
+    }
+
+    @Test
+    void testEtatFigeNeLitPlusLaPartie() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.log("Début de la partie");
+        ProtocoleBinaire.Etat etat = new ProtocoleBinaire.Etat(jeu, "Choix", List.of(), false);
+        ByteBuffer avant = etat.coder(Audience.siege("Largo"), 0).duplicate();
+        ProtocoleBinaire.Etat fige = new ProtocoleBinaire.Etat(jeu, "Choix", List.of(), false);
+        fige.figer(List.of(Audience.TABLE, Audience.siege("Largo")));
+        int nbLogs = jeu.getLog().size();
+        jeu.log("Message suivant");
+        jeu.getJoueurs().get(1).getCartesWagon().clear();
+        assertEquals(nbLogs, fige.getNbLogs());
+        assertEquals(avant, fige.coder(Audience.siege("Largo"), 0));
+        assertEquals(fige.coder(Audience.SPECTATEUR, 0), fige.coder(Audience.siege("Guybrush"), 0));
+    }
+}
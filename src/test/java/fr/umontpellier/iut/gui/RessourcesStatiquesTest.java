@@ -0,0 +1,67 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class RessourcesStatiquesTest {
+    @Test
+    void testCompressionEtagEtCache() throws IOException, InterruptedException {
+        Path racine = Files.createTempDirectory("public");
+        String js = "console.log('Aventuriers du Rail');\n".repeat(100);
+        Files.writeString(racine.resolve("bundle.js"), js);
+        Files.writeString(racine.resolve("index.html"), "<script defer src='bundle.js'></script>");
+        ServeurHttp serveur = new ServeurHttp("localhost", 0);
+        serveur.servirFichiers(racine);
+        serveur.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String adresse = "http://localhost:" + serveur.getPort();
+
+            String page = client.send(HttpRequest.newBuilder(URI.create(adresse + "/")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            String version = page.substring(page.indexOf("?v=") + 3, page.lastIndexOf('\''));
+            assertEquals(16, version.length());
+
+            HttpResponse<byte[]> reponse = client.send(HttpRequest.newBuilder(URI.create(adresse + "/bundle.js?v=" + version))
+                    .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, reponse.statusCode());
+            assertEquals("gzip", reponse.headers().firstValue("Content-Encoding").orElse(null));
+            assertTrue(reponse.headers().firstValue("Cache-Control").orElse("").contains("immutable"));
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(reponse.body()))) {
+                assertEquals(js, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+
+            String etag = reponse.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<String> revalidation = client.send(HttpRequest.newBuilder(URI.create(adresse + "/bundle.js"))
+                    .header("Accept-Encoding", "gzip").header("If-None-Match", etag).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(304, revalidation.statusCode());
+            assertEquals("no-cache", revalidation.headers().firstValue("Cache-Control").orElse(null));
+
+            HttpResponse<byte[]> sansGzip = client.send(HttpRequest.newBuilder(URI.create(adresse + "/bundle.js"))
+                    .header("Accept-Encoding", "gzip;q=0, identity").build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertNull(sansGzip.headers().firstValue("Content-Encoding").orElse(null));
+            assertEquals(js, new String(sansGzip.body(), StandardCharsets.UTF_8));
+
+            assertEquals(404, client.send(HttpRequest.newBuilder(URI.create(adresse + "/absent.js")).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode());
+        } finally {
+            serveur.stop();
+            Files.delete(racine.resolve("bundle.js"));
+            Files.delete(racine.resolve("index.html"));
+            Files.delete(racine);
+        }
+    }
+}
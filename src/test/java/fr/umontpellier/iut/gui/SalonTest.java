@@ -0,0 +1,94 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import fr.umontpellier.iut.rails.Jeu;
+import fr.umontpellier.iut.rails.ReserveParties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SalonTest {
+    private ReserveParties reserve;
+    private Salon salon;
+    private List<Jeu> parties;
+    private List<Map<String, String>> sieges;
+
+    @BeforeEach
+    void setUp() {
+        reserve = new ReserveParties();
+        parties = new ArrayList<>();
+        sieges = new ArrayList<>();
+        salon = new Salon(reserve, 1, TimeUnit.SECONDS, (jeu, s) -> {
+            parties.add(jeu);
+            sieges.add(s);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        reserve.arreter();
+    }
+
+    @Test
+    void testTablesCompletesDansLOrdreDArrivee() {
+        long debut = System.nanoTime();
+        assertTrue(salon.inscrire("1", "Guybrush", 2));
+        assertTrue(salon.inscrire("2", "Largo", 2));
+        assertTrue(salon.inscrire("3", "Elaine", 2));
+        assertTrue(salon.inscrire("4", "LeChuck", 3));
+
+        assertEquals(1, salon.apparier(debut));
+        assertEquals(Map.of("1", "Guybrush", "2", "Largo"), sieges.get(0));
+        assertEquals("Largo", parties.get(0).getJoueurs().get(1).getNom());
+        assertNull(parties.get(0).getJoueurs().get(1).getDecideur());
+        assertEquals(2, salon.getNbInscrits());
+    }
+
+    @Test
+    void testSiegesLibresDonnesADesBotsApresLeDelai() {
+        long debut = System.nanoTime();
+        salon.inscrire("1", "Guybrush", 3);
+        salon.inscrire("2", "Guybrush", 3);
+        assertEquals(0, salon.apparier(debut));
+
+        assertEquals(1, salon.apparier(debut + TimeUnit.SECONDS.toNanos(2)));
+        Jeu jeu = parties.get(0);
+        assertEquals(3, jeu.getJoueurs().size());
+        // deux joueurs du même nom sont distingués
+        assertEquals("Guybrush 2", sieges.get(0).get("2"));
+        assertEquals("Bot", jeu.getJoueurs().get(2).getNom());
+        assertNotNull(jeu.getJoueurs().get(2).getDecideur());
+        assertEquals(0, salon.getNbInscrits());
+    }
+
+    @Test
+    void testCandidatsRetiresEtInscriptionsInvalides() {
+        assertFalse(salon.inscrire("1", "Guybrush", 1));
+        assertFalse(salon.inscrire("1", "Guybrush", 6));
+        assertFalse(salon.inscrire("1", " ", 2));
+
+        salon.inscrire("1", "Guybrush", 2);
+        salon.desinscrire("1");
+        // une nouvelle inscription remplace la précédente
+        salon.inscrire("2", "Largo", 2);
+        salon.inscrire("2", "Largo", 4);
+        assertEquals(0, salon.apparier(System.nanoTime()));
+        assertEquals(1, salon.getNbInscrits());
+    }
+
+    @Test
+    void testNomsInvalidesRefuses() {
+        assertFalse(salon.inscrire("a", "<img src=x onerror=alert(1)>", 2));
+        assertFalse(salon.inscrire("b", "Guybrush\"", 2));
+        assertFalse(salon.inscrire("c", "x".repeat(21), 2));
+        assertFalse(salon.inscrire("d", " ", 2));
+        assertTrue(salon.inscrire("e", "Élaine Marley-2", 2));
+        assertEquals(1, salon.getNbInscrits());
+    }
+}
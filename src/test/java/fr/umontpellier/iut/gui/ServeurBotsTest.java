@@ -0,0 +1,146 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import fr.umontpellier.iut.rails.EtatPartie;
+import fr.umontpellier.iut.rails.Jeu;
+import org.junit.jupiter.api.Test;
+
+public class ServeurBotsTest {
+    @Test
+    void testBotQuiJoueEnLignesDeTexte() throws Exception {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        Table table = new Table(jeu, null);
+        ServeurBots serveur = new ServeurBots("localhost", 0, id -> id.equals("p1") ? table : null);
+        serveur.start();
+        Thread partie = new Thread(jeu);
+        try {
+            try (Socket socket = new Socket("localhost", serveur.getPort());
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter sortie = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                sortie.println("p2\tGuybrush");
+                assertTrue(entree.readLine().startsWith("erreur"));
+            }
+            // le nom du joueur ne suffit pas : il faut le jeton de son siège
+            try (Socket socket = new Socket("localhost", serveur.getPort());
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter sortie = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                sortie.println("p1\tGuybrush");
+                assertTrue(entree.readLine().startsWith("erreur"));
+            }
+            try (Socket socket = new Socket("localhost", serveur.getPort());
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter sortie = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                sortie.println("p1\t" + table.creerJeton("Guybrush"));
+                assertEquals("ok", entree.readLine());
+                partie.start();
+
+                // choix des destinations initiales de Guybrush
+                String[] choix = entree.readLine().split("\t", -1);
+                assertEquals("choix", choix[0]);
+                assertTrue(choix.length > 3);
+                sortie.println("pas un choix");
+                assertEquals("refuse", entree.readLine());
+                sortie.println(choix[3]);
+                assertTrue(jeu.attendreChoix(5, TimeUnit.SECONDS));
+
+                jeu.annuler();
+                String ligne;
+                do {
+                    ligne = entree.readLine();
+                } while (ligne != null && !ligne.equals("fin"));
+                assertEquals("fin", ligne);
+            }
+            partie.join(5000);
+            assertEquals(EtatPartie.ANNULEE, jeu.getEtat());
+        } finally {
+            jeu.annuler();
+            serveur.stop();
+        }
+    }
+
+    @Test
+    void testBotConnecteEnCoursDeChoix() throws Exception {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        Table table = new Table(jeu, null);
+        ServeurBots serveur = new ServeurBots("localhost", 0, id -> id.equals("p1") ? table : null);
+        serveur.start();
+        Thread partie = new Thread(jeu);
+        try {
+            partie.start();
+            // Guybrush choisit déjà ses destinations initiales
+            assertTrue(jeu.attendreChoix(5, TimeUnit.SECONDS));
+            try (Socket socket = new Socket("localhost", serveur.getPort());
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter sortie = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                sortie.println("p1\t" + table.creerJeton("Guybrush"));
+                assertEquals("ok", entree.readLine());
+                String[] choix = entree.readLine().split("\t", -1);
+                assertEquals("choix", choix[0]);
+                assertTrue(choix.length > 3);
+
+                jeu.annuler();
+                String ligne;
+                do {
+                    ligne = entree.readLine();
+                } while (ligne != null && !ligne.equals("fin"));
+                assertEquals("fin", ligne);
+            }
+        } finally {
+            jeu.annuler();
+            serveur.stop();
+        }
+        partie.join(5000);
+    }
+
+    @Test
+    void testConnexionsAbusivesFermees() throws Exception {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        Table table = new Table(jeu, null);
+        ServeurBots serveur = new ServeurBots("localhost", 0, id -> id.equals("p1") ? table : null);
+        serveur.start();
+        try {
+            try (Socket socket = new Socket("localhost", serveur.getPort());
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter sortie = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                sortie.print("p1\t" + "a".repeat(ServeurBots.TAILLE_MAX_LIGNE));
+                sortie.flush();
+                assertEquals("erreur\tligne trop longue", entree.readLine());
+                assertNull(entree.readLine());
+            }
+            try (Socket socket = new Socket("localhost", serveur.getPort());
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter sortie = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8)) {
+                sortie.println("p1\t" + table.creerJeton("Guybrush"));
+                sortie.flush();
+                assertEquals("ok", entree.readLine());
+                int nbLignes = ClientConnecte.CAPACITE_RAFALE + ClientConnecte.REFUS_AVANT_FERMETURE;
+                for (int i = 0; i < nbLignes; i++) {
+                    sortie.println("pas un choix");
+                }
+                sortie.flush();
+                String ligne;
+                do {
+                    ligne = entree.readLine();
+                } while (ligne != null && ligne.equals("refuse"));
+                assertEquals("erreur\ttrop de messages", ligne);
+                assertNull(entree.readLine());
+            }
+        } finally {
+            serveur.stop();
+        }
+    }
+}
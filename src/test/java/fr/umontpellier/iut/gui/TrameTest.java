@@ -0,0 +1,30 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class TrameTest {
+    @Test
+    void testCodageUniqueEtCompression() throws IOException {
+        String json = "{\"log\":[" + "\"Guybrush a capturé une route\",".repeat(50) + "\"fin\"]}";
+        Trame trame = new Trame(json);
+        assertSame(trame.getGzip(), trame.getGzip());
+
+        ByteBuffer gzip = trame.getGzip().duplicate();
+        assertTrue(gzip.remaining() < trame.getUtf8().remaining());
+        byte[] octets = new byte[gzip.remaining()];
+        gzip.get(octets);
+        try (GZIPInputStream entree = new GZIPInputStream(new ByteArrayInputStream(octets))) {
+            assertEquals(json, new String(entree.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // la lecture d'une copie ne modifie pas la trame partagée
+        assertEquals(octets.length, trame.getGzip().remaining());
+    }
+}
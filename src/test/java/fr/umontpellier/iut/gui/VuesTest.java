@@ -0,0 +1,79 @@
+package fr.umontpellier.iut.gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import fr.umontpellier.iut.rails.Jeu;
+
+public class VuesTest {
+    @Test
+    void testVueCalculeeUneFoisParAudience() {
+        AtomicInteger nbCalculs = new AtomicInteger();
+        Vues vues = new Vues(a -> {
+            nbCalculs.incrementAndGet();
+            return a.toString();
+        });
+        Trame table = vues.get(Audience.TABLE);
+        assertSame(table, vues.get(Audience.TABLE));
+        assertSame(vues.get(Audience.siege("Largo")), vues.get(Audience.lire("siege:Largo")));
+        assertEquals("siege:Largo", vues.get(Audience.siege("Largo")).getTexte());
+        assertEquals(2, nbCalculs.get());
+    }
+
+    @Test
+    void testVuesFigees() {
+        AtomicInteger nbCalculs = new AtomicInteger();
+        Vues vues = new Vues(a -> {
+            nbCalculs.incrementAndGet();
+            return a.toString();
+        });
+        vues.figer(List.of(Audience.TABLE, Audience.siege("Largo")));
+        assertEquals(3, nbCalculs.get());
+        assertEquals("siege:Largo", vues.get(Audience.siege("Largo")).getTexte());
+        assertSame(vues.get(Audience.SPECTATEUR), vues.get(Audience.siege("Guybrush")));
+        assertEquals(3, nbCalculs.get());
+    }
+
+    @Test
+    void testNumeroDeDiffusion() {
+        Vues vues = new Vues(a -> "{\"log\":[]}");
+        vues.numeroter("p.1", 12);
+        assertEquals("{\"flux\":\"p.1\",\"seq\":12,\"log\":[]}", vues.get(Audience.TABLE).getTexte());
+        Vues vide = new Vues(a -> "{}");
+        vide.numeroter("p.1", 3);
+        assertEquals("{\"flux\":\"p.1\",\"seq\":3}", vide.get(Audience.SPECTATEUR).getTexte());
+    }
+
+    @Test
+    void testLireAudience() {
+        assertEquals(Audience.TABLE, Audience.lire("table"));
+        assertEquals(Audience.SPECTATEUR, Audience.lire("spectateur"));
+        assertEquals(Audience.siege("Guybrush"), Audience.lire("siege:Guybrush"));
+        assertNull(Audience.lire("siege:"));
+        assertNull(Audience.lire("Paris"));
+    }
+
+    @Test
+    void testMainsCacheesAuxAutresAudiences() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        String carte = jeu.getJoueurs().get(1).getCartesWagon().get(0).name();
+        String table = jeu.etatAsJson(Audience.TABLE, "Choix", List.of(), false);
+        String spectateur = jeu.etatAsJson(Audience.SPECTATEUR, "Choix", List.of(), false);
+        String siege = jeu.etatAsJson(Audience.siege("Guybrush"), "Choix", List.of(), false);
+
+        assertTrue(table.contains("\"cartesWagon\""));
+        assertTrue(table.contains(carte));
+        assertFalse(spectateur.contains("\"cartesWagon\""));
+        assertFalse(spectateur.contains("\"destinations\""));
+        assertTrue(spectateur.contains("\"nbCartesWagon\":4"));
+        assertFalse(spectateur.contains("valeursRoutes"));
+        // au siège du joueur courant : sa main et son aide, pas la main de l'adversaire
+        assertTrue(siege.contains("\"cartesWagon\""));
+        assertTrue(siege.contains("\"nbCartesWagon\":4"));
+        assertTrue(siege.contains("valeursRoutes"));
+    }
+}
@@ -0,0 +1,31 @@
+package fr.umontpellier.iut.metriques;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class HistogrammeTest {
+    @Test
+    void testCentilesPrecisionRelative() {
+        Histogramme h = new Histogramme();
+        for (long v = 1; v <= 10000; v++) {
+            h.enregistrer(v);
+        }
+        assertEquals(10000, h.getNombre());
+        assertEquals(10000, h.getMax());
+        assertEquals(5000.5, h.getMoyenne(), 1e-9);
+        assertEquals(5000, h.centile(50), 5000 * 0.125);
+        assertEquals(9900, h.centile(99), 9900 * 0.125);
+        assertEquals(10000, h.centile(100));
+    }
+
+    @Test
+    void testValeursExtremes() {
+        Histogramme h = new Histogramme();
+        assertEquals(0, h.centile(50));
+        h.enregistrer(-3);
+        h.enregistrer(Long.MAX_VALUE);
+        assertEquals(0, h.centile(50));
+        assertEquals(Long.MAX_VALUE, h.centile(100));
+    }
+}
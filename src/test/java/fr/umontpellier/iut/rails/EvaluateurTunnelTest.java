@@ -0,0 +1,74 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class EvaluateurTunnelTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void testDistributionHypergeometrique() {
+        // 10 cartes inconnues dont 2 correspondent
+        double[] p = EvaluateurTunnel.distribution(10, 2);
+        assertEquals(56.0 / 120, p[0], EPSILON);
+        assertEquals(56.0 / 120, p[1], EPSILON);
+        assertEquals(8.0 / 120, p[2], EPSILON);
+        assertEquals(0, p[3], EPSILON);
+    }
+
+    @Test
+    void testEsperanceEtSucces() {
+        EvaluateurTunnel.Evaluation e = EvaluateurTunnel.evaluer(10, 2, 0);
+        assertEquals(0.6, e.getCoutSupplementaireMoyen(), EPSILON);
+        assertEquals(56.0 / 120, e.getProbabiliteSucces(), EPSILON);
+        assertEquals(1, EvaluateurTunnel.evaluer(10, 2, 3).getProbabiliteSucces(), EPSILON);
+    }
+
+    @Test
+    void testEvaluerTunnelDuJeu() {
+        IOJeu jeu = new IOJeu(new String[] { "Guybrush", "Largo" });
+        Joueur joueur = jeu.getJoueurs().get(0);
+        Tunnel tunnel = null;
+        for (Route r : jeu.getRoutes()) {
+            if (r.getNom().equals("Marseille - Zurich")) {
+                tunnel = (Tunnel) r;
+            }
+        }
+
+        // toutes les cartes hors de la main du joueur et des cartes visibles
+        int[] inconnues = EvaluateurTunnel.compositionInconnue(jeu, joueur);
+        int total = 0;
+        for (int n : inconnues) {
+            total += n;
+        }
+        assertEquals(110 - 5 - joueur.getCartesWagon().size(), total);
+
+        TestUtils.setCartesWagon(joueur, CouleurWagon.ROSE);
+        assertEquals(0, jeu.evaluerTunnel(tunnel, joueur).getProbabiliteSucces(), EPSILON);
+
+        TestUtils.setCartesWagon(joueur, CouleurWagon.ROSE, CouleurWagon.ROSE, CouleurWagon.LOCOMOTIVE,
+                CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE);
+        assertEquals(1, jeu.evaluerTunnel(tunnel, joueur).getProbabiliteSucces(), EPSILON);
+    }
+
+    @Test
+    void testTunnelGrisPayableAvecSesCartes() {
+        IOJeu jeu = new IOJeu(new String[] { "Guybrush", "Largo" });
+        Joueur joueur = jeu.getJoueurs().get(0);
+        Tunnel tunnel = null;
+        for (Route r : jeu.getRoutes()) {
+            if (r.getType() == Route.Type.TUNNEL && r.getCouleur() == CouleurWagon.GRIS && r.getLongueur() == 4) {
+                tunnel = (Tunnel) r;
+            }
+        }
+
+        TestUtils.setCartesWagon(joueur, CouleurWagon.ROSE, CouleurWagon.ROSE, CouleurWagon.ROSE,
+                CouleurWagon.LOCOMOTIVE);
+        assertEquals(1, jeu.evaluerTunnel(tunnel, joueur).getProbabiliteSucces(), EPSILON);
+
+        // 3 cartes ne paient pas un tunnel de longueur 4 (la locomotive ne compte qu'une fois)
+        TestUtils.setCartesWagon(joueur, CouleurWagon.ROSE, CouleurWagon.ROSE, CouleurWagon.LOCOMOTIVE);
+        assertEquals(0, jeu.evaluerTunnel(tunnel, joueur).getProbabiliteSucces(), EPSILON);
+    }
+}
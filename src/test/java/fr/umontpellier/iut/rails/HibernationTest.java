@@ -0,0 +1,104 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class HibernationTest {
+    private Path dossier;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dossier = Files.createTempDirectory("hibernation");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> fichiers = Files.walk(dossier)) {
+            fichiers.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Test
+    void testRestaurationIdentiqueALaSauvegarde() throws IOException {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        Joueur largo = jeu.getJoueurs().get(1);
+        largo.getCartesWagon().add(jeu.piocherCarteWagon());
+        largo.getCartesWagon().add(CouleurWagon.LOCOMOTIVE);
+        largo.getDestinations().add(new Destination("Paris", "Wien", 8));
+        jeu.getRoutes().get(3).setProprietaire(largo);
+        jeu.getVilles().get(0).setProprietaire(jeu.getJoueurs().get(0));
+        jeu.log("Un message");
+
+        Hibernation hibernation = new Hibernation(dossier, j -> {
+        });
+        hibernation.sauvegarder(jeu);
+        assertTrue(hibernation.contient(jeu.getIdentifiant()));
+
+        Jeu restauree = hibernation.restaurer(jeu.getIdentifiant());
+        assertFalse(hibernation.contient(jeu.getIdentifiant()));
+        assertEquals(jeu.getIdentifiant(), restauree.getIdentifiant());
+        assertEquals(new Gson().toJson(jeu.sauvegarde()), new Gson().toJson(restauree.sauvegarde()));
+        assertSame(restauree.getJoueurs().get(1), restauree.getRoutes().get(3).getProprietaire());
+        List<CouleurWagon> cartes = restauree.getJoueurs().get(1).getCartesWagon();
+        assertEquals(CouleurWagon.LOCOMOTIVE, cartes.get(cartes.size() - 1));
+    }
+
+    @Test
+    void testPartieInactiveHiberneePuisReprise() throws Exception {
+        CountDownLatch hibernee = new CountDownLatch(1);
+        Hibernation hibernation = new Hibernation(dossier, j -> hibernee.countDown());
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.setHibernation(hibernation, 50, TimeUnit.MILLISECONDS);
+        Thread thread = new Thread(jeu);
+        thread.start();
+        // les deux joueurs gardent leurs destinations initiales
+        assertTrue(attendreChoixDe(jeu, "Guybrush"));
+        assertTrue(jeu.proposerEntree("Guybrush", ""));
+        // personne ne joue le premier tour
+        assertTrue(attendreChoixDe(jeu, "Largo"));
+        assertTrue(jeu.proposerEntree("Largo", ""));
+
+        assertTrue(hibernee.await(5, TimeUnit.SECONDS));
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertTrue(jeu.estHibernee());
+
+        Jeu restauree = hibernation.restaurer(jeu.getIdentifiant());
+        restauree.setHibernation(hibernation, 1, TimeUnit.SECONDS);
+        Thread reprise = new Thread(restauree);
+        reprise.start();
+        assertTrue(restauree.attendreChoix(5, TimeUnit.SECONDS));
+        assertEquals("Guybrush", restauree.getJoueurCourant().getNom());
+        // le tour interrompu n'est pas annoncé une deuxième fois
+        assertEquals(1, restauree.getLog().stream().filter(m -> m.startsWith("Au tour de")).count());
+        // toujours inactive : la partie est de nouveau hibernée
+        reprise.join(5000);
+        assertTrue(restauree.estHibernee());
+    }
+
+    /**
+     * Attend que la partie demande un choix au joueur
+     */
+    private static boolean attendreChoixDe(Jeu jeu, String nomJoueur) throws InterruptedException {
+        long fin = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < fin) {
+            if (jeu.attendreChoix(100, TimeUnit.MILLISECONDS) && jeu.getJoueurCourant().getNom().equals(nomJoueur)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
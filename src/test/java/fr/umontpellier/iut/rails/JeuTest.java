@@ -0,0 +1,78 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class JeuTest {
+    @Test
+    void testVersionAugmenteSeulementSiEtatModifie() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        long version = jeu.getVersion();
+        assertEquals(version, jeu.getVersion());
+
+        Joueur guybrush = jeu.getJoueurs().get(0);
+        guybrush.getCartesWagon().add(jeu.piocherCarteWagon());
+        long apresPioche = jeu.getVersion();
+        assertTrue(apresPioche > version);
+        assertEquals(apresPioche, jeu.getVersion());
+
+        // même nombre de cartes, mais une couleur différente
+        CouleurWagon c = guybrush.getCartesWagon().remove(0);
+        guybrush.getCartesWagon().add(c == CouleurWagon.ROUGE ? CouleurWagon.BLEU : CouleurWagon.ROUGE);
+        assertTrue(jeu.getVersion() > apresPioche);
+
+        long avantCapture = jeu.getVersion();
+        jeu.getRoutes().get(0).setProprietaire(guybrush);
+        assertTrue(jeu.getVersion() > avantCapture);
+    }
+
+    @Test
+    void testActionParDefautALExpirationDuDelai() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.setDelaiDecision(50, TimeUnit.MILLISECONDS);
+        EntreesAttendues action = new EntreesAttendues("Guybrush", Set.of("GRIS", "ROUGE", "Paris"), false, e -> false);
+        jeu.attendreEntree(action);
+        assertEquals("GRIS", jeu.lireLigne());
+        assertTrue(jeu.aExpire(action));
+
+        EntreesAttendues destinations = new EntreesAttendues("Guybrush", Set.of("Paris - Wien (8)"), true, e -> false);
+        jeu.attendreEntree(destinations);
+        assertEquals("", jeu.lireLigne());
+
+        // une réponse reçue à temps annule l'échéance
+        EntreesAttendues carte = new EntreesAttendues("Guybrush", Set.of("ROUGE", "BLEU"), false, e -> false);
+        jeu.attendreEntree(carte);
+        assertTrue(jeu.proposerEntree("Guybrush", "ROUGE"));
+        assertEquals("ROUGE", jeu.lireLigne());
+        jeu.attendreEntree(null);
+        assertFalse(jeu.aExpire(carte));
+    }
+
+    @Test
+    void testActionParDefautDiffereeSiFilePleine() {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        for (int i = 0; i < Jeu.CAPACITE_FILE_ENTREES; i++) {
+            assertTrue(jeu.addInput("ROUGE"));
+        }
+        EntreesAttendues action = new EntreesAttendues("Guybrush", Set.of("GRIS", "ROUGE"), false, e -> false);
+        jeu.attendreEntree(action);
+        jeu.expirer(action);
+        // le choix reste ouvert tant que l'action par défaut n'est pas dans la file
+        assertFalse(jeu.aExpire(action));
+        for (int i = 0; i < Jeu.CAPACITE_FILE_ENTREES; i++) {
+            assertEquals("ROUGE", jeu.lireLigne());
+        }
+        assertEquals("GRIS", jeu.lireLigne());
+        assertTrue(jeu.aExpire(action));
+    }
+
+    @Test
+    void testNomEchappeDansLeLog() {
+        assertEquals("&lt;b onclick=&quot;x&quot;&gt;L&#39;&amp;", Jeu.echapperHtml("<b onclick=\"x\">L'&"));
+        assertEquals("Guybrush", Jeu.echapperHtml("Guybrush"));
+    }
+}
@@ -5,8 +5,10 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JoueurTest {
@@ -89,4 +91,46 @@ public class JoueurTest {
                 CouleurWagon.ROUGE));
         assertEquals(nbCartesWagon - 2, pileCartesWagon.size());
     }
+
+    @Test
+    void testTourHumainRecommenceSansLimite() {
+        Route prise = jeu.getRoutes().get(0);
+        prise.setProprietaire(joueur2);
+        // une route déjà prise passe le filtre des actions mais fait recommencer le tour
+        List<String> entrees = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            entrees.add(prise.getNom());
+        }
+        entrees.add("GRIS");
+        entrees.add("GRIS");
+        jeu.setInput(entrees.toArray(new String[0]));
+
+        joueur1.jouerTour();
+        assertEquals(2, joueur1.getCartesWagon().size());
+    }
+
+    @Test
+    void testEntreesFiltreesAvantLaFile() {
+        Jeu jeuReel = new Jeu(new String[] { "Guybrush", "Largo" });
+        // aucune réponse attendue
+        assertFalse(jeuReel.proposerEntree("Guybrush", "ROUGE"));
+
+        jeuReel.attendreEntree(new EntreesAttendues("Guybrush", Set.of("ROUGE"), true, e -> false));
+        assertFalse(jeuReel.proposerEntree("Largo", "ROUGE"));
+        assertFalse(jeuReel.proposerEntree("Guybrush", "Paris"));
+        assertTrue(jeuReel.proposerEntree("Guybrush", "ROUGE"));
+        // une seule réponse par choix
+        assertFalse(jeuReel.proposerEntree(null, ""));
+        assertEquals(1, jeuReel.getTailleFileEntrees());
+    }
+
+    @Test
+    void testFileEntreesBornee() {
+        Jeu jeuReel = new Jeu(new String[] { "Guybrush", "Largo" });
+        for (int i = 0; i < Jeu.CAPACITE_FILE_ENTREES; i++) {
+            assertTrue(jeuReel.addInput("ROUGE"));
+        }
+        assertFalse(jeuReel.addInput("ROUGE"));
+        assertEquals(Jeu.CAPACITE_FILE_ENTREES, jeuReel.getTailleFileEntrees());
+    }
 }
@@ -0,0 +1,92 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PlanificateurPaiementTest {
+    private final Ville a = new Ville("A");
+    private final Ville b = new Ville("B");
+
+    @Test
+    void testRouteGriseMinimiseLesLocomotives() {
+        List<CouleurWagon> main = List.of(CouleurWagon.ROUGE, CouleurWagon.BLEU, CouleurWagon.BLEU,
+                CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE);
+        List<CouleurWagon> plan = PlanificateurPaiement.planifier(new Route(a, b, 3, CouleurWagon.GRIS), main,
+                Collections.emptySet());
+        assertTrue(TestUtils.contientExactement(plan, CouleurWagon.BLEU, CouleurWagon.BLEU, CouleurWagon.LOCOMOTIVE));
+        assertNull(PlanificateurPaiement.planifier(new Route(a, b, 5, CouleurWagon.GRIS), main,
+                Collections.emptySet()));
+    }
+
+    @Test
+    void testCouleursPreservees() {
+        List<CouleurWagon> main = List.of(CouleurWagon.ROUGE, CouleurWagon.ROUGE, CouleurWagon.BLEU,
+                CouleurWagon.BLEU);
+        List<CouleurWagon> plan = PlanificateurPaiement.planifier(new Route(a, b, 2, CouleurWagon.GRIS), main,
+                EnumSet.of(CouleurWagon.ROUGE));
+        assertTrue(TestUtils.contientExactement(plan, CouleurWagon.BLEU, CouleurWagon.BLEU));
+    }
+
+    @Test
+    void testFerryEtGare() {
+        List<CouleurWagon> main = List.of(CouleurWagon.JAUNE, CouleurWagon.JAUNE, CouleurWagon.JAUNE,
+                CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE);
+        List<CouleurWagon> plan = PlanificateurPaiement.planifier(new Ferry(a, b, 4, CouleurWagon.GRIS, 1), main,
+                Collections.emptySet());
+        assertTrue(TestUtils.contientExactement(plan, CouleurWagon.JAUNE, CouleurWagon.JAUNE, CouleurWagon.JAUNE,
+                CouleurWagon.LOCOMOTIVE));
+        plan = PlanificateurPaiement.planifierGare(2, main, Collections.emptySet());
+        assertTrue(TestUtils.contientExactement(plan, CouleurWagon.JAUNE, CouleurWagon.JAUNE));
+        assertNull(PlanificateurPaiement.planifierSupplement(CouleurWagon.ROSE, 3, main));
+    }
+
+    @Test
+    void testCaptureEnUnSeulChoix() {
+        IOJeu jeu = new IOJeu(new String[] { "Guybrush", "Largo" });
+        Joueur joueur = jeu.getJoueurs().get(0);
+        TestUtils.setCartesWagon(joueur, CouleurWagon.BLEU, CouleurWagon.ROUGE, CouleurWagon.LOCOMOTIVE);
+        jeu.getDefausseCartesWagon().clear();
+        jeu.setInput("Bruxelles - Frankfurt", PlanificateurPaiement.PAIEMENT_AUTO);
+
+        joueur.jouerTour();
+        Route route = null;
+        for (Route r : jeu.getRoutes()) {
+            if (r.getNom().equals("Bruxelles - Frankfurt")) {
+                route = r;
+            }
+        }
+        assertEquals(joueur, route.getProprietaire());
+        assertTrue(TestUtils.contientExactement(joueur.getCartesWagon(), CouleurWagon.ROUGE));
+        assertTrue(TestUtils.contientExactement(jeu.getDefausseCartesWagon(), CouleurWagon.BLEU,
+                CouleurWagon.LOCOMOTIVE));
+    }
+
+    @Test
+    void testActionComposee() {
+        IOJeu jeu = new IOJeu(new String[] { "Guybrush", "Largo" });
+        Joueur joueur = jeu.getJoueurs().get(0);
+        TestUtils.setCartesWagon(joueur, CouleurWagon.ROUGE, CouleurWagon.ROUGE, CouleurWagon.ROUGE,
+                CouleurWagon.VERT, CouleurWagon.LOCOMOTIVE);
+        jeu.setInput(
+                "Marseille - Paris|ROUGE x3, VERT", // refusé : deux couleurs différentes
+                PlanificateurPaiement.PAIEMENT_AUTO);
+
+        joueur.jouerTour();
+        assertTrue(TestUtils.contientExactement(joueur.getCartesWagon(), CouleurWagon.VERT));
+        assertEquals(19, joueur.getScore());
+
+        TestUtils.setCartesWagon(joueur, CouleurWagon.BLEU, CouleurWagon.BLEU, CouleurWagon.LOCOMOTIVE);
+        jeu.setInput("Paris|bleu");
+        joueur.jouerTour();
+        assertEquals(2, joueur.getNbGares());
+        assertTrue(TestUtils.contientExactement(joueur.getCartesWagon(), CouleurWagon.BLEU, CouleurWagon.LOCOMOTIVE));
+
+        assertNull(ActionComposee.lire("Paris|GRIS"));
+        assertEquals("Paris|ROUGE x2, LOCOMOTIVE", ActionComposee.lire("Paris|LOCOMOTIVE, ROUGE x2").toString());
+    }
+}
@@ -0,0 +1,64 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class RegistrePartiesTest {
+    @Test
+    void testPartieAnnuleeLibereeEtArchivee() throws InterruptedException {
+        CountDownLatch finie = new CountDownLatch(1);
+        RegistreParties registre = new RegistreParties(10, j -> finie.countDown());
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        assertEquals(EtatPartie.CREEE, jeu.getEtat());
+
+        Thread thread = registre.lancer(jeu);
+        assertTrue(jeu.attendreChoix(5, TimeUnit.SECONDS));
+        assertEquals(EtatPartie.ATTENTE_ENTREE, jeu.getEtat());
+        assertSame(jeu, registre.get(jeu.getIdentifiant()));
+
+        jeu.annuler();
+        assertTrue(finie.await(5, TimeUnit.SECONDS));
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertEquals(EtatPartie.ANNULEE, jeu.getEtat());
+        assertEquals(0, jeu.getTailleFileEntrees());
+        assertFalse(jeu.proposerEntree("Guybrush", ""));
+
+        assertNull(registre.get(jeu.getIdentifiant()));
+        assertEquals(0, registre.getNbParties());
+        assertEquals(1, registre.getArchives().size());
+        RegistreParties.Archive archive = registre.getArchives().get(0);
+        assertEquals(jeu.getIdentifiant(), archive.getIdentifiant());
+        assertEquals(EtatPartie.ANNULEE, archive.getEtat());
+        assertEquals(2, archive.getScores().size());
+    }
+
+    @Test
+    void testPartieAnnuleeSurErreur() throws InterruptedException {
+        CountDownLatch finie = new CountDownLatch(1);
+        RegistreParties registre = new RegistreParties(10, j -> finie.countDown());
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.getJoueurs().get(0).setDecideur((joueur, instruction, choix, boutons, peutPasser) -> {
+            throw new IllegalStateException("décideur en panne");
+        });
+        registre.lancer(jeu);
+        assertTrue(finie.await(5, TimeUnit.SECONDS));
+        assertEquals(EtatPartie.ANNULEE, jeu.getEtat());
+        assertEquals(EtatPartie.ANNULEE, registre.getArchives().get(0).getEtat());
+    }
+
+    @Test
+    void testPartieAnnuleeAvantSonLancement() throws InterruptedException {
+        RegistreParties registre = new RegistreParties(10, j -> {
+        });
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.annuler();
+        registre.lancer(jeu).join(5000);
+        assertEquals(EtatPartie.ANNULEE, jeu.getEtat());
+        assertTrue(registre.arreter(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,72 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ReservePartiesTest {
+    @Test
+    void testPartiePreteAttribueeAuxJoueurs() throws InterruptedException {
+        ReserveParties reserve = new ReserveParties(1, TimeUnit.MINUTES);
+        try {
+            assertTrue(attendreDisponibles(reserve, 3, 1));
+            Jeu jeu = reserve.prendre(new String[] { "Guybrush", "Largo", "Elaine" });
+            assertEquals(EtatPartie.CREEE, jeu.getEtat());
+            assertEquals("Elaine", jeu.getJoueurs().get(2).getNom());
+            assertEquals(4, jeu.getJoueurs().get(2).getCartesWagon().size());
+            // la réserve est reconstituée en arrière-plan
+            assertTrue(attendreDisponibles(reserve, 3, 1));
+            assertNotSame(jeu, reserve.prendre(new String[] { "Guybrush", "Largo", "Elaine" }));
+        } finally {
+            reserve.arreter();
+        }
+    }
+
+    @Test
+    void testTailleViseeSuitLaDemande() throws InterruptedException {
+        ReserveParties reserve = new ReserveParties(50, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue(attendreDisponibles(reserve, 2, 1));
+            // la taille visée augmente quand la réserve est vide au moment de la
+            // demande (le thread de remplissage peut suivre quelques demandes)
+            for (int i = 0; i < 100 && reserve.getTailleVisee(2) == ReserveParties.TAILLE_MIN; i++) {
+                reserve.prendre(new String[] { "Guybrush", "Largo" });
+            }
+            assertTrue(reserve.getTailleVisee(2) > ReserveParties.TAILLE_MIN);
+            // sans demande, la taille visée redescend
+            long fin = System.currentTimeMillis() + 5000;
+            while (reserve.getTailleVisee(2) > ReserveParties.TAILLE_MIN && System.currentTimeMillis() < fin) {
+                Thread.sleep(20);
+            }
+            assertEquals(ReserveParties.TAILLE_MIN, reserve.getTailleVisee(2));
+            assertThrows(IllegalArgumentException.class, () -> reserve.prendre(new String[] { "Guybrush" }));
+        } finally {
+            reserve.arreter();
+        }
+    }
+
+    @Test
+    void testUneSeuleRouteEntreDeuxVillesADeuxJoueurs() {
+        Jeu aDeux = new Jeu(new String[] { "Guybrush", "Largo" });
+        HashSet<String> extremites = new HashSet<>();
+        for (Route r : aDeux.getRoutes()) {
+            assertTrue(extremites.add(r.getVille1().getNom() + " - " + r.getVille2().getNom()));
+        }
+        assertTrue(new Jeu(new String[] { "Guybrush", "Largo", "Elaine" }).getRoutes().size() > aDeux.getRoutes().size());
+    }
+
+    private static boolean attendreDisponibles(ReserveParties reserve, int nbJoueurs, int nombre)
+            throws InterruptedException {
+        long fin = System.currentTimeMillis() + 5000;
+        while (reserve.getDisponibles(nbJoueurs) < nombre) {
+            if (System.currentTimeMillis() > fin) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class RoueTemporelleTest {
+    @Test
+    void testExpirationEtAnnulation() throws InterruptedException {
+        RoueTemporelle roue = new RoueTemporelle(5, 8);
+        try {
+            AtomicInteger nbAnnulees = new AtomicInteger();
+            CountDownLatch expirees = new CountDownLatch(1000);
+            long debut = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                // jusqu'à plusieurs tours de roue (8 cases de 5 ms)
+                roue.planifier(expirees::countDown, 20 + i % 100, TimeUnit.MILLISECONDS);
+            }
+            RoueTemporelle.Echeance annulee = roue.planifier(nbAnnulees::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+            assertTrue(annulee.annuler());
+
+            assertTrue(expirees.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - debut >= TimeUnit.MILLISECONDS.toNanos(119));
+            Thread.sleep(50);
+            assertEquals(0, nbAnnulees.get());
+            assertFalse(annulee.estExpiree());
+        } finally {
+            roue.arreter();
+        }
+    }
+}
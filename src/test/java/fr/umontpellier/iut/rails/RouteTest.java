@@ -0,0 +1,42 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class RouteTest {
+    private static int[] main(CouleurWagon... cartes) {
+        return CouleurWagon.compter(List.of(cartes), new int[CouleurWagon.values().length]);
+    }
+
+    @Test
+    void testType() {
+        Ville a = new Ville("A");
+        Ville b = new Ville("B");
+        assertEquals(Route.Type.ROUTE, new Route(a, b, 2, CouleurWagon.ROUGE).getType());
+        assertTrue(new Ferry(a, b, 2, CouleurWagon.GRIS, 1).estFerry());
+        assertTrue(new Tunnel(a, b, 2, CouleurWagon.ROUGE).estTunnel());
+        assertFalse(new Tunnel(a, b, 2, CouleurWagon.ROUGE).estFerry());
+    }
+
+    @Test
+    void testPeutEtrePayeePar() {
+        Ville a = new Ville("A");
+        Ville b = new Ville("B");
+        Route rouge = new Route(a, b, 3, CouleurWagon.ROUGE);
+        assertTrue(rouge.peutEtrePayeePar(main(CouleurWagon.ROUGE, CouleurWagon.ROUGE, CouleurWagon.LOCOMOTIVE)));
+        assertFalse(rouge.peutEtrePayeePar(main(CouleurWagon.ROUGE, CouleurWagon.BLEU, CouleurWagon.LOCOMOTIVE)));
+
+        Route grise = new Route(a, b, 3, CouleurWagon.GRIS);
+        assertTrue(grise.peutEtrePayeePar(main(CouleurWagon.BLEU, CouleurWagon.BLEU, CouleurWagon.BLEU)));
+        assertFalse(grise.peutEtrePayeePar(main(CouleurWagon.BLEU, CouleurWagon.VERT, CouleurWagon.ROSE)));
+
+        Ferry ferry = new Ferry(a, b, 3, CouleurWagon.GRIS, 2);
+        assertFalse(ferry.peutEtrePayeePar(main(CouleurWagon.BLEU, CouleurWagon.BLEU, CouleurWagon.LOCOMOTIVE)));
+        assertTrue(ferry.peutEtrePayeePar(main(CouleurWagon.BLEU, CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE)));
+        assertTrue(ferry.peutEtrePayeePar(main(CouleurWagon.LOCOMOTIVE, CouleurWagon.LOCOMOTIVE,
+                CouleurWagon.LOCOMOTIVE)));
+    }
+}
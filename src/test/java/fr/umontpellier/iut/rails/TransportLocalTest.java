@@ -0,0 +1,48 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import org.junit.jupiter.api.Test;
+
+public class TransportLocalTest {
+    @Test
+    void testPartieJoueeParDesBotsDansLeursThreads() throws InterruptedException {
+        Jeu jeu = new Jeu(new String[] { "Guybrush", "Largo" });
+        jeu.setNbToursMax(20);
+        List<Thread> bots = new ArrayList<>();
+        for (Joueur joueur : jeu.getJoueurs()) {
+            TransportLocal transport = new TransportLocal();
+            assertTrue(jeu.brancher(joueur.getNom(), transport));
+            assertFalse(jeu.brancher(joueur.getNom(), new TransportLocal()));
+            Thread bot = new Thread(() -> {
+                DecideurGlouton decideur = new DecideurGlouton();
+                try {
+                    TransportLocal.Demande demande;
+                    while ((demande = transport.prochaineDemande(5, TimeUnit.SECONDS)) != null) {
+                        assertTrue(demande.repondre(decideur.choisir(demande.getJoueur(), demande.getInstruction(),
+                                demande.getChoix(), demande.getBoutons(), demande.peutPasser())));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            bot.start();
+            bots.add(bot);
+        }
+        assertFalse(jeu.brancher("LeChuck", new TransportLocal()));
+
+        Thread partie = new Thread(jeu);
+        partie.start();
+        partie.join(20000);
+        assertEquals(EtatPartie.TERMINEE, jeu.getEtat());
+        for (Thread bot : bots) {
+            bot.join(5000);
+            assertFalse(bot.isAlive());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fr.umontpellier.iut.rails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ValeursRoutesTest {
+    private IOJeu jeu;
+    private Joueur joueur1;
+    private Joueur joueur2;
+
+    public Route getRouteParNom(String nom) {
+        for (Route route : jeu.getRoutes()) {
+            if (route.getNom().equals(nom)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    @BeforeEach
+    void init() {
+        jeu = new IOJeu(new String[] { "Guybrush", "Largo", "LeChuck", "Elaine" });
+        joueur1 = jeu.getJoueurs().get(0);
+        joueur2 = jeu.getJoueurs().get(1);
+    }
+
+    @Test
+    void testSansDestinationAucuneValeur() {
+        assertTrue(jeu.getValeursRoutes(joueur1).isEmpty());
+    }
+
+    @Test
+    void testCheminDirect() {
+        joueur1.getDestinations().add(new Destination("Dieppe", "Paris", 5));
+
+        Map<Route, Integer> valeurs = jeu.getValeursRoutes(joueur1);
+        assertEquals(1, valeurs.size());
+        assertEquals(5, valeurs.get(getRouteParNom("Dieppe - Paris")));
+    }
+
+    @Test
+    void testRecalculApresCapture() {
+        joueur1.getDestinations().add(new Destination("Dieppe", "Paris", 5));
+        jeu.getValeursRoutes(joueur1);
+
+        // la route directe est prise par un autre joueur : il faut passer par Bruxelles
+        getRouteParNom("Dieppe - Paris").setProprietaire(joueur2);
+        Map<Route, Integer> valeurs = jeu.getValeursRoutes(joueur1);
+        assertNull(valeurs.get(getRouteParNom("Dieppe - Paris")));
+        assertEquals(5, valeurs.get(getRouteParNom("Bruxelles - Dieppe")));
+        assertEquals(5, valeurs.get(getRouteParNom("Bruxelles - Paris(1)")));
+        assertEquals(5, valeurs.get(getRouteParNom("Bruxelles - Paris(2)")));
+    }
+
+    @Test
+    void testRoutesDuJoueurGratuites() {
+        joueur1.getDestinations().add(new Destination("Dieppe", "Paris", 5));
+        joueur1.getDestinations().add(new Destination("Brest", "Paris", 7));
+        getRouteParNom("Brest - Dieppe").setProprietaire(joueur1);
+
+        // Brest - Paris : 3 wagons en direct, 1 seul en passant par Dieppe
+        Map<Route, Integer> valeurs = jeu.getValeursRoutes(joueur1);
+        assertEquals(12, valeurs.get(getRouteParNom("Dieppe - Paris")));
+        assertNull(valeurs.get(getRouteParNom("Brest - Paris")));
+    }
+
+    @Test
+    void testRecalculApresChangementDeDestinationSansChangementDeNombre() {
+        joueur1.getDestinations().add(new Destination("Dieppe", "Paris", 5));
+        jeu.getValeursRoutes(joueur1);
+
+        joueur1.getDestinations().set(0, new Destination("Brest", "Dieppe", 4));
+        Map<Route, Integer> valeurs = jeu.getValeursRoutes(joueur1);
+        assertNull(valeurs.get(getRouteParNom("Dieppe - Paris")));
+        assertEquals(4, valeurs.get(getRouteParNom("Brest - Dieppe")));
+    }
+}
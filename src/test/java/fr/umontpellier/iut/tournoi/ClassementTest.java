@@ -0,0 +1,35 @@
+package fr.umontpellier.iut.tournoi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import org.junit.jupiter.api.Test;
+
+public class ClassementTest {
+
+    @Test
+    void testDuel() {
+        Participant a = new Participant("A", DecideurGlouton::new);
+        Participant b = new Participant("B", DecideurGlouton::new);
+        new Classement(32).mettreAJour(List.of(a, b), new int[] { 40, 30 });
+
+        assertEquals(1516, a.getElo(), 1e-9);
+        assertEquals(1484, b.getElo(), 1e-9);
+        assertEquals(1, a.getNbVictoires());
+        assertEquals(0, b.getNbVictoires());
+    }
+
+    @Test
+    void testPartieAPlusieursConserveLaSomme() {
+        Participant a = new Participant("A", DecideurGlouton::new);
+        Participant b = new Participant("B", DecideurGlouton::new);
+        Participant c = new Participant("C", DecideurGlouton::new);
+        new Classement(32).mettreAJour(List.of(a, b, c), new int[] { 10, 50, 10 });
+
+        assertEquals(3 * Participant.ELO_INITIAL, a.getElo() + b.getElo() + c.getElo(), 1e-9);
+        assertTrue(b.getElo() > Participant.ELO_INITIAL);
+        assertEquals(a.getElo(), c.getElo(), 1e-9);
+    }
+}
@@ -0,0 +1,35 @@
+package fr.umontpellier.iut.tournoi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import fr.umontpellier.iut.bots.DecideurGlouton;
+import org.junit.jupiter.api.Test;
+
+public class TournoiTest {
+
+    @Test
+    void testPartieEnErreurNeComptePasAuClassement() throws Exception {
+        Participant glouton = new Participant("Glouton", DecideurGlouton::new);
+        Participant fautif = new Participant("Fautif", () -> (joueur, instruction, choix, boutons, peutPasser) -> {
+            throw new IllegalStateException("décideur en panne");
+        });
+        File fichier = File.createTempFile("tournoi", ".csv");
+        fichier.deleteOnExit();
+        try (EcrivainResultats ecrivain = new EcrivainResultats(fichier);
+             Tournoi tournoi = new Tournoi(List.of(glouton, fautif), 2, Tournoi.Format.TOUTES_RONDES, ecrivain)) {
+            tournoi.jouer(1);
+        }
+
+        assertEquals(Participant.ELO_INITIAL, glouton.getElo(), 1e-9);
+        assertEquals(Participant.ELO_INITIAL, fautif.getElo(), 1e-9);
+        assertEquals(0, glouton.getNbParties());
+        List<String> lignes = Files.readAllLines(fichier.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lignes.size());
+        assertTrue(lignes.get(1).endsWith("java.lang.IllegalStateException: décideur en panne"));
+    }
+}
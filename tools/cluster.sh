@@ -0,0 +1,27 @@
+#!/bin/sh
+# Lance un cluster local : N serveurs de jeu (ports 3240, 3250, ...) et le
+# routeur sur le port 3232. Usage : tools/cluster.sh [N]   (Ctrl-C pour arrêter)
+set -e
+cd "$(dirname "$0")/.."
+N=${1:-2}
+mvn -B -q compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+CP="target/classes:$(cat target/classpath.txt)"
+
+NOEUDS=""
+i=0
+while [ "$i" -lt "$N" ]; do
+    NOEUDS="$NOEUDS${NOEUDS:+,}localhost:$((3240 + 10 * i))"
+    i=$((i + 1))
+done
+
+i=0
+while [ "$i" -lt "$N" ]; do
+    PORT=$((3240 + 10 * i))
+    tail -f /dev/null | java -cp "$CP" -Dport=$PORT -DportHttp=$((PORT + 1)) \
+        -Dcluster="$NOEUDS" -Dnoeud=localhost:$PORT -Djoueurs= \
+        fr.umontpellier.iut.gui.GameServer > "target/noeud-$PORT.log" 2>&1 &
+    i=$((i + 1))
+done
+trap 'kill 0' INT TERM EXIT
+echo "Nœuds : $NOEUDS (journaux dans target/noeud-*.log)"
+tail -f /dev/null | java -cp "$CP" -Dport=3232 -Dcluster="$NOEUDS" fr.umontpellier.iut.cluster.Routeur